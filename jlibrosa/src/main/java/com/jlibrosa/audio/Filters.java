@@ -1,6 +1,8 @@
 package com.jlibrosa.audio;
 import java.util.Arrays;
 
+import com.jlibrosa.audio.util.Utils;
+
 
 public class Filters {
 
@@ -54,7 +56,7 @@ public class Filters {
                 double[] lengths,
                 double fCutoff
         ) {
-            this.lengths = lengths;wavelet_lengths
+            this.lengths = lengths;
             this.fCutoff = fCutoff;
         }
     }
@@ -67,6 +69,21 @@ public class Filters {
             Double gamma,
             double[] alpha
     ) {
+        return waveletLengths(freqs, (double) sr, window, filterScale, gamma, alpha);
+    }
+
+    /**
+     * Mesmo cálculo com taxa de amostragem não inteira (ex: sr / 2^k nas
+     * oitavas reamostradas da VQT).
+     */
+    public static WaveletLengthsResult waveletLengths(
+            double[] freqs,
+            double sr,
+            String window,
+            double filterScale,
+            Double gamma,
+            double[] alpha
+    ) {
 
         // =========================================================
         // Validações
@@ -181,6 +198,123 @@ public class Filters {
         );
     }
 
+    // =============================================================
+    // Wavelet filters
+    // =============================================================
+
+    public static class WaveletResult {
+
+        /**
+         * Filtros complexos no tempo, um por linha, intercalados (re, im):
+         * basis[i][2 * n] = Re, basis[i][2 * n + 1] = Im, com n em [0, nSamples).
+         */
+        public final double[][] basis;
+        public final int nSamples;
+        public final double[] lengths;
+
+        public WaveletResult(
+                double[][] basis,
+                int nSamples,
+                double[] lengths
+        ) {
+            this.basis = basis;
+            this.nSamples = nSamples;
+            this.lengths = lengths;
+        }
+    }
+
+    /**
+     * Equivalente ao librosa.filters.wavelet: para cada frequência, um
+     * exponencial complexo de duração lengths[i] multiplicado pela janela,
+     * normalizado (norma norm) e centralizado em um comprimento comum.
+     *
+     * @param norm  1 (L1, padrão do librosa), 2, Double.POSITIVE_INFINITY
+     *              (máximo) ou null (sem normalização)
+     * @param padFft se true, o comprimento comum é a potência de 2 seguinte
+     */
+    public static WaveletResult wavelet(
+            double[] freqs,
+            double sr,
+            String window,
+            double filterScale,
+            boolean padFft,
+            Double norm,
+            Double gamma,
+            double[] alpha
+    ) {
+
+        double[] lengths = waveletLengths(
+                freqs, sr, window, filterScale, gamma, alpha
+        ).lengths;
+
+        double maxLen = 0;
+        for (double length : lengths) {
+            maxLen = Math.max(maxLen, length);
+        }
+
+        int nSamples;
+        if (padFft) {
+            nSamples = (int) Math.pow(2.0, Math.ceil(log2(maxLen)));
+        } else {
+            nSamples = (int) Math.ceil(maxLen);
+        }
+
+        double[][] basis = new double[freqs.length][2 * nSamples];
+
+        for (int i = 0; i < freqs.length; i++) {
+
+            // np.arange(-ilen // 2, ilen // 2)
+            int first = (int) Math.floor(-lengths[i] / 2.0);
+            int count = (int) Math.floor(lengths[i] / 2.0) - first;
+
+            double[] win = Utils.getWindow(window, count, true);
+
+            double[] sig = new double[2 * count];
+            for (int n = 0; n < count; n++) {
+                double phase = (first + n) * 2.0 * Math.PI * freqs[i] / sr;
+                sig[2 * n] = Math.cos(phase) * win[n];
+                sig[2 * n + 1] = Math.sin(phase) * win[n];
+            }
+
+            normalize(sig, norm);
+
+            // pad_center: (nSamples - count) / 2 zeros à esquerda
+            int offset = (nSamples - count) / 2;
+            System.arraycopy(sig, 0, basis[i], 2 * offset, sig.length);
+        }
+
+        return new WaveletResult(basis, nSamples, lengths);
+    }
+
+    // util.normalize de um vetor complexo intercalado
+    private static void normalize(double[] sig, Double norm) {
+
+        if (norm == null) {
+            return;
+        }
+
+        double length = 0;
+        for (int n = 0; n < sig.length / 2; n++) {
+            double mag = Math.hypot(sig[2 * n], sig[2 * n + 1]);
+            if (Double.isInfinite(norm)) {
+                length = Math.max(length, mag);
+            } else {
+                length += Math.pow(mag, norm);
+            }
+        }
+        if (!Double.isInfinite(norm)) {
+            length = Math.pow(length, 1.0 / norm);
+        }
+
+        // comprimentos ~zero não são normalizados
+        if (length < Double.MIN_NORMAL) {
+            return;
+        }
+        for (int n = 0; n < sig.length; n++) {
+            sig[n] /= length;
+        }
+    }
+
     // =============================================================
     // Window bandwidths
     // =============================================================
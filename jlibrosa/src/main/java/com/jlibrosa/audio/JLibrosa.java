@@ -2,8 +2,7 @@ package com.jlibrosa.audio;
 
 import java.io.File;
 import java.io.IOException;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.stream.DoubleStream;
@@ -13,6 +12,11 @@ import org.apache.commons.math3.complex.Complex;
 
 import com.jlibrosa.audio.exception.FileFormatNotSupportedException;
 import com.jlibrosa.audio.process.AudioFeatureExtraction;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.Precision;
+import com.jlibrosa.audio.util.StftBatch;
+import com.jlibrosa.audio.wavFile.AudioSource;
+import com.jlibrosa.audio.wavFile.WavAudioSource;
 import com.jlibrosa.audio.wavFile.WavFile;
 import com.jlibrosa.audio.wavFile.WavFileException;
 
@@ -34,6 +38,8 @@ public class JLibrosa {
 	private int n_fft = 2048;
 	private int hop_length = 512;
 	private int n_mels = 128;
+	private boolean downmixRounding = true;
+	private Precision precision = Precision.DOUBLE;
 
 	
 	
@@ -83,8 +89,49 @@ public class JLibrosa {
 
 	}
 
+
+
+	public boolean isDownmixRounding() {
+		return downmixRounding;
+	}
+
+
+
+	/**
+	 * Controls whether the mono downmix is rounded up to 5 decimals, as done by
+	 * the earlier DecimalFormat based implementation. Enabled by default to keep
+	 * the values comparable with librosa outputs generated so far.
+	 * 
+	 * @param downmixRounding
+	 */
+	public void setDownmixRounding(boolean downmixRounding) {
+		this.downmixRounding = downmixRounding;
+	}
+
 	
 
+	public Precision getPrecision() {
+		return precision;
+	}
+
+
+
+	/**
+	 * Selects the precision used for the STFT, mel spectrogram and MFCC features.
+	 * Precision.FLOAT computes them in float32 end to end, halving the memory
+	 * traffic; see Precision for the error bounds against the default double path.
+	 * 
+	 * @param precision
+	 */
+	public void setPrecision(Precision precision) {
+		if (precision == null) {
+			throw new IllegalArgumentException("precision must not be null");
+		}
+		this.precision = precision;
+	}
+
+
+
 	public int getNoOfFrames() {
 		return noOfFrames;
 	}
@@ -215,6 +262,38 @@ public class JLibrosa {
 	}
 
 	
+	/**
+	 * This function opens the audio file as a source of fixed size, overlapping
+	 * blocks of magnitude values, so that long recordings can be processed in
+	 * constant memory instead of being loaded completely. The feature extraction
+	 * methods of this class still take whole arrays: the caller passes the blocks
+	 * on, e.g. to StreamingStft.
+	 * 
+	 * @param path
+	 * @param blockSize - number of frames per block
+	 * @param overlap - number of frames shared by consecutive blocks
+	 * @return
+	 * @throws IOException
+	 * @throws WavFileException
+	 * @throws FileFormatNotSupportedException 
+	 */
+	public AudioSource openAudioSource(String path, int blockSize, int overlap)
+			throws IOException, WavFileException, FileFormatNotSupportedException {
+
+		if(!path.endsWith(".wav")) {
+			throw new FileFormatNotSupportedException("File format not supported. jLibrosa currently supports audio processing of only .wav files");
+		}
+		
+		AudioSource audioSource = WavAudioSource.open(new File(path), blockSize, overlap);
+		
+		this.setNoOfChannels(audioSource.getNumChannels());
+		this.setNoOfFrames((int) audioSource.getNumFrames());
+		this.setSampleRate((int) audioSource.getSampleRate());
+		
+		return audioSource;
+	}
+
+	
 	/**
 	 * This function calculates and returns the MFCC values of given Audio Sample
 	 * values.
@@ -237,6 +316,7 @@ public class JLibrosa {
 		
 		mfccConvert.setSampleRate(mSampleRate);
 		mfccConvert.setN_mfcc(nMFCC);
+		mfccConvert.setPrecision(this.precision);
 		float [] mfccInput = mfccConvert.extractMFCCFeatures(magValues); //extractMFCCFeatures(magValues);
 		
 		int nFFT = mfccInput.length / nMFCC;
@@ -347,6 +427,7 @@ public class JLibrosa {
 		mfccConvert.setN_fft(n_fft);
 		mfccConvert.setN_mels(n_mels);
 		mfccConvert.setHop_length(hop_length);
+		mfccConvert.setPrecision(this.precision);
 		float [][] melSVal = mfccConvert.melSpectrogramWithComplexValueProcessing(yValues);
 		return melSVal;
 	}
@@ -377,6 +458,34 @@ public class JLibrosa {
 	 * @return
 	 */
 	public Complex [][] generateSTFTFeaturesWithPadOption(float[] magValues, int mSampleRate, int nMFCC, int n_fft, int n_mels, int hop_length, boolean paddingFlag) {
+		return this.generateSTFTMatrixWithPadOption(magValues, mSampleRate, nMFCC, n_fft, n_mels, hop_length, paddingFlag).toComplexArray();
+	}
+	
+	
+	
+	/**
+	 * This function calculates and returns the STFT values of given Audio Sample
+	 * values as a [1+n_fft/2][frames] ComplexMatrix. STFT stands for Short Term Fourier Transform
+	 * 
+	 * @param magValues
+	 * @param nMFCC
+	 * @return
+	 */
+	public ComplexMatrix generateSTFTMatrix(float[] magValues, int mSampleRate, int nMFCC, int n_fft, int n_mels, int hop_length) {
+		return this.generateSTFTMatrixWithPadOption(magValues, mSampleRate, nMFCC, n_fft, n_mels, hop_length, true);
+	}
+	
+	
+	
+	/**
+	 * This function calculates and returns the STFT values of given Audio Sample
+	 * values as a [1+n_fft/2][frames] ComplexMatrix, with/without applying padding as one of the argument flag.
+	 * 
+	 * @param magValues
+	 * @param nMFCC
+	 * @return
+	 */
+	public ComplexMatrix generateSTFTMatrixWithPadOption(float[] magValues, int mSampleRate, int nMFCC, int n_fft, int n_mels, int hop_length, boolean paddingFlag) {
 		AudioFeatureExtraction featureExtractor = new AudioFeatureExtraction();
 		featureExtractor.setN_fft(n_fft);
 		featureExtractor.setN_mels(n_mels);
@@ -388,12 +497,71 @@ public class JLibrosa {
 		
 		featureExtractor.setSampleRate(mSampleRate);
 		featureExtractor.setN_mfcc(nMFCC);
-		Complex [][] stftValues = featureExtractor.extractSTFTFeaturesAsComplexValues(magValues, paddingFlag);
+		ComplexMatrix stftValues = featureExtractor.extractSTFTFeaturesAsComplexMatrix(magValues, paddingFlag);
 		return stftValues;
 	}
 	
 	
 	
+	/**
+	 * This function calculates the STFT values of a batch of equal-length clips, e.g. the
+	 * clips of one inference request. The clips share one window and FFT plan and are
+	 * processed in parallel; the result is a float [batch][frames][1+n_fft/2][2] tensor
+	 * that can be copied as is into a TFLite/ONNX input buffer.
+	 * 
+	 * @param clips [batch][samples]
+	 * @param n_fft
+	 * @param hop_length
+	 * @return
+	 */
+	public StftBatch generateSTFTBatch(float[][] clips, int n_fft, int hop_length) {
+		return this.generateSTFTBatchWithPadOption(clips, n_fft, hop_length, true);
+	}
+	
+	
+	
+	/**
+	 * This function calculates the STFT values of a batch of equal-length clips,
+	 * with/without applying padding as one of the argument flag.
+	 * 
+	 * @param clips [batch][samples]
+	 * @param n_fft
+	 * @param hop_length
+	 * @param paddingFlag
+	 * @return
+	 */
+	public StftBatch generateSTFTBatchWithPadOption(float[][] clips, int n_fft, int hop_length, boolean paddingFlag) {
+		AudioFeatureExtraction featureExtractor = new AudioFeatureExtraction();
+		featureExtractor.setN_fft(n_fft);
+		featureExtractor.setHop_length(hop_length);
+		featureExtractor.setPrecision(this.precision);
+		return featureExtractor.extractSTFTFeaturesBatch(clips, paddingFlag);
+	}
+	
+	
+	
+	/**
+	 * This function calculates the STFT values of a batch of clips packed one after the
+	 * other in a single buffer, writing into out when it is given.
+	 * 
+	 * @param samples batchSize clips of samples.length / batchSize samples each
+	 * @param batchSize
+	 * @param n_fft
+	 * @param hop_length
+	 * @param paddingFlag
+	 * @param out preallocated output tensor, or null
+	 * @return
+	 */
+	public StftBatch generateSTFTBatchWithPadOption(float[] samples, int batchSize, int n_fft, int hop_length, boolean paddingFlag, StftBatch out) {
+		AudioFeatureExtraction featureExtractor = new AudioFeatureExtraction();
+		featureExtractor.setN_fft(n_fft);
+		featureExtractor.setHop_length(hop_length);
+		featureExtractor.setPrecision(this.precision);
+		return featureExtractor.extractSTFTFeaturesBatch(samples, batchSize, paddingFlag, out);
+	}
+	
+	
+	
 	
 	
 	
@@ -436,6 +604,35 @@ public class JLibrosa {
 	 * @return
 	 */
 	public float [] generateInvSTFTFeaturesWithPadOption(Complex [][] stftValues, int mSampleRate, int nMFCC, int n_fft, int n_mels, int hop_length, int length, boolean paddingFlag) {
+		return this.generateInvSTFTFeaturesWithPadOption(ComplexMatrix.fromComplexArray(stftValues), mSampleRate, nMFCC, n_fft, n_mels, hop_length, length, paddingFlag);
+	}
+	
+	
+	
+	/**
+	 * This function calculates and returns the inverse STFT values of given stft values
+	 * values. STFT stands for Short Term Fourier Transform
+	 * 
+	 * @param stftValues
+	 * @param nMFCC
+	 * @return
+	 */
+	public float [] generateInvSTFTFeatures(ComplexMatrix stftValues, int mSampleRate, int nMFCC, int n_fft, int n_mels, int hop_length) {
+		return this.generateInvSTFTFeaturesWithPadOption(stftValues, mSampleRate, nMFCC, n_fft, n_mels, hop_length, -1, false);
+	}
+	
+	
+	
+	/**
+	 * This function calculates and returns the inverse STFT values of given stft values
+	 * values. STFT stands for Short Term Fourier Transform
+	 * This function to be used for getting inverse STFT if STFT values have been generated with pad values.
+	 * 
+	 * @param stftValues
+	 * @param nMFCC
+	 * @return
+	 */
+	public float [] generateInvSTFTFeaturesWithPadOption(ComplexMatrix stftValues, int mSampleRate, int nMFCC, int n_fft, int n_mels, int hop_length, int length, boolean paddingFlag) {
 		AudioFeatureExtraction featureExtractor = new AudioFeatureExtraction();
 		featureExtractor.setN_fft(n_fft);
 		featureExtractor.setN_mels(n_mels);
@@ -470,6 +667,20 @@ public class JLibrosa {
 	
 	
 	
+	/**
+	 * This function calculates and returns the inverse STFT values of given STFT
+	 * ComplexMatrix. STFT stands for Short Term Fourier Transform
+	 * 
+	 * @param stftValues
+	 * @param nMFCC
+	 * @return
+	 */
+	public float [] generateInvSTFTFeatures(ComplexMatrix stftValues, int mSampleRate, int nMFCC) {
+		return this.generateInvSTFTFeatures(stftValues, mSampleRate, nMFCC, this.n_fft, this.n_mels, this.hop_length);
+	}
+	
+	
+	
 	/**
 	 * This function calculates and returns the STFT values of given Audio Sample
 	 * values. STFT stands for Short Term Fourier Transform
@@ -499,6 +710,19 @@ public class JLibrosa {
 		return stftValues;
 	}
 	
+	
+	/**
+	 * This function calculates and returns the STFT values of given Audio Sample
+	 * values as a ComplexMatrix. STFT stands for Short Term Fourier Transform
+	 * 
+	 * @param magValues
+	 * @param nMFCC
+	 * @return
+	 */
+	public ComplexMatrix generateSTFTMatrix(float[] magValues, int mSampleRate, int nMFCC) {
+		return this.generateSTFTMatrix(magValues, mSampleRate, nMFCC, this.n_fft, this.n_mels, this.hop_length);
+	}
+	
 	/**
 	 * This function loads the audio file, reads its Numeric Magnitude Feature
 	 * values and then takes the mean of amplitude values across all the channels and
@@ -519,28 +743,93 @@ public class JLibrosa {
 			throws IOException, WavFileException, FileFormatNotSupportedException {
 		float[][] magValueArray = readMagnitudeValuesFromFile(path, sampleRate, readDurationInSeconds, offsetDuration);
 
-		DecimalFormat df = new DecimalFormat("#.#####");
-		df.setRoundingMode(RoundingMode.CEILING);
-
-		int mNumFrames = this.getNoOfFrames();
-		int mChannels = this.getNoOfChannels();
-		
 		// take the mean of amplitude values across all the channels and convert the
 		// signal to mono mode
+		return downmixToMono(magValueArray, this.getNoOfFrames(), this.downmixRounding);
 		
-		float[] meanBuffer = new float[mNumFrames];
-				
+	}
+	
+	
+	
+	/**
+	 * This function takes the mean of amplitude values across all the channels in
+	 * place. The mono signal is written into the first channel of the given array,
+	 * which is also returned, so no additional buffer is allocated.
+	 * 
+	 * When rounding is enabled each mean value is rounded up to 5 decimals, matching
+	 * the DecimalFormat("#.#####") with RoundingMode.CEILING formatting used earlier.
+	 * 
+	 * @param magValueArray - [channels][frames] magnitude values
+	 * @param numFrames
+	 * @param rounding
+	 * @return
+	 */
+	public static float[] downmixToMono(float[][] magValueArray, int numFrames, boolean rounding) {
+		float[] monoBuffer = magValueArray[0];
+		int mChannels = magValueArray.length;
 		
-		for (int q = 0; q < mNumFrames; q++) {
+		for (int q = 0; q < numFrames; q++) {
 			double frameVal = 0;
 			for (int p = 0; p < mChannels; p++) {
 				frameVal = frameVal + magValueArray[p][q];
 			}
-			meanBuffer[q] = Float.parseFloat(df.format(frameVal / mChannels));
+			double meanVal = frameVal / mChannels;
+			monoBuffer[q] = rounding ? ceilToFiveDecimals(meanVal) : (float) meanVal;
+		}
+		
+		return monoBuffer;
+	}
+	
+	
+	
+	/**
+	 * This function rounds the value up to 5 decimals without going through a
+	 * String. Like DecimalFormat, it works on the shortest decimal representation
+	 * of the double and truncates values below 1e-6 to zero.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static float ceilToFiveDecimals(double value) {
+		if (Math.abs(value) < 1e-6) {
+			return value < 0 ? -0.0f : 0.0f;
+		}
+		
+		double scaled = value * 1e5;
+		double units = Math.rint(scaled);
+		
+		// value does not have more than 5 decimals
+		if (units / 1e5 == value) {
+			return unitsToFloat(units);
 		}
-
-		return meanBuffer;
 		
+		// correct the rounding error of the scaling, if any
+		units = Math.ceil(scaled);
+		if (units / 1e5 < value) {
+			units = units + 1;
+		} else if ((units - 1) / 1e5 >= value) {
+			units = units - 1;
+		}
+		return unitsToFloat(units);
+	}
+	
+	
+	
+	/**
+	 * This function converts a count of 1e-5 units into the nearest float, as
+	 * Float.parseFloat would do for the decimal value.
+	 * 
+	 * @param units
+	 * @return
+	 */
+	private static float unitsToFloat(double units) {
+		double value = units / 1e5;
+		
+		// exactly half way between two floats, resolve on the exact decimal value
+		if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L) {
+			return new BigDecimal(units).scaleByPowerOfTen(-5).floatValue();
+		}
+		return (float) value;
 	}
 	
 	
@@ -639,23 +928,14 @@ public class JLibrosa {
 
 		float[][] magValueArray = readMagnitudeValuesFromFile(path, sampleRate, readDurationInSeconds, offsetDuration);
 
-		DecimalFormat df = new DecimalFormat("#.#####");
-		df.setRoundingMode(RoundingMode.CEILING);
-
 		int mNumFrames = this.getNoOfFrames();
-		int mChannels = this.getNoOfChannels();
 		
 		// take the mean of amplitude values across all the channels and convert the
 		// signal to mono mode
-		float[] meanBuffer = new float[mNumFrames];
-		ArrayList<Float> meanBufferList = new ArrayList<Float>();
+		float[] meanBuffer = downmixToMono(magValueArray, mNumFrames, this.downmixRounding);
+		ArrayList<Float> meanBufferList = new ArrayList<Float>(mNumFrames);
 		for (int q = 0; q < mNumFrames; q++) {
-			double frameVal = 0;
-			for (int p = 0; p < mChannels; p++) {
-				frameVal = frameVal + magValueArray[p][q];
-			}
-			meanBufferList.add(Float.parseFloat(df.format(frameVal / mChannels)));
-			
+			meanBufferList.add(meanBuffer[q]);
 		}
 		
 		return meanBufferList;
@@ -2,21 +2,24 @@ package com.jlibrosa.audio.core;
 import com.jlibrosa.audio.core.Convert;
 import com.jlibrosa.audio.core.Pitch;
 import com.jlibrosa.audio.core.IntervalFrequencies;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.FFTPlanCache;
+import com.jlibrosa.audio.util.SparseComplexMatrix;
 import com.jlibrosa.audio.util.Utils;
 import com.jlibrosa.audio.Filters;
-import org.apache.commons.math3.complex.Complex;
+import org.jtransforms.fft.DoubleFFT_1D;
 import java.util.Collection;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
 
 public class Constantq {
 
-	private static final Map<Integer, double[]> BW_CACHE = new HashMap<>();
+	private static final Map<Integer, double[]> BW_CACHE = new ConcurrentHashMap<>();
 
-	private static double[] etRelativeBw(int binsPerOctave) {
+	static double[] etRelativeBw(int binsPerOctave) {
 		return BW_CACHE.computeIfAbsent(binsPerOctave, b -> {
 			double r = Math.pow(2.0, 1.0 / b);
 			double alpha = (Math.pow(r, 2) - 1.0) / (Math.pow(r, 2) + 1.0);
@@ -186,200 +189,227 @@ public class Constantq {
         );
     }
 
+    /**
+     * Resultado de vqtFilterFFT: meio espectro (1 + nFft/2 bins) de cada
+     * filtro, como matriz esparsa (CSR) [filtros][bins].
+     */
     public static class FilterResult {
-        public Complex[][] fftBasis;
-        public int nFft;
-        public double[] lengths;
+        public final SparseComplexMatrix fftBasis;
+        public final int nFft;
+        public final double[] lengths;
 
-        public FilterResult(Complex[][] fftBasis, int nFft, double[] lengths) {
+        public FilterResult(SparseComplexMatrix fftBasis, int nFft, double[] lengths) {
             this.fftBasis = fftBasis;
             this.nFft = nFft;
             this.lengths = lengths;
         }
     }
 
-        public static FilterResult vqtFilterFFT(
-                int sr,
-                double[] freqs,
-                double filterScale,
-                double norm,
-                double sparsity,
-                Integer hopLength,
-                String window,
-                double gamma,
-                Double alpha
-        ) {
-            // 1. Gera filtros no tempo (wavelets)
-            Filters.WaveletLengthsResult wavelet = Filters.waveletLengths(
-                    freqs, sr, filterScale, norm, true, window, gamma, alpha
-            );
+    /**
+     * Equivalente ao:
+     * __vqt_filter_fft
+     *
+     * Filtros wavelet (Filters.wavelet) com comprimento potência de 2,
+     * re-normalizados por lengths / nFft e levados para a frequência por uma
+     * FFT complexa. Em cada filtro, os bins de menor módulo que somam até
+     * sparsity da energia são descartados (Utils.sparsifyRows).
+     */
+    public static FilterResult vqtFilterFFT(
+            double sr,
+            double[] freqs,
+            double filterScale,
+            Double norm,
+            double sparsity,
+            Integer hopLength,
+            String window,
+            Double gamma,
+            double[] alpha
+    ) {
+        // 1. Gera filtros no tempo (wavelets)
+        Filters.WaveletResult wavelet = Filters.wavelet(
+                freqs, sr, window, filterScale, true, norm, gamma, alpha
+        );
 
-            double[][] basis = wavelet.basis;  // filtros no tempo
-            double[] lengths = wavelet.lengths;
+        double[][] basis = wavelet.basis;  // filtros no tempo
+        double[] lengths = wavelet.lengths;
 
-            int nFft = basis[0].length;
+        int nFft = wavelet.nSamples;
 
-            // 2. Ajusta tamanho do FFT se hop_length exigir
-            if (hopLength != null) {
-                int minNfft = 1 << (int) Math.ceil(Math.log(hopLength) / Math.log(2) + 1);
-                if (nFft < minNfft) {
-                    nFft = minNfft;
-                }
+        // 2. Ajusta tamanho do FFT se hop_length exigir
+        if (hopLength != null) {
+            int minNfft = (int) Math.pow(2.0, 1 + Math.ceil(Math.log(hopLength) / Math.log(2)));
+            if (nFft < minNfft) {
+                nFft = minNfft;
             }
+        }
 
-            // 3. Re-normaliza
-            for (int i = 0; i < basis.length; i++) {
-                for (int j = 0; j < basis[i].length; j++) {
-                    basis[i][j] *= lengths[i] / (double) nFft;
-                }
+        // 3. Re-normaliza e 4. FFT dos filtros (zeros à direita até nFft),
+        // guardando só os 1 + nFft/2 primeiros bins
+        DoubleFFT_1D fft = FFTPlanCache.doubleFFT(nFft);
+        ComplexMatrix fftBasis = new ComplexMatrix(basis.length, nFft / 2 + 1);
+        double[] buffer = new double[2 * nFft];
+
+        for (int i = 0; i < basis.length; i++) {
+            double scale = lengths[i] / (double) nFft;
+            Arrays.fill(buffer, 0.0);
+            for (int j = 0; j < basis[i].length; j++) {
+                buffer[j] = basis[i][j] * scale;
             }
-
-            // 4. FFT dos filtros
-            Complex[][] fftBasis = new Complex[basis.length][];
-            for (int i = 0; i < basis.length; i++) {
-                Complex[] fftRow = Utils.fft(basis[i], nFft);
-                fftBasis[i] =
-                    Arrays.copyOfRange(fftRow, 0, nFft / 2 + 1);
+            fft.complexForward(buffer);
+            for (int k = 0; k < nFft / 2 + 1; k++) {
+                fftBasis.set(i, k, buffer[2 * k], buffer[2 * k + 1]);
             }
-
-            // 5. Sparsificação (opcional, pode pular na primeira versão)
-            fftBasis = Utils.sparsifyRows(fftBasis, sparsity);
-
-            return new FilterResult(fftBasis, nFft, lengths);
-        }
-
-
-    
-
-	public static Complex[][] cqt(
-	    double[] y,
-	    int sr,
-	    int hopLength,
-	    Double fmin,
-	    int nBins,
-	    int binsPerOctave,
-	    Double tuning,
-	    double filterScale,
-	    Double norm,
-	    double sparsity,
-	    String window,
-	    boolean scale,
-	    String padMode,
-	    String resType,
-	    Class<?> dtype
-	) {
-	    return null;
-	}
-
-	public static Complex[][] vqt(
-	    double[] y,
-	    int sr,
-	    int hopLength,
-	    Double fmin,
-	    int nBins,
-	    Object intervals,
-	    Double gamma,
-	    int binsPerOctave,
-	    Double tuning,
-	    double filterScale,
-	    Double norm,
-	    double sparsity,
-	    String window,
-	    boolean scale,
-	    String padMode,
-	    String resType,
-	    String dtype
-	) {
-		
-
-	    if (intervals instanceof Collection<?>) {
-		    binsPerOctave = ((Collection<?>) intervals).size();
-	    } else if (!(intervals instanceof String)) {
-		    throw new IllegalArgumentException("intervals must be String or Collection");
-	    }
-
-	    int nOctaves = (int) Math.ceil((double) nBins / binsPerOctave);
-	    int nFilters = Math.min(binsPerOctave, nBins);
-	    if (fmin == null) {
-   		 // C1 por padrão
-   		 fmin = Convert.noteToHz("C1", true);
-	    }
-	    
-	    if (tuning == null) {
-            tuning = Pitch.estimateTuning(y, sr, binsPerOctave);
         }
 
+        return new FilterResult(Utils.sparsifyRows(fftBasis, sparsity), nFft, lengths);
+    }
 
-		if (dtype == null) {
-			dtype = Utils.dtypeR2C(Double.TYPE);
+    /**
+     * Equivalente ao:
+     * __cqt_response
+     *
+     * STFT com janela retangular ("ones", center = true) e produto da base
+     * esparsa [filtros][bins] pela STFT [bins][frames].
+     */
+    private static ComplexMatrix cqtResponse(
+            double[] y,
+            int nFft,
+            int hopLength,
+            SparseComplexMatrix fftBasis,
+            String padMode
+    ) {
+        ComplexMatrix D = Spectrum.stftMatrix(y, nFft, hopLength, null, "ones", true, padMode);
 
-		}
+        // Só os bins guardados de cada filtro entram na soma
+        return fftBasis.multiply(D);
+    }
 
-		fmin = fmin * Math.pow(2.0, tuning / (double) binsPerOctave);
+    /**
+     * Equivalente ao:
+     * __trim_stack
+     *
+     * Empilha as respostas por oitava (da mais aguda para a mais grave) em
+     * uma matriz [nBins][frames], com o menor número de frames entre elas.
+     */
+    private static ComplexMatrix trimStack(List<ComplexMatrix> vqtResp, int nBins) {
 
-		double[] freqs = IntervalFrequencies.intervalFrequencies(
-        nBins,          // int
-        fmin,           // double
-        intervals,      // String ou double[]
-        binsPerOctave,  // int
-        0.0,            // tuning (no Python default = 0)
-        true            // sort
-		);
-	    
-		if (freqs.length < binsPerOctave) {
-			throw new IllegalArgumentException("freqs menor que binsPerOctave");
-		}
+        int maxCol = Integer.MAX_VALUE;
+        for (ComplexMatrix c : vqtResp) {
+            maxCol = Math.min(maxCol, c.cols());
+        }
 
-		double fmaxT = Double.NEGATIVE_INFINITY;
+        ComplexMatrix out = new ComplexMatrix(nBins, maxCol);
 
-		for (int i = freqs.length - binsPerOctave; i < freqs.length; i++) {
-			if (freqs[i] > fmaxT) {
-				fmaxT = freqs[i];
-			}
-		}
+        int end = nBins;
+        for (ComplexMatrix c : vqtResp) {
+            int nOct = c.rows();
+            // Se a oitava não cabe inteira, ficam os bins mais agudos dela
+            int rows = Math.min(end, nOct);
+            int from = nOct - rows;
+            for (int t = 0; t < maxCol; t++) {
+                System.arraycopy(c.getData(), c.index(from, t), out.getData(), out.index(end - rows, t), 2 * rows);
+            }
+            end -= nOct;
+            if (end <= 0) {
+                break;
+            }
+        }
+        return out;
+    }
 
-		double[] alpha;
+    /**
+     * Constant-Q transform, equivalente ao librosa.cqt: vqt com intervals =
+     * "equal" e gamma = 0.
+     *
+     * @return ComplexMatrix [nBins][frames]
+     */
+    public static ComplexMatrix cqt(
+            double[] y,
+            int sr,
+            int hopLength,
+            Double fmin,
+            int nBins,
+            int binsPerOctave,
+            Double tuning,
+            double filterScale,
+            Double norm,
+            double sparsity,
+            String window,
+            boolean scale,
+            String padMode,
+            String resType,
+            Class<?> dtype
+    ) {
+        return vqt(
+                y, sr, hopLength, fmin, nBins, "equal", 0.0, binsPerOctave, tuning,
+                filterScale, norm, sparsity, window, scale, padMode, resType,
+                dtype == null ? null : Utils.dtypeR2C(dtype)
+        );
+    }
 
-		if (nBins == 1) {
-			alpha = etRelativeBw(binsPerOctave);
-		} else {
-			alpha = Filters.relativeBandwidth(freqs);
-		}
+    /**
+     * Variable-Q transform, equivalente ao librosa.vqt.
+     *
+     * A oitava mais aguda é filtrada na taxa original (depois do early
+     * downsample); a cada oitava seguinte o sinal é reamostrado pela metade
+     * (enquanto hopLength for par), então a FFT de cada oitava continua
+     * pequena mesmo para as frequências graves.
+     *
+     * O cálculo é sempre em double (complex128); dtype é aceito só por
+     * compatibilidade.
+     *
+     * @return ComplexMatrix [nBins][frames]
+     */
+    public static ComplexMatrix vqt(
+            double[] y,
+            int sr,
+            int hopLength,
+            Double fmin,
+            int nBins,
+            Object intervals,
+            Double gamma,
+            int binsPerOctave,
+            Double tuning,
+            double filterScale,
+            Double norm,
+            double sparsity,
+            String window,
+            boolean scale,
+            String padMode,
+            String resType,
+            String dtype
+    ) {
 
-		Filters.WaveletLengthsResult result =
-        Filters.waveletLengths(
-                freqs,
-                sr,
-                window,
-                filterScale,
-                gamma,
-                alpha
-        );
+        if (intervals instanceof Collection<?>) {
+            binsPerOctave = ((Collection<?>) intervals).size();
+        } else if (intervals instanceof double[]) {
+            binsPerOctave = ((double[]) intervals).length;
+        }
 
-		double[] lengths = result.lengths;
-		double filterCutoff = result.fCutoff;
+        if (fmin == null) {
+            // C1 por padrão
+            fmin = Convert.noteToHz("C1", true);
+        }
 
-		// =====================================================
-		// Nyquist check
-		// =====================================================
+        if (tuning == null) {
+            tuning = Pitch.estimateTuning(y, sr, binsPerOctave);
+        }
 
-		double nyquist = sr / 2.0;
+        if (padMode == null) {
+            padMode = "constant";
+        }
 
-		if (filterCutoff > nyquist) {
+        if (resType == null) {
+            resType = "soxr_hq";
+        }
 
-			throw new IllegalArgumentException(
-					"Wavelet basis with max frequency="
-					+ filterCutoff
-					+ " would exceed the Nyquist frequency="
-					+ nyquist
-					+ ". Try reducing the number of frequency bins."
-			);
-		}
+        fmin = fmin * Math.pow(2.0, tuning / (double) binsPerOctave);
 
-		if (resType == null) {
-			resType = "soxr_hq";
-		}
-		return null;
+        // Frequências, larguras, comprimentos e bases de cada oitava (do cache)
+        CqtPlan plan = CqtPlan.get(
+                sr, hopLength, fmin, nBins, binsPerOctave, intervals, gamma,
+                filterScale, norm, sparsity, window
+        );
 
         // =====================================================
         // Early downsample
@@ -391,73 +421,47 @@ public class Constantq {
                         sr,
                         hopLength,
                         resType,
-                        nOctaves,
-                        nyquist,
-                        filterCutoff,
+                        plan.nOctaves(),
+                        sr / 2.0,
+                        plan.filterCutoff(),
                         scale
                 );
 
-        y = dsResult.y;
-        sr = dsResult.sr;
-        hopLength = dsResult.hopLength;
-
         // =====================================================
-        // vqt_resp = []
+        // Uma resposta por oitava, da mais aguda para a mais grave
         // =====================================================
 
-        // Em Python será uma lista de respostas por oitava.
-        // Como ainda não sabemos exatamente o que será armazenado,
-        // usamos uma lista genérica de matrizes Complex.
+        List<ComplexMatrix> vqtResp = new ArrayList<>();
 
-        List<Complex[][]> vqtResp = new ArrayList<>();
+        double[] myY = dsResult.y;
 
-        // =====================================================
-        // my_y, my_sr, my_hop = y, sr, hop_length
-        // =====================================================
-
-        double[] myY = y;
-        double mySr = sr;
-        int myHop = hopLength;
+        for (int i = 0; i < plan.nOctaves(); i++) {
 
-        for (int i = 0; i < nOctaves; i++) {
+            CqtPlan.Octave octave = plan.octave(i);
 
-            int start;
-            int end;
+            vqtResp.add(cqtResponse(myY, octave.nFft, octave.hopLength, octave.fftBasis, padMode));
 
-            if (i == 0) {
-                start = freqs.length - nFilters;
-                end = freqs.length;
-            } else {
-                start = freqs.length - (nFilters * (i + 1));
-                end = freqs.length - (nFilters * i);
+            if (octave.downsampleAfter) {
+                myY = Audio.resample(myY, 2, 1, resType, true, true);
             }
+        }
 
-            // freqs_oct = freqs[sl]
-            double[] freqsOct =
-                    java.util.Arrays.copyOfRange(freqs, start, end);
-
-            // alpha_oct = alpha[sl]
-            double[] alphaOct =
-                    java.util.Arrays.copyOfRange(alpha, start, end);
-
-            VQTFilters.FilterResult result =
-                VQTFilters.vqtFilterFFT(
-                    mySr,
-                    freqsOct,
-                    filterScale,
-                    norm,
-                    sparsity,
-                    null,       // hopLength
-                    window,
-                    gamma,
-                    alphaOct
-                );
+        ComplexMatrix V = trimStack(vqtResp, nBins);
 
-            Complex[][] fftBasis = result.fftBasis;
-            int nFft = result.nFft;
+        if (scale) {
+            // Comprimentos na taxa depois do early downsample
+            double[] lengths = plan.lengths();
 
+            double[] data = V.getData();
+            for (int t = 0; t < V.cols(); t++) {
+                for (int k = 0; k < nBins; k++) {
+                    double factor = Math.sqrt(lengths[k]);
+                    data[V.index(k, t)] /= factor;
+                    data[V.index(k, t) + 1] /= factor;
+                }
+            }
         }
-	}
-
 
+        return V;
+    }
 }
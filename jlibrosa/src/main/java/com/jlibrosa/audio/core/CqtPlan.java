@@ -0,0 +1,346 @@
+package com.jlibrosa.audio.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+import com.jlibrosa.audio.Filters;
+import com.jlibrosa.audio.util.LruCache;
+import com.jlibrosa.audio.util.SparseComplexMatrix;
+
+/**
+ * Plano imutável da CQT/VQT: tudo o que vqt precisa e que não depende do
+ * sinal. Inclui as frequências e larguras relativas de cada bin, os
+ * comprimentos dos filtros, as taxas e hops de cada oitava e a base FFT
+ * esparsa de cada oitava (já re-escalada por sqrt(sr / sr da oitava)).
+ *
+ * Os planos ficam em cache por (sr, hop, fmin, n_bins, bins_per_octave,
+ * intervals, gamma, filter_scale, norm, sparsity, window) em um LruCache.
+ * Em clipes curtos, construir as bases custa mais que a própria
+ * transformada. As bases são SparseComplexMatrix (imutáveis) e os arrays
+ * só saem do plano como cópias, então o mesmo plano pode ser usado por
+ * várias threads.
+ */
+public final class CqtPlan {
+
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+
+    /**
+     * Filtros de uma oitava, na taxa de amostragem dessa oitava.
+     */
+    static final class Octave {
+        final double sr;
+        final int hopLength;
+        final int nFft;
+        final SparseComplexMatrix fftBasis;
+        // true quando o sinal é reamostrado pela metade antes da próxima oitava
+        final boolean downsampleAfter;
+
+        Octave(double sr, int hopLength, int nFft, SparseComplexMatrix fftBasis, boolean downsampleAfter) {
+            this.sr = sr;
+            this.hopLength = hopLength;
+            this.nFft = nFft;
+            this.fftBasis = fftBasis;
+            this.downsampleAfter = downsampleAfter;
+        }
+    }
+
+    private final int nBins;
+    private final int nOctaves;
+    private final double[] freqs;
+    private final double[] alpha;
+    private final double[] lengths;
+    private final double filterCutoff;
+    private final double earlySr;
+    private final int earlyHopLength;
+    private final Octave[] octaves;
+
+    private CqtPlan(Key key) {
+        this.nBins = key.nBins;
+        this.nOctaves = (int) Math.ceil((double) key.nBins / key.binsPerOctave);
+        int nFilters = Math.min(key.binsPerOctave, key.nBins);
+
+        this.freqs = IntervalFrequencies.intervalFrequencies(
+                key.nBins, key.fmin, key.intervals(), key.binsPerOctave, 0.0, true
+        );
+
+        if (key.nBins == 1) {
+            this.alpha = Constantq.etRelativeBw(key.binsPerOctave);
+        } else {
+            this.alpha = Filters.relativeBandwidth(freqs);
+        }
+
+        this.filterCutoff = Filters.waveletLengths(
+                freqs, key.sr, key.window, key.filterScale, key.gamma, alpha
+        ).fCutoff;
+
+        double nyquist = key.sr / 2.0;
+        if (filterCutoff > nyquist) {
+            throw new IllegalArgumentException(
+                    "Wavelet basis with max frequency="
+                    + filterCutoff
+                    + " would exceed the Nyquist frequency="
+                    + nyquist
+                    + ". Try reducing the number of frequency bins."
+            );
+        }
+
+        // Mesma conta de earlyDownsample, sem o sinal
+        int downsampleFactor = 1 << Constantq.earlyDownsampleCount(
+                nyquist, filterCutoff, key.hopLength, nOctaves
+        );
+        this.earlySr = key.sr / (double) downsampleFactor;
+        this.earlyHopLength = key.hopLength / downsampleFactor;
+
+        // Os comprimentos (para scale) são os da taxa depois do early downsample
+        this.lengths = Filters.waveletLengths(
+                freqs, earlySr, key.window, key.filterScale, key.gamma, alpha
+        ).lengths;
+
+        this.octaves = new Octave[nOctaves];
+        double mySr = earlySr;
+        int myHop = earlyHopLength;
+
+        for (int i = 0; i < nOctaves; i++) {
+
+            // sl = slice(-n_filters * (i + 1), -n_filters * i)
+            int start = Math.max(0, freqs.length - nFilters * (i + 1));
+            int end = freqs.length - nFilters * i;
+
+            Constantq.FilterResult filters = Constantq.vqtFilterFFT(
+                    mySr,
+                    Arrays.copyOfRange(freqs, start, end),
+                    key.filterScale,
+                    key.norm,
+                    key.sparsity,
+                    null,
+                    key.window,
+                    key.gamma,
+                    Arrays.copyOfRange(alpha, start, end)
+            );
+
+            // Re-escala os filtros para compensar a reamostragem
+            SparseComplexMatrix fftBasis = filters.fftBasis.scaled(Math.sqrt(earlySr / mySr));
+
+            boolean downsampleAfter = myHop % 2 == 0;
+            octaves[i] = new Octave(mySr, myHop, filters.nFft, fftBasis, downsampleAfter);
+
+            if (downsampleAfter) {
+                myHop /= 2;
+                mySr /= 2.0;
+            }
+        }
+    }
+
+    public int nBins() {
+        return nBins;
+    }
+
+    public int nOctaves() {
+        return nOctaves;
+    }
+
+    /**
+     * Frequências centrais de cada bin (cópia).
+     */
+    public double[] freqs() {
+        return freqs.clone();
+    }
+
+    /**
+     * Largura de banda relativa de cada bin (cópia).
+     */
+    public double[] alpha() {
+        return alpha.clone();
+    }
+
+    /**
+     * Comprimento de cada filtro na taxa depois do early downsample (cópia).
+     */
+    public double[] lengths() {
+        return lengths.clone();
+    }
+
+    public double filterCutoff() {
+        return filterCutoff;
+    }
+
+    /**
+     * Taxa de amostragem depois do early downsample.
+     */
+    public double earlySr() {
+        return earlySr;
+    }
+
+    /**
+     * hop_length depois do early downsample.
+     */
+    public int earlyHopLength() {
+        return earlyHopLength;
+    }
+
+    /**
+     * Tamanho da FFT da oitava (0 = a mais aguda).
+     */
+    public int nFft(int octave) {
+        return octaves[octave].nFft;
+    }
+
+    // Oitava i (0 = a mais aguda), para Constantq.vqt
+    Octave octave(int i) {
+        return octaves[i];
+    }
+
+    /**
+     * Elementos guardados na base esparsa da oitava.
+     */
+    public int nnz(int octave) {
+        return octaves[octave].fftBasis.nnz();
+    }
+
+    // -----------------------------
+    // Cache
+    // -----------------------------
+
+    private static final class Key {
+        private final int sr;
+        private final int hopLength;
+        private final double fmin;
+        private final int nBins;
+        private final int binsPerOctave;
+        // Nome dos intervalos ("equal", ...) ou, se null, as razões
+        private final String intervalsName;
+        private final double[] intervalRatios;
+        private final Double gamma;
+        private final double filterScale;
+        private final Double norm;
+        private final double sparsity;
+        private final String window;
+
+        Key(int sr, int hopLength, double fmin, int nBins, int binsPerOctave, String intervalsName,
+                double[] intervalRatios, Double gamma, double filterScale, Double norm, double sparsity,
+                String window) {
+            this.sr = sr;
+            this.hopLength = hopLength;
+            this.fmin = fmin;
+            this.nBins = nBins;
+            this.binsPerOctave = binsPerOctave;
+            this.intervalsName = intervalsName;
+            this.intervalRatios = intervalRatios;
+            this.gamma = gamma;
+            this.filterScale = filterScale;
+            this.norm = norm;
+            this.sparsity = sparsity;
+            this.window = window;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return sr == other.sr
+                    && hopLength == other.hopLength
+                    && Double.compare(fmin, other.fmin) == 0
+                    && nBins == other.nBins
+                    && binsPerOctave == other.binsPerOctave
+                    && Objects.equals(intervalsName, other.intervalsName)
+                    && Arrays.equals(intervalRatios, other.intervalRatios)
+                    && Objects.equals(gamma, other.gamma)
+                    && Double.compare(filterScale, other.filterScale) == 0
+                    && Objects.equals(norm, other.norm)
+                    && Double.compare(sparsity, other.sparsity) == 0
+                    && window.equals(other.window);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sr, hopLength, fmin, nBins, binsPerOctave, intervalsName,
+                    Arrays.hashCode(intervalRatios), gamma, filterScale, norm, sparsity, window);
+        }
+
+        // Argumento intervals de IntervalFrequencies
+        Object intervals() {
+            return intervalsName != null ? intervalsName : intervalRatios;
+        }
+    }
+
+    private static final LruCache<Key, CqtPlan> PLANS = new LruCache<Key, CqtPlan>(DEFAULT_MAX_ENTRIES);
+
+    /**
+     * Plano da CQT/VQT, do cache.
+     *
+     * @param fmin      frequência mínima já corrigida pelo tuning
+     * @param intervals "equal", "pythagorean", "ji3", "ji5", "ji7", ou as
+     *                  razões em [1, 2) como double[] ou Collection de Number
+     *                  (bins_per_octave passa a ser o número de razões)
+     * @throws IllegalArgumentException se os filtros passarem de Nyquist
+     */
+    public static CqtPlan get(
+            int sr,
+            int hopLength,
+            double fmin,
+            int nBins,
+            int binsPerOctave,
+            Object intervals,
+            Double gamma,
+            double filterScale,
+            Double norm,
+            double sparsity,
+            String window
+    ) {
+        String intervalsName = null;
+        double[] intervalRatios = null;
+        if (intervals instanceof String) {
+            intervalsName = (String) intervals;
+        } else if (intervals instanceof double[]) {
+            // Cópia: a chave não pode mudar depois de guardada
+            intervalRatios = ((double[]) intervals).clone();
+        } else if (intervals instanceof Collection<?>) {
+            Collection<?> values = (Collection<?>) intervals;
+            intervalRatios = new double[values.size()];
+            int i = 0;
+            for (Object value : values) {
+                intervalRatios[i++] = ((Number) value).doubleValue();
+            }
+        } else {
+            throw new IllegalArgumentException("intervals must be String, double[] or Collection");
+        }
+        if (intervalRatios != null) {
+            binsPerOctave = intervalRatios.length;
+        }
+        if (window == null) {
+            window = "hann";
+        }
+
+        Key key = new Key(sr, hopLength, fmin, nBins, binsPerOctave, intervalsName, intervalRatios, gamma,
+                filterScale, norm, sparsity, window);
+        CqtPlan plan = PLANS.get(key);
+        if (plan != null) {
+            return plan;
+        }
+        // Construído fora do cache; se outra thread guardou o mesmo plano nesse
+        // meio tempo, o já guardado é o que prevalece
+        return PLANS.putIfAbsent(key, new CqtPlan(key));
+    }
+
+    public static int getMaxEntries() {
+        return PLANS.getMaxEntries();
+    }
+
+    /**
+     * Define o número máximo de planos mantidos; os excedentes são descartados.
+     */
+    public static void setMaxEntries(int max) {
+        PLANS.setMaxEntries(max);
+    }
+
+    public static int size() {
+        return PLANS.size();
+    }
+
+    public static void clear() {
+        PLANS.clear();
+    }
+}
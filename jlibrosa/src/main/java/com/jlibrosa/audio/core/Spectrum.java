@@ -3,15 +3,73 @@ package com.jlibrosa.audio.core;
 import com.jlibrosa.audio.JLibrosa;
 import org.apache.commons.math3.complex.Complex;
 import org.jtransforms.fft.DoubleFFT_1D;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.ComplexTensor;
+import com.jlibrosa.audio.util.FFTPlanCache;
+import com.jlibrosa.audio.util.FrameView;
 import com.jlibrosa.audio.util.Utils;
+import com.jlibrosa.audio.util.WindowCache;
 import com.jlibrosa.audio.core.Spectrum;
-import java.util.Arrays;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 
 public class Spectrum {
 
+	/**
+	 * Número mínimo de frames de um trecho da STFT para que o cálculo seja
+	 * dividido entre as threads do ForkJoinPool. Abaixo disso os frames são
+	 * processados na thread chamadora.
+	 */
+	public static final int DEFAULT_PARALLEL_FRAME_THRESHOLD = 256;
+
+	private static volatile int parallelFrameThreshold = DEFAULT_PARALLEL_FRAME_THRESHOLD;
+
+	private static volatile ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+
+	public static int getParallelFrameThreshold() {
+		return parallelFrameThreshold;
+	}
+
+	/**
+	 * Define a partir de quantos frames a STFT é calculada em paralelo.
+	 * Integer.MAX_VALUE desliga o modo paralelo.
+	 */
+	public static void setParallelFrameThreshold(int threshold) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException("threshold must be positive");
+		}
+		parallelFrameThreshold = threshold;
+	}
+
+	private static volatile SpectrumTraceListener traceListener = SpectrumTraceListener.NO_OP;
+
+	public static SpectrumTraceListener getTraceListener() {
+		return traceListener;
+	}
+
+	/**
+	 * Instala o listener de diagnóstico de stft (null volta ao no-op padrão).
+	 */
+	public static void setTraceListener(SpectrumTraceListener listener) {
+		traceListener = listener == null ? SpectrumTraceListener.NO_OP : listener;
+	}
+
+	public static ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Pool usado no modo paralelo (padrão: ForkJoinPool.commonPool()).
+	 */
+	public static void setForkJoinPool(ForkJoinPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool must not be null");
+		}
+		forkJoinPool = pool;
+	}
+
 	/**
 	 * Retrieve a magnitude or power spectrogram using JLibrosa.
 	 *
@@ -41,15 +99,15 @@ public class Spectrum {
 		}
 
 		JLibrosa jLibrosa = new JLibrosa();
-		Complex[][] stftComplex = jLibrosa.generateSTFTFeatures(yFloat, sampleRate, n_fft);
+		ComplexMatrix stftComplex = jLibrosa.generateSTFTMatrix(yFloat, sampleRate, n_fft);
 
-		int rows = stftComplex.length;
-		int cols = stftComplex[0].length;
+		int rows = stftComplex.rows();
+		int cols = stftComplex.cols();
 		double[][] specOut = new double[rows][cols];
 
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < cols; j++) {
-				double mag = stftComplex[i][j].abs(); // magnitude
+				double mag = stftComplex.abs(i, j); // magnitude
 				if (power == 1.0) {
 					specOut[i][j] = mag; // magnitude
 				} else if (power == 2.0) {
@@ -129,7 +187,7 @@ public class Spectrum {
 		// ========================================
 		// Chamada do SEU STFT (já fiel ao Python)
 		// ========================================
-		Complex[][] stftMatrix = stft(
+		ComplexMatrix stftMatrix = stftMatrix(
 				y,
 				n_fft,
 				hop_length,
@@ -139,8 +197,8 @@ public class Spectrum {
 				pad_mode
 		);
 
-		int rows = stftMatrix.length;
-		int cols = stftMatrix[0].length;
+		int rows = stftMatrix.rows();
+		int cols = stftMatrix.cols();
 
 		double[][] specOut = new double[rows][cols];
 
@@ -149,7 +207,7 @@ public class Spectrum {
 		// ========================================
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < cols; j++) {
-				double mag = stftMatrix[i][j].abs();
+				double mag = stftMatrix.abs(i, j);
 				specOut[i][j] = Math.pow(mag, power);
 			}
 		}
@@ -162,14 +220,29 @@ public class Spectrum {
 	 * similar à `librosa.stft` (Python) para Java.
 	 *
 	 * Observações:
-	 * - Esta implementação inicial aceita sinal mono (double[]). Para multicanal,
-	 *   precisamos adaptar o método para double[][] ou sobrecarregar a função.
+	 * - Sinais multicanal (double[][]) usam stftMatrix(double[][], ...) ou stftTensor.
 	 * - Alguns parâmetros do Python (dtype, out) não têm correspondência direta em Java
 	 *   e serão ignorados/ajustados conforme necessário.
 	 *
-	 * Próximos passos: calcular janela, padding, framing e aplicar FFT (rfft).
+	 * Adaptador para o formato antigo Complex[][]; ver stftMatrix.
 	 */
 	public static Complex[][] stft(
+			double[] y,
+			Integer n_fft,
+			Integer hop_length,
+			Integer win_length,
+			String window,
+			boolean center,
+			String pad_mode
+			) throws IllegalArgumentException {
+		return stftMatrix(y, n_fft, hop_length, win_length, window, center, pad_mode).toComplexArray();
+	}
+
+	/**
+	 * STFT mono devolvendo uma ComplexMatrix [freqBins][frames], sem um objeto
+	 * Complex por bin. Cada frame é uma coluna contígua da matriz.
+	 */
+	public static ComplexMatrix stftMatrix(
 			double[] y,
 			Integer n_fft,                // tamanho da FFT (padrão em librosa: 2048)
 			Integer hop_length,       // número de amostras entre colunas de STFT (nullable)
@@ -178,6 +251,201 @@ public class Spectrum {
 			boolean center,           // se true, centraliza frames com padding
 			String pad_mode           // modo de padding (ex: "constant")
 			) throws IllegalArgumentException {
+		return stftMatrix(y, n_fft, hop_length, win_length, window, center, pad_mode, null);
+	}
+
+	/**
+	 * Mesma STFT, escrita em uma matriz já alocada pelo chamador (por exemplo,
+	 * reaproveitada entre chamadas). Nenhuma alocação é feita por frame.
+	 *
+	 * @param out matriz [1 + n_fft/2][frames] que recebe o resultado, ou null
+	 *            para alocar uma nova
+	 * @return out (ou a matriz nova)
+	 */
+	public static ComplexMatrix stftMatrix(
+			double[] y,
+			Integer n_fft,
+			Integer hop_length,
+			Integer win_length,
+			String window,
+			boolean center,
+			String pad_mode,
+			ComplexMatrix out
+			) throws IllegalArgumentException {
+		StftLayout layout = layout(y, n_fft, hop_length, win_length, window, center, pad_mode);
+
+     	// Matriz [frequencias][frames]; todas as colunas são preenchidas abaixo
+		ComplexMatrix stftMatrix = out;
+		if (stftMatrix == null) {
+			stftMatrix = new ComplexMatrix(layout.freqBins, layout.totalFrames);
+		} else if (stftMatrix.rows() != layout.freqBins || stftMatrix.cols() != layout.totalFrames) {
+			throw new IllegalArgumentException("Output matrix must be " + layout.freqBins + " x " + layout.totalFrames
+					+ ", got " + stftMatrix.rows() + " x " + stftMatrix.cols());
+		}
+
+		fill(layout, stftMatrix);
+
+		return stftMatrix;
+	}
+
+	/**
+	 * Inverse short-time Fourier transform (iSTFT), como `librosa.istft`.
+	 *
+	 * Cada coluna passa por uma única FFT real inversa (realInverse do meio
+	 * espectro empacotado), é multiplicada pela janela e somada no sinal de
+	 * saída (overlap-add). Cada amostra é então dividida pela soma dos
+	 * quadrados da janela sobreposta (window_sumsquare) onde ela não é ~zero;
+	 * essa soma é calculada amostra a amostra, junto com o overlap-add, sem
+	 * um array do tamanho do sinal.
+	 *
+	 * Acima de parallelFrameThreshold frames, o sinal de saída é dividido em
+	 * trechos entre as threads do ForkJoinPool. Cada trecho soma os frames que
+	 * o tocam, em ordem crescente (os frames da borda entre dois trechos são
+	 * transformados pelos dois), então o resultado é o mesmo do modo sequencial.
+	 *
+	 * @param stft_matrix [1 + n_fft/2][frames]; n_fft = 2 * (linhas - 1)
+	 * @param hop_length  nullable (padrão: win_length / 4)
+	 * @param win_length  nullable (padrão: n_fft)
+	 * @param window      nullable (padrão: "hann")
+	 * @param center      se true, remove as n_fft/2 amostras do padding de cada lado
+	 * @param length      nullable; se informado, a saída tem exatamente length amostras
+	 */
+	public static double[] istft(
+			ComplexMatrix stft_matrix,
+			Integer hop_length,
+			Integer win_length,
+			String window,
+			boolean center,
+			Integer length
+			) throws IllegalArgumentException {
+		int n_fft = 2 * (stft_matrix.rows() - 1);
+		if (n_fft <= 0) {
+			throw new IllegalArgumentException("STFT matrix must have at least 2 frequency bins");
+		}
+		if (win_length == null) {
+			win_length = n_fft;
+		}
+		if (hop_length == null) {
+			hop_length = win_length / 4;
+		}
+		if (hop_length <= 0) {
+			throw new IllegalArgumentException("hop_length must be a positive integer");
+		}
+		if (length != null && length < 0) {
+			throw new IllegalArgumentException("length must be non-negative");
+		}
+		if (window == null) {
+			window = "hann";
+		}
+
+		int n_frames = stft_matrix.cols();
+		if (length != null) {
+			// Só os frames que chegam até length amostras (com o padding de center)
+			long padded_length = center ? (long) length + 2 * (n_fft / 2) : length;
+			n_frames = (int) Math.min(n_frames, (padded_length + hop_length - 1) / hop_length);
+		}
+
+		double[] y = new double[0];
+		if (n_frames > 0) {
+			WindowCache.Window ifft_window = WindowCache.get(window, win_length, n_fft, true);
+			y = new double[n_fft + hop_length * (n_frames - 1)];
+			overlapAdd(stft_matrix, n_frames, hop_length, ifft_window, FFTPlanCache.doubleFFT(n_fft), y);
+		}
+
+		int start = center ? n_fft / 2 : 0;
+		int size;
+		if (length != null) {
+			size = length;
+		} else if (center) {
+			size = Math.max(0, y.length - 2 * start);
+		} else {
+			size = y.length;
+		}
+		// Recorte (e zeros à direita se faltar sinal), como librosa.util.fix_length
+		double[] out = new double[size];
+		System.arraycopy(y, Math.min(start, y.length), out, 0, Math.max(0, Math.min(size, y.length - start)));
+		return out;
+	}
+
+	/**
+	 * Overlap-add dos frames [0, n_frames) de stft_matrix em y, já com a janela
+	 * de síntese aplicada e normalizado pela soma dos quadrados da janela.
+	 */
+	private static void overlapAdd(ComplexMatrix stft_matrix, int n_frames, int hop_length,
+			WindowCache.Window ifft_window, DoubleFFT_1D fft, double[] y) {
+		ForkJoinPool pool = forkJoinPool;
+		int n_fft = ifft_window.length();
+
+		if (n_frames >= parallelFrameThreshold && pool.getParallelism() > 1) {
+			// Trechos de pelo menos 4x os frames que se sobrepõem, para limitar
+			// os frames transformados duas vezes
+			int overlap = (n_fft + hop_length - 1) / hop_length;
+			int grain = Math.max(4 * overlap, n_frames / (4 * pool.getParallelism()));
+			invoke(pool, new OverlapAddTask(stft_matrix, 0, n_frames, n_frames, grain, hop_length, ifft_window, fft, y));
+		} else {
+			overlapAddRange(stft_matrix, 0, y.length, n_frames, hop_length, ifft_window, fft, y);
+		}
+	}
+
+	/**
+	 * Soma em y[from, to) a contribuição de todos os frames que tocam esse
+	 * trecho, em ordem crescente de frame, e divide cada amostra pela soma
+	 * dos quadrados da janela nesses mesmos frames.
+	 */
+	private static void overlapAddRange(ComplexMatrix stft_matrix, int from, int to, int n_frames, int hop_length,
+			WindowCache.Window ifft_window, DoubleFFT_1D fft, double[] y) {
+		int n_fft = ifft_window.length();
+		double[] data = stft_matrix.getData();
+
+		// Buffer de trabalho da FFT, um por thread
+		double[] frame = fftScratch(n_fft);
+
+		int first = from < n_fft ? 0 : (from - n_fft) / hop_length + 1;
+		int last = Math.min(n_frames, (to + hop_length - 1) / hop_length);
+		for (int t = first; t < last; t++) {
+			Utils.packRealInverse(data, stft_matrix.columnOffset(t), n_fft, frame);
+			// irfft: realInverse com scale = true divide por n_fft
+			fft.realInverse(frame, true);
+
+			int offset = t * hop_length;
+			int begin = Math.max(0, from - offset);
+			int end = Math.min(n_fft, to - offset);
+			for (int i = begin; i < end; i++) {
+				y[offset + i] += frame[i] * ifft_window.get(i);
+			}
+		}
+
+		// Normalização (window_sumsquare): os frames que tocam a amostra n são
+		// [max(0, (n - n_fft) / hop + 1), min(n_frames - 1, n / hop)], somados em
+		// ordem crescente como no librosa
+		for (int n = from; n < to; n++) {
+			int t0 = n < n_fft ? 0 : (n - n_fft) / hop_length + 1;
+			int t1 = Math.min(n_frames - 1, n / hop_length);
+			double sum = 0.0;
+			for (int t = t0; t <= t1; t++) {
+				sum += ifft_window.squared(n - t * hop_length);
+			}
+			if (sum > Double.MIN_NORMAL) {
+				y[n] /= sum;
+			}
+		}
+	}
+
+	/**
+	 * Validação dos parâmetros, janela, plano FFT e divisão dos frames de y
+	 * (início com padding, meio e fim com padding). Só a validação depende dos
+	 * valores de y; o resto depende apenas de y.length, então o mesmo layout
+	 * serve para outros canais de mesmo tamanho (StftLayout.over).
+	 */
+	private static StftLayout layout(
+			double[] y,
+			Integer n_fft,
+			Integer hop_length,
+			Integer win_length,
+			String window,
+			boolean center,
+			String pad_mode
+			) throws IllegalArgumentException {
 		// ------------- validações iniciais e defaults ---------------
 
 //		if (y == null) {
@@ -217,41 +485,38 @@ public class Spectrum {
 
 		Utils.validAudio(y);
 
-		double[] fft_window = Utils.getWindow(window, win_length, true);
-		System.out.println("fft_window gerado com sucesso! Tamanho = " + fft_window.length);
-		System.out.println("Primeiros valores: " + Arrays.toString(Arrays.copyOf(fft_window, Math.min(5, fft_window.length))));
+		SpectrumTraceListener trace = traceListener;
 
-		//Pad the window out to n_fft size
-		fft_window = Utils.padCenter(fft_window, n_fft);
-		System.out.println("Novo tamanho do fft_window = " + fft_window.length);
+		// Janela já centralizada em n_fft, vinda do cache (imutável)
+		WindowCache.Window fft_window = WindowCache.get(window, win_length, n_fft, true);
 
-		fft_window = Utils.padCenter(fft_window, n_fft);
+		trace.onWindow(window, win_length, n_fft, fft_window);
 		
 		int start;
 	    int extra;
 
-		double[][] yFramesPreTrim = null;
-		double[][] yFramesPost = null;
+		FrameView yFramesPreTrim = null;
+		FrameView yFramesPost = null;
+		FrameView yFrames = null;
+
+		// O padding é aplicado virtualmente pelos FrameView, sem copiar o sinal
+		FrameView.PadMode padMode = FrameView.PadMode.CONSTANT;
 		
 		if (center) {
 
 			// Avisos análogos ao librosa:
-			if (center && (pad_mode.equals("wrap") || pad_mode.equals("maximum")
-						|| pad_mode.equals("mean") || pad_mode.equals("median") || pad_mode.equals("minimum"))) {
+			if (pad_mode.equals("wrap") || pad_mode.equals("maximum")
+						|| pad_mode.equals("mean") || pad_mode.equals("median") || pad_mode.equals("minimum")) {
 				throw new IllegalArgumentException("pad_mode='" + pad_mode + "' is not supported by this STFT implementation.");
 						}
 
-			if (center && n_fft > y.length) {
-				System.err.printf("Warning: n_fft=%d is larger than input length=%d%n", n_fft, y.length);
-			} else if (!center && n_fft > y.length) {
-					throw new IllegalArgumentException(String.format( "n_fft=%d is too large for uncentered analysis of input signal of length=%d", n_fft, y.length));
+			padMode = FrameView.PadMode.fromString(pad_mode);
+			if (padMode == null) {
+				throw new IllegalArgumentException("pad_mode='" + pad_mode + "' is not supported by this STFT implementation.");
 			}
-			
-			int ndim = 1; // hoje é mono, mas pode virar 2 depois
-			List<int[]> padding = new ArrayList<>();
 
-			for (int i = 0; i < ndim; i++) {
-				padding.add(new int[]{0, 0});
+			if (n_fft > y.length) {
+				trace.onWarning(String.format("n_fft=%d is larger than input length=%d", n_fft, y.length));
 			}
 
 			int start_k = (int) Math.ceil((double) (n_fft / 2) / hop_length);
@@ -263,114 +528,32 @@ public class Spectrum {
 				// Caso simples: padding simétrico total (equivalente ao np.pad do librosa)
 				start = 0;
 				extra = 0;
-				y = Utils.pad1D(y, n_fft / 2, n_fft / 2, 0.0);
+				yFrames = new FrameView(y, 0, y.length, n_fft / 2, n_fft / 2, padMode, n_fft, hop_length);
 
-         		// 🔍 DEBUG TEMPORÁRIO
-				System.out.println("=== DEBUG PAD1D ===");
-				System.out.println("Original length (sem pad): " + (y.length - n_fft));
-				System.out.println("Padded length: " + y.length);
-				System.out.println("Pad left/right: " + (n_fft / 2));
-
-				System.out.println("Primeiros 10 valores:");
-				for (int i = 0; i < 10; i++) {
-					System.out.printf("%.6f ", y[i]);
-				}
-				System.out.println();
-
-				System.out.println("Últimos 10 valores:");
-				for (int i = y.length - 10; i < y.length; i++) {
-					System.out.printf("%.6f ", y[i]);
-				}
-				System.out.println();
+				trace.onPadding(SpectrumTraceListener.PaddingDecision.FULL, pad_mode, y.length, start, start_k, tail_k);
 			}else {
 				// Caso geral: padding parcial (librosa otimizado)
-				System.out.println("=== DEBUG PAD1D Else início ===");
-
 
 				// "Middle" do sinal começa aqui
 				start = start_k * hop_length - n_fft / 2;
 
+				trace.onPadding(SpectrumTraceListener.PaddingDecision.PARTIAL, pad_mode, y.length, start, start_k, tail_k);
+
 				// Calcula o fim do trecho inicial
 				int end = (start_k - 1) * hop_length - n_fft / 2 + n_fft + 1;
 
-				// Recorta o início do sinal
-				double[] yPreRaw = Arrays.copyOfRange(y, 0, end);
-
-				// Padding somente à esquerda
-				double[] y_pre = Utils.pad1D(yPreRaw, n_fft / 2, 0, 0.0);
-
-				// y_pre será usado para gerar os primeiros frames
-				// 🔍 DEBUG ELSE (equivalente ao debug do librosa)
-				System.out.println("=== DEBUG ELSE (partial padding) ===");
-				System.out.println("y.length (original): " + y.length);
-				System.out.println("start_k: " + start_k);
-				System.out.println("hop_length: " + hop_length);
-				System.out.println("n_fft: " + n_fft);
-
-				System.out.println("start (offset): " + start);
-				System.out.println("end (raw slice): " + end);
-
-				System.out.println("yPreRaw.length: " + yPreRaw.length);
-				System.out.println("y_pre.length (after pad): " + y_pre.length);
-				System.out.println("Expected y_pre.length: " + (yPreRaw.length + n_fft / 2));
-
-				System.out.println("Pad left: " + (n_fft / 2) + " | Pad right: 0");
-
-				System.out.println("Primeiros 10 valores de y_pre:");
-				for (int i = 0; i < 10; i++) {
-					System.out.printf("%.6f ", y_pre[i]);
-				}
-				System.out.println();
-
-				System.out.println("Valores em torno da transição pad → sinal:");
-				int t = n_fft / 2;
-				for (int i = t - 5; i < t + 5; i++) {
-					System.out.printf("%.6f ", y_pre[i]);
-				}
-				System.out.println();
-
-				// ===============================
-				// Continuação do ELSE (Librosa)
-				// ===============================
-
-				// Framing do sinal parcialmente padded
-				double[][] yFramesPre = Utils.frame(y_pre, n_fft, hop_length);
+				// y_pre = pad(y[:end], (n_fft//2, 0)): início do sinal com padding
+				// somente à esquerda, lido direto de y
+				FrameView yFramesPre = new FrameView(y, 0, end, n_fft / 2, 0, padMode, n_fft, hop_length);
 
 				// Trim para manter apenas os primeiros start_k frames
-				int framesToKeep = Math.min(start_k, yFramesPre.length);
-				yFramesPreTrim = new double[framesToKeep][n_fft];
-
-				for (int i = 0; i < framesToKeep; i++) {
-					yFramesPreTrim[i] = yFramesPre[i];
-				}
+				int framesToKeep = Math.min(start_k, yFramesPre.numFrames());
+				yFramesPreTrim = yFramesPre.limit(framesToKeep);
 
 				// Quantidade de frames extras vindos do "head"
-				extra = yFramesPreTrim.length;
-
-				// ===============================
-				// DEBUG — equivalente ao Librosa
-				// ===============================
-				System.out.println("=== DEBUG ELSE (framing pre) ===");
-				System.out.println("y_pre.length: " + y_pre.length);
-				System.out.println("n_fft: " + n_fft);
-				System.out.println("hop_length: " + hop_length);
-				System.out.println("Total frames (before trim): " + yFramesPre.length);
-				System.out.println("start_k: " + start_k);
-				System.out.println("Frames kept (after trim): " + yFramesPreTrim.length);
-				System.out.println("extra: " + extra);
-
-				System.out.println("Primeiro frame (primeiros 10 valores):");
-				for (int i = 0; i < 10; i++) {
-					System.out.printf("%.6f ", yFramesPreTrim[0][i]);
-				}
-				System.out.println();
+				extra = yFramesPreTrim.numFrames();
 
-				System.out.println("Último frame (últimos 10 valores):");
-				for (int i = n_fft - 10; i < n_fft; i++) {
-					System.out.printf("%.6f ", yFramesPreTrim[framesToKeep - 1][i]);
-				}
-				System.out.println();
-				
+				trace.onHeadFrames(yFramesPre.paddedLength(), yFramesPre.numFrames(), framesToKeep);
 
 				// Determine if we have any frames that will fit inside the tail pad
 				if (tail_k * hop_length - n_fft / 2 + n_fft <= y.length + n_fft / 2) {
@@ -385,52 +568,21 @@ public class Spectrum {
 						startPost = 0; // segurança extra
 					}
 
-					double[] yPostRaw = new double[y.length - startPost];
-					System.arraycopy(y, startPost, yPostRaw, 0, yPostRaw.length);
+					int postLength = y.length - startPost;
 
-					// Padding somente à direita
-					double[] y_post = Utils.pad1D(yPostRaw, padLeft, padRight, 0.0);
-
-					// Framing
-					yFramesPost = Utils.frame(y_post, n_fft, hop_length);
+					// Padding somente à direita + framing, lidos direto de y
+					yFramesPost = new FrameView(y, startPost, postLength, padLeft, padRight, padMode, n_fft, hop_length);
 
 					// How many extra frames do we have from the tail?
-					extra += yFramesPost.length;
-
-					// ================= DEBUG OPCIONAL =================
-					System.out.println("=== DEBUG ELSE (tail padding) ===");
-					System.out.println("Condition passed for tail padding");
-					System.out.println("startPost: " + startPost);
-					System.out.println("yPostRaw.length: " + yPostRaw.length);
-					System.out.println("y_post.length (after pad): " + y_post.length);
-					System.out.println("Frames from tail: " + yFramesPost.length);
-					System.out.println("extra (updated): " + extra);
-
-					System.out.println("Primeiros 10 valores de y_post:");
-					for (int i = 0; i < Math.min(10, y_post.length); i++) {
-						System.out.printf("%.6f ", y_post[i]);
-					}
-					System.out.println();
+					extra += yFramesPost.numFrames();
 
-					System.out.println("Últimos 10 valores de y_post:");
-					for (int i = Math.max(0, y_post.length - 10); i < y_post.length; i++) {
-						System.out.printf("%.6f ", y_post[i]);
-					}
-					System.out.println();
+					trace.onTailFrames(startPost, yFramesPost.paddedLength(), yFramesPost.numFrames());
 				}else {
 					// Caso especial: nenhum frame válido no tail
-					yFramesPost = new double[yFramesPreTrim.length][0];
-
-
-					// ===============================
-					// DEBUG — equivalente ao Librosa
-					// ===============================
-					System.out.println("=== DEBUG ELSE (empty tail frames) ===");
-					System.out.println("Nenhum frame válido no tail");
-					System.out.println("yFramesPreTrim.shape: [" 
-						+ yFramesPreTrim.length + " x " + n_fft + "]");
-					System.out.println("yFramesPost.shape: [" 
-						+ yFramesPost.length + " x " + n_fft + "]");
+					// (equivalente a np.empty_like(y_frames_pre[..., :0]): zero frames)
+					yFramesPost = yFramesPreTrim.limit(0);
+
+					trace.onTailFrames(y.length, 0, 0);
 				}
 			}
 		}else {
@@ -448,168 +600,241 @@ public class Spectrum {
 
 			// We have no extra frames
 			extra = 0;
-		}
 
-		DoubleFFT_1D fft = new DoubleFFT_1D(n_fft);
+			trace.onPadding(SpectrumTraceListener.PaddingDecision.NONE, pad_mode, y.length, start, 0, 0);
+		}
 
-		// No librosa, o dtype é passado como parâmetro com valor default none.
-		// Aqui, não passamos dtype como parâmetro, sempre consideramos que o valor deste é none.
-		// if dtype is None:
-        //   dtype = util.dtype_r2c(y.dtype)
-		String dtype = Utils.dtypeR2C(double.class); // "complex128"
+		DoubleFFT_1D fft = FFTPlanCache.doubleFFT(n_fft);
 
 		// Aqui só é considerado aúdio mono.		
-		double[] ySliced = Arrays.copyOfRange(y, start, y.length);
-		double[][] yFrames = Utils.frame(ySliced, n_fft, hop_length);
-
-		int freqBins = 1 + n_fft / 2;
-		int totalFrames = yFrames.length + extra;
-
-
-     	// Usando array bidimensional [frequencias][frames]
-		Complex[][] stftMatrix = new Complex[freqBins][totalFrames];
-
-		// Inicializando com zeros
-		for (int i = 0; i < freqBins; i++) {
-			for (int j = 0; j < totalFrames; j++) {
-				stftMatrix[i][j] = Complex.ZERO;
-			}
+		// Frames de y[start:], lidos direto de y (sem copiar o trecho nem os frames).
+		// No caso de padding total, yFrames já inclui o padding virtual dos dois lados.
+		if (yFrames == null) {
+			yFrames = new FrameView(y, start, y.length - start, 0, 0, n_fft, hop_length);
 		}
 
-		int nFrames = yFrames.length;
-
+		int freqBins = 1 + n_fft / 2;
+		int totalFrames = yFrames.numFrames() + extra;
 
+		int headFrames = yFramesPreTrim == null ? 0 : yFramesPreTrim.numFrames();
+		int tailFrames = yFramesPost == null ? 0 : yFramesPost.numFrames();
 
-		System.out.println("=== DEBUG SHAPE STFT ===");
-		System.out.println("n_fft: " + n_fft);
-		System.out.println("freqBins (1 + n_fft/2): " + freqBins);
-		System.out.println("Frames centrais (yFrames.length): " + nFrames);
-		System.out.println("Frames extras (extra): " + extra);
-		System.out.println("Total frames (shape[-1]): " + totalFrames);
-		System.out.println("STFT shape: [" + freqBins + " x " + totalFrames + "]");
+		trace.onShape(freqBins, headFrames, yFrames.numFrames(), tailFrames);
 
+		return new StftLayout(fft_window, fft, headFrames > 0 ? yFramesPreTrim : null, yFrames,
+				tailFrames > 0 ? yFramesPost : null, freqBins, totalFrames);
+	}
 
-		// ===============================
-		// OFFSETS
-		// ===============================
+	/**
+	 * Preenche out ([freqBins][totalFrames]) com os frames do layout: início nas
+	 * primeiras colunas, fim nas últimas e o meio entre eles.
+	 */
+	private static void fill(StftLayout layout, ComplexMatrix out) {
 		int offStart = 0;
-		int offEnd = 0;
 
 		// ===============================
 		// FILL WARM-UP (HEAD)
 		// ===============================
-		if (center && yFramesPreTrim != null && yFramesPreTrim.length > 0) {
-
-			offStart = yFramesPreTrim.length;
-
-			System.out.println("=== DEBUG FILL WARMUP ===");
-			System.out.println("offStart (extra frames): " + offStart);
-
-			for (int frameIndex = 0; frameIndex < offStart; frameIndex++) {
-
-				double[] frame = yFramesPreTrim[frameIndex];
-
-				double[] windowed = new double[n_fft];
-				for (int i = 0; i < n_fft; i++) {
-					windowed[i] = frame[i] * fft_window[i];
-				}
-
-				double[] fftBuffer = new double[2 * n_fft];
-				System.arraycopy(windowed, 0, fftBuffer, 0, n_fft);
-
-				fft.realForwardFull(fftBuffer);
-
-				for (int k = 0; k < freqBins; k++) {
-					stftMatrix[k][frameIndex] =
-						new Complex(fftBuffer[2 * k], fftBuffer[2 * k + 1]);
-				}
-			}
+		if (layout.head != null) {
+			offStart = layout.head.numFrames();
+			fillFrames(layout.head, 0, layout.window, layout.fft, out);
 		}
 
 		// ===============================
 		// FILL TAIL
 		// ===============================
-		if (center && yFramesPost != null && yFramesPost.length > 0) {
+		if (layout.tail != null) {
+			int startCol = layout.totalFrames - layout.tail.numFrames();
+			fillFrames(layout.tail, startCol, layout.window, layout.fft, out);
+		}
 
-			offEnd = yFramesPost.length;
-			int startCol = totalFrames - offEnd;
+		// ===============================
+		// FILL MIDDLE (FRAMES CENTRAIS)
+		// ===============================
+		fillFrames(layout.middle, offStart, layout.window, layout.fft, out);
+	}
 
-			System.out.println("=== DEBUG FILL TAIL ===");
-			System.out.println("offEnd (tail frames): " + offEnd);
+	/**
+	 * Estado de uma STFT que não depende dos valores do sinal: janela, plano FFT,
+	 * frames do início, do meio e do fim, e o shape da saída.
+	 */
+	private static final class StftLayout {
+		final WindowCache.Window window;
+		final DoubleFFT_1D fft;
+		final FrameView head;
+		final FrameView middle;
+		final FrameView tail;
+		final int freqBins;
+		final int totalFrames;
+
+		StftLayout(WindowCache.Window window, DoubleFFT_1D fft, FrameView head, FrameView middle, FrameView tail,
+				int freqBins, int totalFrames) {
+			this.window = window;
+			this.fft = fft;
+			this.head = head;
+			this.middle = middle;
+			this.tail = tail;
+			this.freqBins = freqBins;
+			this.totalFrames = totalFrames;
+		}
 
-			for (int frameIndex = 0; frameIndex < offEnd; frameIndex++) {
+		/**
+		 * Mesmo layout sobre outro sinal de mesmo tamanho.
+		 */
+		StftLayout over(double[] y) {
+			return new StftLayout(window, fft, head == null ? null : head.over(y), middle.over(y),
+					tail == null ? null : tail.over(y), freqBins, totalFrames);
+		}
+	}
 
-				double[] frame = yFramesPost[frameIndex];
+	/**
+	 * Aplica janela + FFT em cada frame e grava o resultado nas colunas
+	 * [startCol, startCol + frames.numFrames()) de out. Cada frame é independente,
+	 * então acima de parallelFrameThreshold os frames são divididos entre as
+	 * threads do ForkJoinPool, cada uma escrevendo em colunas distintas.
+	 */
+	private static void fillFrames(FrameView frames, int startCol, WindowCache.Window fft_window,
+			DoubleFFT_1D fft, ComplexMatrix out) {
+		ForkJoinPool pool = forkJoinPool;
 
-				double[] windowed = new double[n_fft];
-				for (int i = 0; i < n_fft; i++) {
-					windowed[i] = frame[i] * fft_window[i];
-				}
+		int nFrames = frames.numFrames();
 
-				double[] fftBuffer = new double[2 * n_fft];
-				System.arraycopy(windowed, 0, fftBuffer, 0, n_fft);
+		if (nFrames >= parallelFrameThreshold && pool.getParallelism() > 1) {
+			int grain = Math.max(1, nFrames / (4 * pool.getParallelism()));
+			invoke(pool, new FrameFillTask(frames, 0, nFrames, grain, startCol, fft_window, fft, out));
+		} else {
+			fillFrameRange(frames, 0, nFrames, startCol, fft_window, fft, out);
+		}
+	}
 
-				fft.realForwardFull(fftBuffer);
+	private static void fillFrameRange(FrameView frames, int from, int to, int startCol,
+			WindowCache.Window fft_window, DoubleFFT_1D fft, ComplexMatrix out) {
+		int n_fft = fft_window.length();
+		double[] outData = out.getData();
 
-				int colIndex = startCol + frameIndex;
+		// Buffer de trabalho da FFT, um por thread
+		double[] fftBuffer = fftScratch(n_fft);
 
-				for (int k = 0; k < freqBins; k++) {
-					stftMatrix[k][colIndex] =
-						new Complex(fftBuffer[2 * k], fftBuffer[2 * k + 1]);
-				}
-			}
+		for (int frameIndex = from; frameIndex < to; frameIndex++) {
+			frames.windowedFrame(frameIndex, fft_window, fftBuffer);
+
+			// rfft: só o meio espectro (1 + n_fft/2 bins), empacotado em n_fft posições
+			fft.realForward(fftBuffer);
+
+			Utils.unpackRealForward(fftBuffer, n_fft, outData, out.columnOffset(startCol + frameIndex));
 		}
+	}
 
-		// ===============================
-		// FILL MIDDLE (FRAMES CENTRAIS)
-		// ===============================
-		int middleStart = offStart;
+	/**
+	 * Executa a tarefa no pool; se a thread atual já é do pool (ex: frames de um
+	 * canal da STFT multicanal), a tarefa é dividida ali mesmo, sem bloquear um
+	 * worker esperando outro.
+	 */
+	private static void invoke(ForkJoinPool pool, ForkJoinTask<?> task) {
+		if (ForkJoinTask.getPool() == pool) {
+			task.invoke();
+		} else {
+			pool.invoke(task);
+		}
+	}
 
-		for (int frameIndex = 0; frameIndex < yFrames.length; frameIndex++) {
+	private static final ThreadLocal<double[]> FFT_SCRATCH = new ThreadLocal<double[]>();
 
-			int colIndex = middleStart + frameIndex;
+	/**
+	 * Buffer de trabalho da thread atual com pelo menos n posições.
+	 */
+	private static double[] fftScratch(int n) {
+		double[] buffer = FFT_SCRATCH.get();
+		if (buffer == null || buffer.length < n) {
+			buffer = new double[n];
+			FFT_SCRATCH.set(buffer);
+		}
+		return buffer;
+	}
 
-			double[] frame = yFrames[frameIndex];
+	/**
+	 * Divide o intervalo de frames [from, to) ao meio até atingir grain frames.
+	 */
+	private static final class FrameFillTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FrameView frames;
+		private final int from;
+		private final int to;
+		private final int grain;
+		private final int startCol;
+		private final WindowCache.Window fft_window;
+		private final DoubleFFT_1D fft;
+		private final ComplexMatrix out;
+
+		FrameFillTask(FrameView frames, int from, int to, int grain, int startCol,
+				WindowCache.Window fft_window, DoubleFFT_1D fft, ComplexMatrix out) {
+			this.frames = frames;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.startCol = startCol;
+			this.fft_window = fft_window;
+			this.fft = fft;
+			this.out = out;
+		}
 
-			double[] windowed = new double[n_fft];
-			for (int i = 0; i < n_fft; i++) {
-				windowed[i] = frame[i] * fft_window[i];
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				fillFrameRange(frames, from, to, startCol, fft_window, fft, out);
+				return;
 			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new FrameFillTask(frames, from, mid, grain, startCol, fft_window, fft, out),
+					new FrameFillTask(frames, mid, to, grain, startCol, fft_window, fft, out));
+		}
+	}
 
-			double[] fftBuffer = new double[2 * n_fft];
-			System.arraycopy(windowed, 0, fftBuffer, 0, n_fft);
-
-			fft.realForwardFull(fftBuffer);
+	/**
+	 * Divide os frames [from, to) ao meio até atingir grain frames; cada folha
+	 * escreve só nas amostras y[from * hop_length, to * hop_length) (a última
+	 * vai até o fim de y).
+	 */
+	private static final class OverlapAddTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ComplexMatrix stft_matrix;
+		private final int from;
+		private final int to;
+		private final int n_frames;
+		private final int grain;
+		private final int hop_length;
+		private final WindowCache.Window ifft_window;
+		private final DoubleFFT_1D fft;
+		private final double[] y;
+
+		OverlapAddTask(ComplexMatrix stft_matrix, int from, int to, int n_frames, int grain, int hop_length,
+				WindowCache.Window ifft_window, DoubleFFT_1D fft, double[] y) {
+			this.stft_matrix = stft_matrix;
+			this.from = from;
+			this.to = to;
+			this.n_frames = n_frames;
+			this.grain = grain;
+			this.hop_length = hop_length;
+			this.ifft_window = ifft_window;
+			this.fft = fft;
+			this.y = y;
+		}
 
-			for (int k = 0; k < freqBins; k++) {
-				stftMatrix[k][colIndex] =
-					new Complex(fftBuffer[2 * k], fftBuffer[2 * k + 1]);
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				int sampleTo = to == n_frames ? y.length : to * hop_length;
+				overlapAddRange(stft_matrix, from * hop_length, sampleTo, n_frames, hop_length, ifft_window, fft, y);
+				return;
 			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new OverlapAddTask(stft_matrix, from, mid, n_frames, grain, hop_length, ifft_window, fft, y),
+					new OverlapAddTask(stft_matrix, mid, to, n_frames, grain, hop_length, ifft_window, fft, y));
 		}
-
-		
-		System.out.println("freqBins esperado: " + (1 + n_fft/2));
-		System.out.println("freqBins real: " + stftMatrix.length);
-
-		System.out.println("frames esperados: " + totalFrames);
-		System.out.println("frames real: " + stftMatrix[0].length);
-		// Preparação: converter double[] para float[] caso necessário por libs externas.
-		// float[] yFloat = new float[y.length];
-		// for (int i = 0; i < y.length; i++) yFloat[i] = (float) y[i];
-
-		// ------------- placeholders / próxima etapa ---------------
-		// A seguir: calcular a janela (fft_window = getWindow(window, win_length)),
-		// pad_center(fft_window, size=n_fft), expand_to(fft_window,...),
-		// se center == true -> aplicar padding ao sinal y,
-		// construir frames: frame(y[..., start:], frame_length=n_fft, hop_length=hop_length),
-		// alocar matriz Complex[freqBins][nFrames] e preencher usando FFT real (rfft).
-		//
-		// Irei implementar cada uma dessas etapas em sequência (janela, padding, framing, FFT).
-		//
-
-		// Por enquanto, retornamos null como placeholder — na próxima mensagem eu implemento
-		// a geração da janela e o framing, e então a FFT.
-		return stftMatrix;
 	}
 
 	public static Complex[][][] stft(
@@ -620,6 +845,47 @@ public class Spectrum {
 	        String window,
 	        boolean center,
 	        String pad_mode
+	) {
+	    return stftTensor(y, n_fft, hop_length, win_length, window, center, pad_mode).toComplexArray();
+	}
+
+	/**
+	 * STFT multicanal como uma ComplexMatrix por canal (visões de stftTensor).
+	 */
+	public static ComplexMatrix[] stftMatrix(
+	        double[][] y,
+	        Integer n_fft,
+	        Integer hop_length,
+	        Integer win_length,
+	        String window,
+	        boolean center,
+	        String pad_mode
+	) {
+	    ComplexTensor tensor = stftTensor(y, n_fft, hop_length, win_length, window, center, pad_mode);
+
+	    ComplexMatrix[] out = new ComplexMatrix[tensor.channels()];
+	    for (int c = 0; c < out.length; c++) {
+	        out[c] = tensor.channel(c);
+	    }
+	    return out;
+	}
+
+	/**
+	 * STFT multicanal em um tensor [canais][freqBins][frames], ordenado por canal.
+	 *
+	 * Validação, janela, plano FFT e divisão dos frames são feitos uma vez só
+	 * (todos os canais têm o mesmo tamanho); os canais são transformados em
+	 * paralelo no ForkJoinPool, e os frames de cada canal também podem ser
+	 * divididos entre as threads (mesmas regras da versão mono).
+	 */
+	public static ComplexTensor stftTensor(
+	        double[][] y,
+	        Integer n_fft,
+	        Integer hop_length,
+	        Integer win_length,
+	        String window,
+	        boolean center,
+	        String pad_mode
 	) {
 	    if (y == null || y.length == 0)
 	        throw new IllegalArgumentException("Audio must have at least 1 channel");
@@ -632,26 +898,60 @@ public class Spectrum {
 	        if (y[c].length != n_samples) {
 	            throw new IllegalArgumentException("All channels must have the same length");
 	        }
+	        Utils.validAudio(y[c]);
 	    }
 	
-	    Complex[][][] out = new Complex[channels][][];
-	
-	    // Para cada canal, chama a versão mono
-	    for (int c = 0; c < channels; c++) {
-	        out[c] = stft(
-	                y[c],
-	                n_fft,
-	                hop_length,
-	                win_length,
-	                window,
-	                center,
-	                pad_mode
-	        );
+	    // Estado compartilhado, calculado sobre o canal 0 (que também é validado aqui)
+	    StftLayout layout = layout(y[0], n_fft, hop_length, win_length, window, center, pad_mode);
+
+	    ComplexTensor out = new ComplexTensor(channels, layout.freqBins, layout.totalFrames);
+
+	    ForkJoinPool pool = forkJoinPool;
+	    ChannelTask task = new ChannelTask(layout, y, 0, channels, out);
+	    if (channels > 1 && pool.getParallelism() > 1) {
+	        invoke(pool, task);
+	    } else {
+	        task.fillChannels();
 	    }
-	
 	    return out;
 	}
 
+	/**
+	 * Divide os canais [from, to) ao meio, um canal por tarefa.
+	 */
+	private static final class ChannelTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final StftLayout layout;
+		private final double[][] y;
+		private final int from;
+		private final int to;
+		private final ComplexTensor out;
+
+		ChannelTask(StftLayout layout, double[][] y, int from, int to, ComplexTensor out) {
+			this.layout = layout;
+			this.y = y;
+			this.from = from;
+			this.to = to;
+			this.out = out;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				fillChannels();
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ChannelTask(layout, y, from, mid, out), new ChannelTask(layout, y, mid, to, out));
+		}
 
+		void fillChannels() {
+			for (int c = from; c < to; c++) {
+				fill(layout.over(y[c]), out.channel(c));
+			}
+		}
+	}
 }
 
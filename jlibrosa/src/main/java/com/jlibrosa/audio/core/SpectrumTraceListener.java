@@ -0,0 +1,117 @@
+package com.jlibrosa.audio.core;
+
+import java.io.PrintStream;
+
+import com.jlibrosa.audio.util.WindowCache;
+
+/**
+ * Recebe eventos de diagnóstico de Spectrum.stft (janela, decisão de
+ * padding, número de frames, shape da saída e avisos).
+ *
+ * Todos os métodos são no-op por padrão; basta sobrescrever os de interesse.
+ * O listener instalado com Spectrum.setTraceListener é chamado na thread que
+ * chamou stft, nunca nas threads do ForkJoinPool.
+ */
+public interface SpectrumTraceListener {
+
+    /**
+     * Como o sinal foi preparado para center=true (NONE quando center=false).
+     */
+    enum PaddingDecision {
+        /** Sem padding (center=false). */
+        NONE,
+        /** Padding dos dois lados do sinal inteiro (sinal curto). */
+        FULL,
+        /** Padding só nos frames do início e do fim (caso geral do librosa). */
+        PARTIAL
+    }
+
+    /**
+     * Listener padrão, que ignora todos os eventos.
+     */
+    SpectrumTraceListener NO_OP = new SpectrumTraceListener() {
+    };
+
+    /**
+     * Janela centralizada em n_fft, obtida de WindowCache.
+     *
+     * @param fftWindow janela final com n_fft posições
+     */
+    default void onWindow(String window, int winLength, int nFft, WindowCache.Window fftWindow) {
+    }
+
+    /**
+     * @param start  início, em y, dos frames centrais
+     * @param startK número de frames que dependem do padding à esquerda
+     * @param tailK  índice do primeiro frame que depende do padding à direita
+     */
+    default void onPadding(PaddingDecision decision, String padMode, int signalLength, int start,
+            int startK, int tailK) {
+    }
+
+    /**
+     * Frames do início (y_pre), no caso PARTIAL.
+     */
+    default void onHeadFrames(int paddedLength, int framesBeforeTrim, int framesKept) {
+    }
+
+    /**
+     * Frames do fim (y_post), no caso PARTIAL; frames = 0 quando nenhum frame cabe no tail.
+     */
+    default void onTailFrames(int start, int paddedLength, int frames) {
+    }
+
+    /**
+     * Shape da saída: [freqBins][headFrames + middleFrames + tailFrames].
+     */
+    default void onShape(int freqBins, int headFrames, int middleFrames, int tailFrames) {
+    }
+
+    /**
+     * Aviso sobre os parâmetros que não impede a análise (ex: n_fft maior que
+     * o sinal com center=true), no lugar do warnings.warn do librosa.
+     */
+    default void onWarning(String message) {
+    }
+
+    /**
+     * Listener que escreve uma linha por evento em out, útil para depuração.
+     */
+    static SpectrumTraceListener printing(final PrintStream out) {
+        return new SpectrumTraceListener() {
+            @Override
+            public void onWindow(String window, int winLength, int nFft, WindowCache.Window fftWindow) {
+                out.println("stft window=" + window + " win_length=" + winLength + " n_fft=" + nFft);
+            }
+
+            @Override
+            public void onPadding(PaddingDecision decision, String padMode, int signalLength, int start,
+                    int startK, int tailK) {
+                out.println("stft padding=" + decision + " pad_mode=" + padMode + " length=" + signalLength
+                        + " start=" + start + " start_k=" + startK + " tail_k=" + tailK);
+            }
+
+            @Override
+            public void onHeadFrames(int paddedLength, int framesBeforeTrim, int framesKept) {
+                out.println("stft head y_pre.length=" + paddedLength + " frames=" + framesBeforeTrim
+                        + " kept=" + framesKept);
+            }
+
+            @Override
+            public void onTailFrames(int start, int paddedLength, int frames) {
+                out.println("stft tail start=" + start + " y_post.length=" + paddedLength + " frames=" + frames);
+            }
+
+            @Override
+            public void onShape(int freqBins, int headFrames, int middleFrames, int tailFrames) {
+                out.println("stft shape=[" + freqBins + " x " + (headFrames + middleFrames + tailFrames)
+                        + "] head=" + headFrames + " middle=" + middleFrames + " tail=" + tailFrames);
+            }
+
+            @Override
+            public void onWarning(String message) {
+                out.println("stft warning: " + message);
+            }
+        };
+    }
+}
@@ -0,0 +1,320 @@
+package com.jlibrosa.audio.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jtransforms.fft.DoubleFFT_1D;
+
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.FFTPlanCache;
+import com.jlibrosa.audio.util.FrameView;
+import com.jlibrosa.audio.util.Utils;
+import com.jlibrosa.audio.util.WindowCache;
+
+/**
+ * STFT incremental: recebe o áudio em blocos de qualquer tamanho (push) e
+ * emite cada coluna da STFT assim que as n_fft amostras do frame chegam.
+ *
+ * O resultado, juntando as colunas de todos os push e do flush, é o mesmo de
+ * Spectrum.stftMatrix sobre o sinal inteiro, inclusive o padding de center:
+ * - no início, o padding à esquerda é gerado quando há amostras suficientes
+ *   (n_fft/2 + 1 para "reflect", 1 para "edge", nenhuma para "constant");
+ * - no flush, o padding à direita é gerado como em Spectrum (reflexão sobre o
+ *   trecho final usado pelos frames do fim) e os últimos frames são emitidos.
+ *
+ * Internamente guarda só um buffer circular com as últimas n_fft amostras do
+ * sinal com padding e um histórico curto (n_fft + hop_length) do sinal
+ * original, usado pelo padding do flush. Não é thread-safe: cada fluxo de
+ * áudio deve ter sua própria instância.
+ */
+public final class StreamingStft {
+
+    /**
+     * Recebe as colunas emitidas, em ordem.
+     */
+    public interface ColumnListener {
+
+        /**
+         * @param frame  índice da coluna na STFT do sinal inteiro
+         * @param column 1 + n_fft/2 bins intercalados (re, im); o array é
+         *               reaproveitado e só vale durante a chamada
+         */
+        void onColumn(long frame, double[] column);
+    }
+
+    private final int nFft;
+    private final int hopLength;
+    private final boolean center;
+    private final FrameView.PadMode padMode;
+    private final WindowCache.Window window;
+    private final DoubleFFT_1D fft;
+
+    // Últimas nFft amostras do sinal com padding; a amostra p fica em ring[p % nFft]
+    private final double[] ring;
+    // Últimas nFft + hopLength amostras do sinal original (padding do flush)
+    private final double[] history;
+    private final double[] fftBuffer;
+    private final double[] column;
+
+    private long written;
+    private long samples;
+    private long nextFrame;
+    private boolean leftPadded;
+    private boolean finished;
+
+    /**
+     * Mesmos parâmetros de Spectrum.stftMatrix (win_length e window podem ser null).
+     */
+    public StreamingStft(int n_fft, int hop_length, Integer win_length, String window, boolean center,
+            String pad_mode) {
+        if (n_fft <= 0) {
+            throw new IllegalArgumentException("n_fft must be positive");
+        }
+        if (hop_length <= 0) {
+            throw new IllegalArgumentException("hop_length must be a positive integer");
+        }
+        if (win_length == null) {
+            win_length = n_fft;
+        } else if (win_length <= 0 || win_length > n_fft) {
+            throw new IllegalArgumentException("win_length must be > 0 and <= n_fft");
+        }
+        FrameView.PadMode mode = FrameView.PadMode.fromString(pad_mode == null ? "constant" : pad_mode);
+        if (mode == null) {
+            throw new IllegalArgumentException("pad_mode='" + pad_mode + "' is not supported by this STFT implementation.");
+        }
+
+        this.nFft = n_fft;
+        this.hopLength = hop_length;
+        this.center = center;
+        this.padMode = mode;
+        this.window = WindowCache.get(window == null ? "hann" : window, win_length, n_fft, true);
+        this.fft = FFTPlanCache.doubleFFT(n_fft);
+        this.ring = new double[n_fft];
+        this.history = new double[n_fft + hop_length];
+        this.fftBuffer = new double[n_fft];
+        this.column = new double[2 * (1 + n_fft / 2)];
+        reset();
+    }
+
+    /**
+     * Descarta o estado e recomeça um novo fluxo.
+     */
+    public void reset() {
+        written = 0;
+        samples = 0;
+        nextFrame = 0;
+        leftPadded = false;
+        finished = false;
+    }
+
+    public int freqBins() {
+        return 1 + nFft / 2;
+    }
+
+    /**
+     * Número de colunas emitidas até agora.
+     */
+    public long framesEmitted() {
+        return nextFrame;
+    }
+
+    /**
+     * Adiciona samples[offset, offset + length) ao fluxo.
+     *
+     * @return número de colunas emitidas por esta chamada
+     */
+    public int push(double[] samples, int offset, int length, ColumnListener listener) {
+        checkOpen();
+        long before = nextFrame;
+        for (int i = 0; i < length; i++) {
+            pushSample(samples[offset + i], listener);
+        }
+        return (int) (nextFrame - before);
+    }
+
+    /**
+     * Mesmo que push(double[], ...), para amostras float (ex: lidas do microfone).
+     */
+    public int push(float[] samples, int offset, int length, ColumnListener listener) {
+        checkOpen();
+        long before = nextFrame;
+        for (int i = 0; i < length; i++) {
+            pushSample(samples[offset + i], listener);
+        }
+        return (int) (nextFrame - before);
+    }
+
+    /**
+     * Adiciona samples e devolve as colunas completadas, como ComplexMatrix
+     * [freqBins][colunas] (aloca a matriz a cada chamada).
+     */
+    public ComplexMatrix push(double[] samples) {
+        Collector collector = new Collector();
+        push(samples, 0, samples.length, collector);
+        return collector.toMatrix();
+    }
+
+    /**
+     * Encerra o fluxo: aplica o padding final (center) e emite os frames
+     * restantes. Depois do flush, só reset() permite novos push.
+     *
+     * @return número de colunas emitidas pelo flush
+     */
+    public int flush(ColumnListener listener) {
+        checkOpen();
+        finished = true;
+        long before = nextFrame;
+        if (!center || samples == 0) {
+            return 0;
+        }
+
+        int pad = nFft / 2;
+
+        if (!leftPadded) {
+            // Sinal inteiro ainda no histórico (curto demais para o padding à
+            // esquerda, menos de n_fft/2 + 1 amostras): padding dos dois lados
+            // sobre o sinal todo, como no caso de padding total de Spectrum
+            int len = (int) samples;
+            FrameView whole = new FrameView(recent(len), 0, len, pad, pad, padMode, 1, 1);
+            leftPadded = true;
+            for (int p = 0; p < whole.paddedLength(); p++) {
+                writePadded(whole.sampleAt(p), listener);
+            }
+            return (int) (nextFrame - before);
+        }
+
+        // Mesma divisão de Spectrum: o padding à direita reflete o trecho y[startPost:]
+        // dos frames do fim, ou o sinal inteiro no caso de padding total. As
+        // contas são em long sobre o total de amostras do fluxo, que pode passar
+        // de Integer.MAX_VALUE; só o tamanho do trecho, que cabe no histórico,
+        // vira int
+        long start_k = (long) Math.ceil((double) (nFft / 2) / hopLength);
+        long tail_k = (samples + (nFft / 2) - nFft) / hopLength + 1;
+        long sliceStart = 0;
+        if (tail_k > start_k) {
+            sliceStart = Math.max(0, tail_k * hopLength - nFft / 2);
+        }
+        // não passa de history.length para os valores de start_k/tail_k acima;
+        // por segurança, reflete só o que ainda está no histórico
+        int sliceLength = (int) Math.min(samples - sliceStart, history.length);
+
+        FrameView tail = new FrameView(recent(sliceLength), 0, sliceLength, 0, pad, padMode, 1, 1);
+        for (int i = 0; i < pad; i++) {
+            writePadded(tail.sampleAt(sliceLength + i), listener);
+        }
+        return (int) (nextFrame - before);
+    }
+
+    /**
+     * Encerra o fluxo e devolve as colunas restantes como ComplexMatrix.
+     */
+    public ComplexMatrix flush() {
+        Collector collector = new Collector();
+        flush(collector);
+        return collector.toMatrix();
+    }
+
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("Stream already flushed; call reset() to start a new one");
+        }
+    }
+
+    private void pushSample(double value, ColumnListener listener) {
+        history[(int) (samples % history.length)] = value;
+        samples++;
+
+        if (leftPadded) {
+            writePadded(value, listener);
+            return;
+        }
+        if (!center) {
+            leftPadded = true;
+            writePadded(value, listener);
+            return;
+        }
+
+        int pad = nFft / 2;
+        long needed;
+        switch (padMode) {
+            case REFLECT:
+                needed = pad + 1;
+                break;
+            case EDGE:
+                needed = 1;
+                break;
+            default:
+                needed = 0;
+                break;
+        }
+        if (samples < needed) {
+            return;
+        }
+
+        // Já é possível gerar o padding à esquerda: ele e as amostras guardadas
+        // até aqui entram no sinal com padding
+        int available = (int) samples;
+        FrameView head = new FrameView(recent(available), 0, available, pad, 0, padMode, 1, 1);
+        leftPadded = true;
+        for (int p = 0; p < head.paddedLength(); p++) {
+            writePadded(head.sampleAt(p), listener);
+        }
+    }
+
+    // Amostra do sinal com padding; emite o frame assim que ele fica completo
+    private void writePadded(double value, ColumnListener listener) {
+        ring[(int) (written % nFft)] = value;
+        written++;
+        if (written == nextFrame * hopLength + nFft) {
+            emit(listener);
+        }
+    }
+
+    private void emit(ColumnListener listener) {
+        int start = (int) ((nextFrame * hopLength) % nFft);
+        int first = nFft - start;
+        for (int i = 0; i < first; i++) {
+            fftBuffer[i] = ring[start + i] * window.get(i);
+        }
+        for (int i = first; i < nFft; i++) {
+            fftBuffer[i] = ring[i - first] * window.get(i);
+        }
+
+        // rfft: só o meio espectro (1 + n_fft/2 bins), empacotado em n_fft posições
+        fft.realForward(fftBuffer);
+        Utils.unpackRealForward(fftBuffer, nFft, column, 0);
+
+        listener.onColumn(nextFrame, column);
+        nextFrame++;
+    }
+
+    // Últimas count amostras do sinal original, em ordem
+    private double[] recent(int count) {
+        double[] out = new double[count];
+        long first = samples - count;
+        for (int i = 0; i < count; i++) {
+            out[i] = history[(int) ((first + i) % history.length)];
+        }
+        return out;
+    }
+
+    /**
+     * Junta as colunas emitidas em uma ComplexMatrix.
+     */
+    private final class Collector implements ColumnListener {
+        private final List<double[]> columns = new ArrayList<>();
+
+        @Override
+        public void onColumn(long frame, double[] values) {
+            columns.add(values.clone());
+        }
+
+        ComplexMatrix toMatrix() {
+            ComplexMatrix matrix = new ComplexMatrix(freqBins(), columns.size());
+            for (int c = 0; c < columns.size(); c++) {
+                System.arraycopy(columns.get(c), 0, matrix.getData(), matrix.columnOffset(c), columns.get(c).length);
+            }
+            return matrix;
+        }
+    }
+}
@@ -3,11 +3,24 @@ package com.jlibrosa.audio.process;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
-import org.apache.commons.math3.transform.TransformType;
+
+import org.jtransforms.fft.DoubleFFT_1D;
+import org.jtransforms.fft.FloatFFT_1D;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.FFTPlanCache;
+import com.jlibrosa.audio.util.FrameView;
+import com.jlibrosa.audio.util.DctBasis;
+import com.jlibrosa.audio.util.MelFilterBank;
+import com.jlibrosa.audio.util.Precision;
+import com.jlibrosa.audio.util.StftBatch;
+import com.jlibrosa.audio.util.Utils;
+import com.jlibrosa.audio.util.WindowCache;
 
 /**
  * This Class calculates the MFCC, STFT values of given audio samples.
@@ -29,6 +42,7 @@ public class AudioFeatureExtraction {
 	private int n_fft = 2048;
 	private int hop_length = 512;
 	private int n_mels = 128;
+	private Precision precision = Precision.DOUBLE;
 
 	
 	
@@ -101,6 +115,24 @@ public class AudioFeatureExtraction {
 		return sampleRate;
 	}
 
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Selects the precision of the STFT, mel spectrogram and MFCC computations.
+	 * Precision.FLOAT runs the whole pipeline in float32 (see Precision for the
+	 * error bounds against the double path).
+	 * 
+	 * @param precision
+	 */
+	public void setPrecision(Precision precision) {
+		if (precision == null) {
+			throw new IllegalArgumentException("precision must not be null");
+		}
+		this.precision = precision;
+	}
+
 	/**
 	 * Variable for holding n_mfcc value
 	 * 
@@ -117,6 +149,9 @@ public class AudioFeatureExtraction {
 	 * @return
 	 */
 	public float[] extractMFCCFeatures(float[] doubleInputBuffer) {
+		if (precision == Precision.FLOAT) {
+			return finalshape(dctMfccFloat(doubleInputBuffer));
+		}
 		final double[][] mfccResult = dctMfcc(doubleInputBuffer);
 		return finalshape(mfccResult);
 	}
@@ -139,6 +174,24 @@ public class AudioFeatureExtraction {
 		return finalMfcc;
 	}
 
+	/**
+	 * This function converts 2D float MFCC values into 1d
+	 * 
+	 * @param mfccSpecTro
+	 * @return
+	 */
+	private float[] finalshape(float[][] mfccSpecTro) {
+		float[] finalMfcc = new float[mfccSpecTro[0].length * mfccSpecTro.length];
+		int k = 0;
+		for (int i = 0; i < mfccSpecTro[0].length; i++) {
+			for (int j = 0; j < mfccSpecTro.length; j++) {
+				finalMfcc[k] = mfccSpecTro[j][i];
+				k = k + 1;
+			}
+		}
+		return finalMfcc;
+	}
+
 	/**
 	 * This function converts DCT values into mfcc
 	 * 
@@ -147,16 +200,18 @@ public class AudioFeatureExtraction {
 	 */
 	private double[][] dctMfcc(float[] y) {
 		final double[][] specTroGram = powerToDb(melSpectrogram(y));
-		final double[][] dctBasis = dctFilter(n_mfcc, n_mels);
-		double[][] mfccSpecTro = new double[n_mfcc][specTroGram[0].length];
-		for (int i = 0; i < n_mfcc; i++) {
-			for (int j = 0; j < specTroGram[0].length; j++) {
-				for (int k = 0; k < specTroGram.length; k++) {
-					mfccSpecTro[i][j] += dctBasis[i][k] * specTroGram[k][j];
-				}
-			}
-		}
-		return mfccSpecTro;
+		return dctBasis().apply(specTroGram);
+	}
+
+	/**
+	 * This function converts DCT values into mfcc, in float32
+	 * 
+	 * @param y
+	 * @return
+	 */
+	private float[][] dctMfccFloat(float[] y) {
+		final float[][] specTroGram = powerToDbFloat(melSpectrogramFloat(y));
+		return dctBasis().apply(specTroGram);
 	}
 
 	/**
@@ -166,17 +221,8 @@ public class AudioFeatureExtraction {
 	 * @return
 	 */
 	public double[][] melSpectrogram(float[] y) {
-		double[][] melBasis = melFilter();
 		double[][] spectro = extractSTFTFeatures(y);
-		double[][] melS = new double[melBasis.length][spectro[0].length];
-		for (int i = 0; i < melBasis.length; i++) {
-			for (int j = 0; j < spectro[0].length; j++) {
-				for (int k = 0; k < melBasis[0].length; k++) {
-					melS[i][j] += melBasis[i][k] * spectro[k][j];
-				}
-			}
-		}
-		return melS;
+		return melFilterBank().apply(spectro);
 	}
 
 	
@@ -189,24 +235,25 @@ public class AudioFeatureExtraction {
 	 */
 	public float [][] melSpectrogramWithComplexValueProcessing(float[] y) {
 		
-		Complex[][] spectro = extractSTFTFeaturesAsComplexValues(y, true);
-		double[][] spectroAbsVal = new double[spectro.length][spectro[0].length];
+		if (precision == Precision.FLOAT) {
+			return melSpectrogramFloat(y);
+		}
+		
+		ComplexMatrix spectro = extractSTFTFeaturesAsComplexMatrix(y, true);
+		double[][] spectroAbsVal = new double[spectro.rows()][spectro.cols()];
 		
-		for(int i=0;i<spectro.length;i++) {
-			for(int j=0;j<spectro[0].length;j++) {
-				Complex complexVal = spectro[i][j];
-				double spectroDblVal = Math.sqrt((Math.pow(complexVal.getReal(), 2) + Math.pow(complexVal.getImaginary(), 2)));
+		for(int i=0;i<spectro.rows();i++) {
+			for(int j=0;j<spectro.cols();j++) {
+				double spectroDblVal = Math.sqrt((Math.pow(spectro.getReal(i, j), 2) + Math.pow(spectro.getImag(i, j), 2)));
 				spectroAbsVal[i][j] = Math.pow(spectroDblVal,2);
 			}
 		}
 		
-		double[][] melBasis = melFilter();
-		float[][] melS = new float[melBasis.length][spectro[0].length];
-		for (int i = 0; i < melBasis.length; i++) {
-			for (int j = 0; j < spectro[0].length; j++) {
-				for (int k = 0; k < melBasis[0].length; k++) {
-					melS[i][j] += melBasis[i][k] * spectroAbsVal[k][j];
-				}
+		double[][] melSVal = melFilterBank().apply(spectroAbsVal);
+		float[][] melS = new float[melSVal.length][spectro.cols()];
+		for (int i = 0; i < melSVal.length; i++) {
+			for (int j = 0; j < spectro.cols(); j++) {
+				melS[i][j] = (float) melSVal[i][j];
 			}
 		}
 		return melS;
@@ -215,64 +262,26 @@ public class AudioFeatureExtraction {
 	}
 	
 	
+	/**
+	 * This function generates mel spectrogram values in float32, with a float FFT and
+	 * a float mel filter bank
+	 * 
+	 * @param y
+	 * @return
+	 */
+	public float[][] melSpectrogramFloat(float[] y) {
+		final float[][] spectro = extractSTFTFeaturesFloat(y);
+		return melFilterBank().apply(spectro);
+	}
+	
+	
 	public double[][] stftMagSpec(double[] y){
 		//Short-time Fourier transform (STFT)
-		final double[] fftwin = getWindow();
-		//pad y with reflect mode so it's centered. This reflect padding implementation is
-		// not perfect but works for this demo.
-		double[] ypad = new double[n_fft+y.length];
-		for (int i = 0; i < n_fft/2; i++){
-			ypad[(n_fft/2)-i-1] = y[i+1];
-			ypad[(n_fft/2)+y.length+i] = y[y.length-2-i];
-		}
-		for (int j = 0; j < y.length; j++){
-			ypad[(n_fft/2)+j] = y[j];
-		}
-
-		y = null;
-		
-		final double[][] frame = yFrame(ypad);
-		double[][] fftmagSpec = new double[1+n_fft/2][frame[0].length];
-		double[] fftFrame = new double[n_fft];
-		
-		for (int k = 0; k < frame[0].length; k++){
-		 	int fftFrameCounter=0;
-
-			for (int l =0; l < n_fft; l++){
-				fftFrame[l] = fftwin[l]*frame[l][k];
-				fftFrameCounter = fftFrameCounter + 1;
-
-			}
-			
-			double[] tempConversion = new double[fftFrame.length];
-    	    double[] tempImag = new double[fftFrame.length];
-
-    	    FastFourierTransformer transformer = new FastFourierTransformer(DftNormalization.STANDARD);
-    	    try {           
-    	        Complex[] complx = transformer.transform(fftFrame, TransformType.FORWARD);
-
-    	        for (int i = 0; i < complx.length; i++) {               
-    	            double rr = (complx[i].getReal());
-    	            
-    	            double ri = (complx[i].getImaginary());
-
-    	            tempConversion[i] = rr * rr + ri * ri;
-    	            tempImag[i] = ri;
-    	        }
-
-    	    } catch (IllegalArgumentException e) {
-    	        System.out.println(e);
-    	    }
-    		
-    	  	
-            double[] magSpec = tempConversion;
-            for (int i =0; i < 1+n_fft/2; i++){
-                fftmagSpec[i][k] = magSpec[i];
-            }
-
-			
-		}
-		return fftmagSpec;
+		final WindowCache.Window fftwin = getWindow();
+		//pad y with reflect mode so it's centered. The padding is applied on the fly
+		// by the frame reader, so no padded copy of y is made.
+		final FrameView frame = new FrameView(y, 0, y.length, n_fft/2, n_fft/2, FrameView.PadMode.REFLECT, n_fft, hop_length);
+		return powerSpectrum(frame, fftwin);
 	}
 		
 	
@@ -284,93 +293,40 @@ public class AudioFeatureExtraction {
 	 */
 	
 	public Complex[][] extractSTFTFeaturesAsComplexValues(float[] y, boolean paddingFlag) {
+		return extractSTFTFeaturesAsComplexMatrix(y, paddingFlag).toComplexArray();
+	}
+	
+	
+	/**
+	 * This function extracts the STFT values as a [1+n_fft/2][frames] complex matrix
+	 * 
+	 * @param y
+	 * @return
+	 */
+	
+	public ComplexMatrix extractSTFTFeaturesAsComplexMatrix(float[] y, boolean paddingFlag) {
 		
 		// Short-time Fourier transform (STFT)
-		final double[] fftwin = getWindow();
+		final WindowCache.Window fftwin = getWindow();
 		
 		// pad y with reflect mode so it's centered. This reflect padding implementation
 				// is
-		final double[][] frame = padFrame(y, paddingFlag);
-		double[][] fftmagSpec = new double[1 + n_fft / 2][frame[0].length];
-
-		double[] fftFrame = new double[n_fft];	
-		
-		Complex [][] complex2DArray = new Complex[1+n_fft/2][frame[0].length];
-		Complex [] cmplx1DArr = new Complex [n_fft];
-		
+		final FrameView frame = padFrame(y, paddingFlag);
+		DoubleFFT_1D fft = FFTPlanCache.doubleFFT(n_fft);
+		double[] fftFrame = new double[n_fft];
 		
-		float [][] invFrame = new float [n_fft][frame[0].length];
+		ComplexMatrix stftMatrix = new ComplexMatrix(1+n_fft/2, frame.numFrames());
 		
-		for (int k = 0; k < frame[0].length; k++) {
-			int fftFrameCounter = 0;
-			for (int l = 0; l < n_fft; l++) {
-				fftFrame[fftFrameCounter] = fftwin[l] * frame[l][k];
-				fftFrameCounter = fftFrameCounter + 1;
-			}
+		for (int k = 0; k < frame.numFrames(); k++) {
+			frame.windowedFrame(k, fftwin, fftFrame);
 
-			double[] tempConversion = new double[fftFrame.length];
-			double[] tempImag = new double[fftFrame.length];
-
-			FastFourierTransformer transformer = new FastFourierTransformer(DftNormalization.STANDARD);
-		
-			try {
-				Complex[] complx = transformer.transform(fftFrame, TransformType.FORWARD);
-				
-				Complex[] Invcomplx = transformer.transform(complx, TransformType.INVERSE);
-				
-				//FFT transformed data will be over the length of FFT
-				//data will be sinusoidal in nature - so taking the values of 1+n_fft/2 only for processing
-				for(int i=0;i<1+n_fft/2;i++) {
-					complex2DArray[i][k] = complx[i];
-					
-				}
-				
-				
-				
-				Complex [] cmplxINV1DArr = new Complex [n_fft];
-				
-				
-				for(int j=0;j<1+n_fft/2;j++) {
-					cmplxINV1DArr[j] = complex2DArray[j][k];
-				}
-				
-				int j_index = 2;
-				for(int k1=1+n_fft/2;k1<n_fft;k1++){
-					cmplxINV1DArr[k1]=new Complex(cmplxINV1DArr[k1-j_index].getReal(), -1 * cmplxINV1DArr[k1-j_index].getImaginary());
-					j_index = j_index + 2;
-				}
-				
-				Complex[] complx1 = transformer.transform(cmplxINV1DArr, TransformType.INVERSE);
-				
-				
-				for(int p=0;p<complx1.length;p++) {
-					if(fftwin[p]!=0) {
-						invFrame[p][k] = (float) (complx1[p].getReal()/fftwin[p]);
-						//invFrame[p][i] = (float) (complx[p].getReal() * fftwin[p]);
-					}else {
-						invFrame[p][k] = 0;
-					}
-				}
-				
-				
-			} catch (IllegalArgumentException e) {
-				System.out.println(e);
-			}		
-			
+			// One real FFT per frame: the real input only needs the 1+n_fft/2
+			// non-negative frequency bins, unpacked straight into column k
+			fft.realForward(fftFrame);
+			Utils.unpackRealForward(fftFrame, n_fft, stftMatrix.getData(), stftMatrix.columnOffset(k));
 		}
 		
-		
-		float [] yValues = new float [(hop_length * (invFrame[0].length-1) + n_fft)];
-		
-		for (int i = 0; i < n_fft; i++) {
-			for (int j = 0; j < invFrame[0].length; j++) {
-				yValues[j*hop_length + i] = invFrame[i][j];
-				
-			}
-		}
-		
-		
-		return complex2DArray;
+		return stftMatrix;
 		
 	} 
 	
@@ -383,11 +339,23 @@ public class AudioFeatureExtraction {
 	 */
 	
 	public float [] extractInvSTFTFeaturesAsFloatValues(Complex[][] cmplxSTFTValues, boolean paddingFlag){
+		return extractInvSTFTFeaturesAsFloatValues(ComplexMatrix.fromComplexArray(cmplxSTFTValues), paddingFlag);
+	}
+	
+	
+	/**
+	 * This function extracts the inverse STFT values from a [1+n_fft/2][frames] complex matrix
+	 * 
+	 * @param stftMatrix
+	 * @return
+	 */
+	
+	public float [] extractInvSTFTFeaturesAsFloatValues(ComplexMatrix stftMatrix, boolean paddingFlag){
 		
-		int n_fft = 2 *(cmplxSTFTValues.length - 1);
+		int n_fft = 2 *(stftMatrix.rows() - 1);
 		
 		
-		int n_frames = cmplxSTFTValues[0].length;
+		int n_frames = stftMatrix.cols();
 		
 		
 		int length =  ((n_frames - 1) * hop_length) + n_fft;
@@ -396,77 +364,23 @@ public class AudioFeatureExtraction {
 			length = this.length;
 		}
 		
-		// Short-time Fourier transform (STFT)
-		final double[] fftwin = getWindow();
-		
-		float [][] invFrame = new float [n_fft][n_frames];
-		
-		Complex[] complx = null;
-		
-		for(int i=0;i<cmplxSTFTValues[0].length;i++) {
-			Complex [] cmplx1DArr = new Complex [n_fft];
-			for(int j=0;j<1+n_fft/2;j++) {
-				cmplx1DArr[j] = cmplxSTFTValues[j][i];
-			}
-			
-			//processed FFT values would be of length 1+n_fft/2
-			//to peform inv FFT, we need to recreate the values back to the length of n_fft
-			//as the values are inverse in nature - recreating the second half from the first off
-			//for n_fft value of 4096 - value at the index of 2049 and 2047 will be same and the sequence will continue for (2050-2046), (2051-2045) etc
-			//below loop will recreate those values
-			int j_index = 2;
-			for(int k=1+n_fft/2;k<n_fft;k++){
-				cmplx1DArr[k]=new Complex(cmplx1DArr[k-j_index].getReal(), -1 * cmplx1DArr[k-j_index].getImaginary());
-				j_index = j_index + 2;
-			}
-			
-			
-			FastFourierTransformer transformer = new FastFourierTransformer(DftNormalization.STANDARD);
-			
-			
-			try {
-				complx = transformer.transform(cmplx1DArr, TransformType.INVERSE);
-			
-			} catch (IllegalArgumentException e) {
-				System.out.println(e);
-			}		
-		
-			for(int p=0;p<complx.length;p++) {
-				if(fftwin[p]!=0) {
-					invFrame[p][i] = (float) (complx[p].getReal()/fftwin[p]);
-					//invFrame[p][i] = (float) (complx[p].getReal() * fftwin[p]);
-				}else {
-					invFrame[p][i] = 0;
-				}
-			}
-			
-		}
-		
-		
-		float [] yValues = new float [length];
-		
-		for (int i = 0; i < n_fft; i++) {
-			for (int j = 0; j < n_frames; j++) {
-				yValues[j*hop_length + i] = invFrame[i][j];
-				
-			}
-		}
-		
-		
-	
-		float [] yValues_unpadded = new float[yValues.length-n_fft];
+		// overlap-add of one real inverse FFT per frame, normalised by the window
+		// sum-square (librosa.istft); the padding is removed below
+		double[] yValues = Spectrum.istft(stftMatrix, hop_length, n_fft, "hann", false, length);
 		
 		if(paddingFlag) {
-			
+			float [] yValues_unpadded = new float[Math.max(0, yValues.length-n_fft)];
 			for(int i=0;i<yValues_unpadded.length;i++) {
-				yValues_unpadded[i] = yValues[n_fft/2 + i];
+				yValues_unpadded[i] = (float) yValues[n_fft/2 + i];
 			}
-			
 			return yValues_unpadded;
 		}
 		
-		
-		return yValues;
+		float [] yFloat = new float[yValues.length];
+		for(int i=0;i<yFloat.length;i++) {
+			yFloat[i] = (float) yValues[i];
+		}
+		return yFloat;
 		
 	} 
 	
@@ -495,38 +409,17 @@ public class AudioFeatureExtraction {
 	 * @return
 	 */
 	
-	private double[][] padFrame(float[] yValues, boolean paddingFlag){
-		
-		double[][] frame = null;
-		
-		if(paddingFlag) {
-			
-		
-		double[] ypad = new double[n_fft + yValues.length];
-		for (int i = 0; i < n_fft / 2; i++) {
-			ypad[(n_fft / 2) - i - 1] = yValues[i + 1];
-			ypad[(n_fft / 2) + yValues.length + i] = yValues[yValues.length - 2 - i];
-		}
-		for (int j = 0; j < yValues.length; j++) {
-			ypad[(n_fft / 2) + j] = yValues[j];
-		}
-
-		frame = yFrame(ypad);
-		}
-		else {
-		
-		
-		double[] yDblValues = new double[yValues.length];
-		for (int i = 0 ; i < yValues.length; i++)
-		{
-		    yDblValues[i] = (double) yValues[i];
-		}
-		
-		frame = yFrame(yDblValues);
+	private FrameView padFrame(float[] yValues, boolean paddingFlag){
+		return padFrame(yValues, 0, yValues.length, paddingFlag);
+	}
+	
+	private FrameView padFrame(float[] yValues, int offset, int length, boolean paddingFlag){
 		
-		}
+		// reflect padding is applied on the fly by the frame reader, and the float
+		// samples are read directly, so neither a padded nor a double copy is made
+		int pad = paddingFlag ? n_fft / 2 : 0;
 		
-		return frame;
+		return new FrameView(yValues, offset, length, pad, pad, FrameView.PadMode.REFLECT, n_fft, hop_length);
 	}
 	
 	/**
@@ -537,89 +430,166 @@ public class AudioFeatureExtraction {
 	 */
 	public double[][] extractSTFTFeatures(float[] y) {
 		// Short-time Fourier transform (STFT)
-		final double[] fftwin = getWindow();
+		final WindowCache.Window fftwin = getWindow();
 		
 		// pad y with reflect mode so it's centered. This reflect padding implementation
 		// is
-		final double[][] frame = padFrame(y, true);
-		double[][] fftmagSpec = new double[1 + n_fft / 2][frame[0].length];
+		final FrameView frame = padFrame(y, true);
+		return powerSpectrum(frame, fftwin);
+	}
 
-		double[] fftFrame = new double[n_fft];
+	/**
+	 * This function extract STFT power values from given Audio Magnitude Values, in
+	 * float32.
+	 * 
+	 * @param y
+	 * @return
+	 */
+	public float[][] extractSTFTFeaturesFloat(float[] y) {
+		final FrameView frame = padFrame(y, true);
+		return powerSpectrumFloat(frame, getWindow());
+	}
 
-		for (int k = 0; k < frame[0].length; k++) {
-			int fftFrameCounter = 0;
-			for (int l = 0; l < n_fft; l++) {
-				fftFrame[fftFrameCounter] = fftwin[l] * frame[l][k];
-				fftFrameCounter = fftFrameCounter + 1;
+	/**
+	 * Float32 version of powerSpectrum, with FloatFFT_1D.
+	 * 
+	 * @param frame
+	 * @param fftwin
+	 * @return [1+n_fft/2][frames] power values
+	 */
+	private float[][] powerSpectrumFloat(FrameView frame, WindowCache.Window fftwin) {
+		final int freqBins = 1 + n_fft / 2;
+		float[][] fftmagSpec = new float[freqBins][frame.numFrames()];
+
+		FloatFFT_1D fft = FFTPlanCache.floatFFT(n_fft);
+		float[] fftFrame = new float[n_fft];
+		float[] spectrum = new float[2 * freqBins];
+
+		for (int k = 0; k < frame.numFrames(); k++) {
+			frame.windowedFrame(k, fftwin, fftFrame);
+			fft.realForward(fftFrame);
+			Utils.unpackRealForward(fftFrame, n_fft, spectrum, 0);
+
+			for (int i = 0; i < freqBins; i++) {
+				float rr = spectrum[2 * i];
+				float ri = spectrum[2 * i + 1];
+				fftmagSpec[i][k] = rr * rr + ri * ri;
 			}
+		}
+		return fftmagSpec;
+	}
 
-			double[] tempConversion = new double[fftFrame.length];
-			double[] tempImag = new double[fftFrame.length];
-
-			FastFourierTransformer transformer = new FastFourierTransformer(DftNormalization.STANDARD);
-		
-			
-			
-			try {
-				Complex[] complx = transformer.transform(fftFrame, TransformType.FORWARD);
-				
-				for (int i = 0; i < complx.length; i++) {
-					double rr = (complx[i].getReal());
+	/**
+	 * This function computes the power spectrum |STFT|^2 of every frame, with a single
+	 * real FFT per frame and buffers shared by all the frames.
+	 * 
+	 * @param frame
+	 * @param fftwin
+	 * @return [1+n_fft/2][frames] power values
+	 */
+	private double[][] powerSpectrum(FrameView frame, WindowCache.Window fftwin) {
+		final int freqBins = 1 + n_fft / 2;
+		double[][] fftmagSpec = new double[freqBins][frame.numFrames()];
 
-					double ri = (complx[i].getImaginary());
+		DoubleFFT_1D fft = FFTPlanCache.doubleFFT(n_fft);
+		double[] fftFrame = new double[n_fft];
+		double[] spectrum = new double[2 * freqBins];
 
-					tempConversion[i] = rr * rr + ri*ri;
-					tempImag[i] = ri;
-				}
+		for (int k = 0; k < frame.numFrames(); k++) {
+			frame.windowedFrame(k, fftwin, fftFrame);
+			fft.realForward(fftFrame);
+			Utils.unpackRealForward(fftFrame, n_fft, spectrum, 0);
 
-			} catch (IllegalArgumentException e) {
-				System.out.println(e);
-			}
-			
-			
-			
-			double[] magSpec = tempConversion;
-			for (int i = 0; i < 1 + n_fft / 2; i++) {
-				fftmagSpec[i][k] = magSpec[i];
+			for (int i = 0; i < freqBins; i++) {
+				double rr = spectrum[2 * i];
+				double ri = spectrum[2 * i + 1];
+				fftmagSpec[i][k] = rr * rr + ri * ri;
 			}
 		}
 		return fftmagSpec;
 	}
 
 	/**
-	 * This function is used to get hann window, librosa
+	 * This function extracts the STFT of a batch of equal-length clips, sharing one
+	 * window and one FFT plan, with the clips processed in parallel on
+	 * Spectrum.getForkJoinPool(). With Precision.DOUBLE each clip gives the values of
+	 * extractSTFTFeaturesAsComplexMatrix rounded to float; with Precision.FLOAT the
+	 * FFT itself runs in float32.
 	 * 
-	 * @return
+	 * @param clips       [batch][samples], all clips with the same length
+	 * @param paddingFlag reflect-pad the clips so the frames are centered
+	 * @return [batch][frames][1+n_fft/2][2] tensor
 	 */
-	private double[] getWindow() {
-		// Return a Hann window for even n_fft.
-		// The Hann window is a taper formed by using a raised cosine or sine-squared
-		// with ends that touch zero.
-		double[] win = new double[n_fft];
-		for (int i = 0; i < n_fft; i++) {
-			win[i] = 0.5 - 0.5 * Math.cos(2.0 * Math.PI * i / n_fft);
+	public StftBatch extractSTFTFeaturesBatch(float[][] clips, boolean paddingFlag) {
+		if (clips == null || clips.length == 0) {
+			throw new IllegalArgumentException("Batch must contain at least one clip");
+		}
+		FrameView[] views = new FrameView[clips.length];
+		for (int b = 0; b < clips.length; b++) {
+			if (clips[b] == null || clips[b].length != clips[0].length) {
+				throw new IllegalArgumentException("All clips in a batch must have the same length, clip " + b
+						+ " differs from clip 0");
+			}
+			views[b] = padFrame(clips[b], 0, clips[b].length, paddingFlag);
 		}
-		return win;
+		return extractSTFTFeaturesBatch(views, null);
 	}
-
+	
 	/**
-	 * This function is used to apply padding and return Frame
+	 * This function extracts the STFT of a batch of clips packed one after the other
+	 * in a single buffer, writing into out when it is given (e.g. a tensor wrapping the
+	 * model input array).
 	 * 
-	 * @param ypad
-	 * @return
+	 * @param samples     batchSize clips of samples.length / batchSize samples each
+	 * @param batchSize
+	 * @param paddingFlag
+	 * @param out         preallocated output with the batch shape, or null
+	 * @return out, or a new tensor when out is null
 	 */
-	private double[][] yFrame(double[] ypad) {
-		
-		final int n_frames = 1 + (ypad.length - n_fft) / hop_length;
+	public StftBatch extractSTFTFeaturesBatch(float[] samples, int batchSize, boolean paddingFlag, StftBatch out) {
+		if (samples == null || batchSize <= 0 || samples.length % batchSize != 0) {
+			throw new IllegalArgumentException("Packed buffer length must be a multiple of batchSize");
+		}
+		int clipLength = samples.length / batchSize;
+		FrameView[] views = new FrameView[batchSize];
+		for (int b = 0; b < batchSize; b++) {
+			views[b] = padFrame(samples, b * clipLength, clipLength, paddingFlag);
+		}
+		return extractSTFTFeaturesBatch(views, out);
+	}
+	
+	private StftBatch extractSTFTFeaturesBatch(FrameView[] views, StftBatch out) {
+		final int freqBins = 1 + n_fft / 2;
+		final int frames = views[0].numFrames();
 		
-		double[][] winFrames = new double[n_fft][n_frames];
+		if (out == null) {
+			out = new StftBatch(views.length, frames, freqBins);
+		} else if (out.batchSize() != views.length || out.frames() != frames || out.bins() != freqBins) {
+			throw new IllegalArgumentException("Output batch must be " + views.length + " x " + frames + " x "
+					+ freqBins + ", got " + out.batchSize() + " x " + out.frames() + " x " + out.bins());
+		}
 		
-		for (int i = 0; i < n_fft; i++) {
-			for (int j = 0; j < n_frames; j++) {
-				winFrames[i][j] = ypad[j * hop_length + i];
-			}
+		BatchTask task = new BatchTask(views, 0, views.length, getWindow(), n_fft, precision, out);
+		ForkJoinPool pool = Spectrum.getForkJoinPool();
+		if (views.length > 1 && pool.getParallelism() > 1) {
+			pool.invoke(task);
+		} else {
+			task.fillClips();
 		}
-		return winFrames;
+		return out;
+	}
+	
+	/**
+	 * This function is used to get hann window, librosa. The window is shared
+	 * through WindowCache, so it is only computed once per n_fft.
+	 * 
+	 * @return
+	 */
+	private WindowCache.Window getWindow() {
+		// Periodic Hann window of length n_fft (fftbins = true).
+		// The Hann window is a taper formed by using a raised cosine or sine-squared
+		// with ends that touch zero.
+		return WindowCache.get("hann", n_fft, n_fft, true);
 	}
 
 	/**
@@ -661,136 +631,64 @@ public class AudioFeatureExtraction {
 	}
 
 	/**
-	 * This function is used to get dct filters.
-	 * 
-	 * @param n_filters
-	 * @param n_input
-	 * @return
-	 */
-	private double[][] dctFilter(int n_filters, int n_input) {
-		// Discrete cosine transform (DCT type-III) basis.
-		double[][] basis = new double[n_filters][n_input];
-		double[] samples = new double[n_input];
-		for (int i = 0; i < n_input; i++) {
-			samples[i] = (1 + 2 * i) * Math.PI / (2.0 * (n_input));
-		}
-		for (int j = 0; j < n_input; j++) {
-			basis[0][j] = 1.0 / Math.sqrt(n_input);
-		}
-		for (int i = 1; i < n_filters; i++) {
-			for (int j = 0; j < n_input; j++) {
-				basis[i][j] = Math.cos(i * samples[j]) * Math.sqrt(2.0 / (n_input));
-			}
-		}
-		return basis;
-	}
-
-	/**
-	 * This function is used to create a Filterbank matrix to combine FFT bins into
-	 * Mel-frequency bins.
+	 * Float32 version of powerToDb.
 	 * 
+	 * @param melS
 	 * @return
 	 */
-	private double[][] melFilter() {
-		// Create a Filterbank matrix to combine FFT bins into Mel-frequency bins.
-		// Center freqs of each FFT bin
-		final double[] fftFreqs = fftFreq();
-		// 'Center freqs' of mel bands - uniformly spaced between limits
-		final double[] melF = melFreq(n_mels + 2);
-
-		double[] fdiff = new double[melF.length - 1];
-		for (int i = 0; i < melF.length - 1; i++) {
-			fdiff[i] = melF[i + 1] - melF[i];
-		}
-
-		double[][] ramps = new double[melF.length][fftFreqs.length];
-		for (int i = 0; i < melF.length; i++) {
-			for (int j = 0; j < fftFreqs.length; j++) {
-				ramps[i][j] = melF[i] - fftFreqs[j];
-			}
-		}
-
-		double[][] weights = new double[n_mels][1 + n_fft / 2];
-		for (int i = 0; i < n_mels; i++) {
-			for (int j = 0; j < fftFreqs.length; j++) {
-				double lowerF = -ramps[i][j] / fdiff[i];
-				double upperF = ramps[i + 2][j] / fdiff[i + 1];
-				if (lowerF > upperF && upperF > 0) {
-					weights[i][j] = upperF;
-				} else if (lowerF > upperF && upperF < 0) {
-					weights[i][j] = 0;
-				} else if (lowerF < upperF && lowerF > 0) {
-					weights[i][j] = lowerF;
-				} else if (lowerF < upperF && lowerF < 0) {
-					weights[i][j] = 0;
+	private float[][] powerToDbFloat(float[][] melS) {
+		float[][] log_spec = new float[melS.length][melS[0].length];
+		float maxValue = -100;
+		for (int i = 0; i < melS.length; i++) {
+			for (int j = 0; j < melS[0].length; j++) {
+				float magnitude = Math.abs(melS[i][j]);
+				if (magnitude > 1e-10f) {
+					log_spec[i][j] = (float) (10.0 * Math.log10(magnitude));
 				} else {
+					log_spec[i][j] = 10.0f * (-10);
+				}
+				if (log_spec[i][j] > maxValue) {
+					maxValue = log_spec[i][j];
 				}
 			}
 		}
 
-		double enorm[] = new double[n_mels];
-		for (int i = 0; i < n_mels; i++) {
-			enorm[i] = 2.0 / (melF[i + 2] - melF[i]);
-			for (int j = 0; j < fftFreqs.length; j++) {
-				weights[i][j] *= enorm[i];
+		// set top_db to 80.0
+		for (int i = 0; i < melS.length; i++) {
+			for (int j = 0; j < melS[0].length; j++) {
+				if (log_spec[i][j] < maxValue - 80.0f) {
+					log_spec[i][j] = maxValue - 80.0f;
+				}
 			}
 		}
-		return weights;
-
-		// need to check if there's an empty channel somewhere
-	}
-
-	/**
-	 * To get fft frequencies
-	 * 
-	 * @return
-	 */
-	private double[] fftFreq() {
-		// Alternative implementation of np.fft.fftfreqs
-		double[] freqs = new double[1 + n_fft / 2];
-		for (int i = 0; i < 1 + n_fft / 2; i++) {
-			freqs[i] = 0 + (sampleRate / 2) / (n_fft / 2) * i;
-		}
-		return freqs;
+		return log_spec;
 	}
 
 	/**
-	 * To get mel frequencies
+	 * This function is used to get the DCT (type-II, orthonormal) basis used for
+	 * mfcc. The basis is cached in DctBasis, which also picks the fast DCT when
+	 * n_mfcc is close to n_mels.
 	 * 
-	 * @param numMels
 	 * @return
 	 */
-	private double[] melFreq(int numMels) {
-		// 'Center freqs' of mel bands - uniformly spaced between limits
-		double[] LowFFreq = new double[1];
-		double[] HighFFreq = new double[1];
-		LowFFreq[0] = fMin;
-		HighFFreq[0] = fMax;
-		final double[] melFLow = freqToMel(LowFFreq);
-		final double[] melFHigh = freqToMel(HighFFreq);
-		double[] mels = new double[numMels];
-		for (int i = 0; i < numMels; i++) {
-			mels[i] = melFLow[0] + (melFHigh[0] - melFLow[0]) / (numMels - 1) * i;
-		}
-		return melToFreq(mels);
+	private DctBasis dctBasis() {
+		return DctBasis.get(n_mfcc, n_mels, DctBasis.ORTHO);
 	}
 
 	/**
-	 * To convert mel frequencies into hz frequencies
+	 * This function is used to get the Filterbank matrix to combine FFT bins into
+	 * Mel-frequency bins (Slaney scale and normalization, as librosa). The filter
+	 * bank is sparse and cached in MelFilterBank, so it is only built once per
+	 * configuration and the projection skips the zero weights.
 	 * 
-	 * @param mels
 	 * @return
 	 */
-	private double[] melToFreqS(double[] mels) {
-		double[] freqs = new double[mels.length];
-		for (int i = 0; i < mels.length; i++) {
-			freqs[i] = 700.0 * (Math.pow(10, mels[i] / 2595.0) - 1.0);
-		}
-		return freqs;
+	private MelFilterBank melFilterBank() {
+		return MelFilterBank.get(sampleRate, n_fft, n_mels, fMin, fMax, false, "slaney");
 	}
 
 	/**
-	 * To convert hz frequencies into mel frequencies.
+	 * To convert hz frequencies into mel frequencies (HTK formula).
 	 * 
 	 * @param freqs
 	 * @return
@@ -798,61 +696,21 @@ public class AudioFeatureExtraction {
 	protected double[] freqToMelS(double[] freqs) {
 		double[] mels = new double[freqs.length];
 		for (int i = 0; i < freqs.length; i++) {
-			mels[i] = 2595.0 * log10(1.0 + freqs[i] / 700.0);
+			mels[i] = MelFilterBank.hzToMel(freqs[i], true);
 		}
 		return mels;
 	}
 
 	/**
-	 * To convert mel frequencies into hz frequencies
-	 * 
-	 * @param mels
-	 * @return
-	 */
-	private double[] melToFreq(double[] mels) {
-		// Fill in the linear scale
-		final double f_min = 0.0;
-		final double f_sp = 200.0 / 3;
-		double[] freqs = new double[mels.length];
-
-		// And now the nonlinear scale
-		final double min_log_hz = 1000.0; // beginning of log region (Hz)
-		final double min_log_mel = (min_log_hz - f_min) / f_sp; // same (Mels)
-		final double logstep = Math.log(6.4) / 27.0;
-
-		for (int i = 0; i < mels.length; i++) {
-			if (mels[i] < min_log_mel) {
-				freqs[i] = f_min + f_sp * mels[i];
-			} else {
-				freqs[i] = min_log_hz * Math.exp(logstep * (mels[i] - min_log_mel));
-			}
-		}
-		return freqs;
-	}
-
-	/**
-	 * To convert hz frequencies into mel frequencies
+	 * To convert hz frequencies into mel frequencies (Slaney formula, as librosa).
 	 * 
 	 * @param freqs
 	 * @return
 	 */
 	protected double[] freqToMel(double[] freqs) {
-		final double f_min = 0.0;
-		final double f_sp = 200.0 / 3;
 		double[] mels = new double[freqs.length];
-
-		// Fill in the log-scale part
-
-		final double min_log_hz = 1000.0; // beginning of log region (Hz)
-		final double min_log_mel = (min_log_hz - f_min) / f_sp; // # same (Mels)
-		final double logstep = Math.log(6.4) / 27.0; // step size for log region
-
 		for (int i = 0; i < freqs.length; i++) {
-			if (freqs[i] < min_log_hz) {
-				mels[i] = (freqs[i] - f_min) / f_sp;
-			} else {
-				mels[i] = min_log_mel + Math.log(freqs[i] / min_log_hz) / logstep;
-			}
+			mels[i] = MelFilterBank.hzToMel(freqs[i], false);
 		}
 		return mels;
 	}
@@ -866,4 +724,83 @@ public class AudioFeatureExtraction {
 	private double log10(double value) {
 		return Math.log(value) / Math.log(10);
 	}
+
+	/**
+	 * Splits the clips [from, to) of a batch in halves, one clip per leaf task.
+	 */
+	private static final class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FrameView[] views;
+		private final int from;
+		private final int to;
+		private final WindowCache.Window window;
+		private final int n_fft;
+		private final Precision precision;
+		private final StftBatch out;
+
+		BatchTask(FrameView[] views, int from, int to, WindowCache.Window window, int n_fft, Precision precision,
+				StftBatch out) {
+			this.views = views;
+			this.from = from;
+			this.to = to;
+			this.window = window;
+			this.n_fft = n_fft;
+			this.precision = precision;
+			this.out = out;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				fillClips();
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new BatchTask(views, from, mid, window, n_fft, precision, out),
+					new BatchTask(views, mid, to, window, n_fft, precision, out));
+		}
+
+		void fillClips() {
+			if (precision == Precision.FLOAT) {
+				fillClipsFloat();
+				return;
+			}
+			DoubleFFT_1D fft = FFTPlanCache.doubleFFT(n_fft);
+			int freqBins = out.bins();
+			float[] data = out.getData();
+			double[] fftFrame = new double[n_fft];
+			double[] spectrum = new double[2 * freqBins];
+
+			for (int b = from; b < to; b++) {
+				FrameView frame = views[b];
+				for (int t = 0; t < frame.numFrames(); t++) {
+					frame.windowedFrame(t, window, fftFrame);
+					fft.realForward(fftFrame);
+					Utils.unpackRealForward(fftFrame, n_fft, spectrum, 0);
+
+					int offset = out.frameOffset(b, t);
+					for (int i = 0; i < 2 * freqBins; i++) {
+						data[offset + i] = (float) spectrum[i];
+					}
+				}
+			}
+		}
+
+		// float32: the packed spectrum is unpacked straight into the output tensor
+		private void fillClipsFloat() {
+			FloatFFT_1D fft = FFTPlanCache.floatFFT(n_fft);
+			float[] fftFrame = new float[n_fft];
+
+			for (int b = from; b < to; b++) {
+				FrameView frame = views[b];
+				for (int t = 0; t < frame.numFrames(); t++) {
+					frame.windowedFrame(t, window, fftFrame);
+					fft.realForward(fftFrame);
+					Utils.unpackRealForward(fftFrame, n_fft, out.getData(), out.frameOffset(b, t));
+				}
+			}
+		}
+	}
 }
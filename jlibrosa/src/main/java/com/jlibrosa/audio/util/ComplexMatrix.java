@@ -0,0 +1,205 @@
+package com.jlibrosa.audio.util;
+
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ * Matriz complexa [rows][cols] armazenada em um único double[] primitivo,
+ * com parte real e imaginária intercaladas (re, im).
+ *
+ * O layout é por colunas: cada coluna (um frame da STFT) ocupa um trecho
+ * contíguo de 2 * rows posições, de forma que a saída de uma FFT pode ser
+ * escrita diretamente na coluna correspondente.
+ *
+ * Substitui Complex[][] nos caminhos de STFT/iSTFT, que exigiam um objeto
+ * no heap para cada bin de cada frame.
+ *
+ * A matriz pode ser uma visão de um trecho de um array maior (ex: um canal
+ * de ComplexTensor); nesse caso as posições de index() e columnOffset() já
+ * incluem offset().
+ */
+public class ComplexMatrix {
+
+    private final int rows;
+    private final int cols;
+    private final double[] data;
+    private final int offset;
+
+    public ComplexMatrix(int rows, int cols) {
+        this(rows, cols, new double[checkedSize(rows, cols)]);
+    }
+
+    /**
+     * Cria a matriz sobre um array já existente (sem cópia).
+     *
+     * @param rows número de linhas (ex: bins de frequência)
+     * @param cols número de colunas (ex: frames)
+     * @param data array intercalado re/im, por colunas, de tamanho 2 * rows * cols
+     */
+    public ComplexMatrix(int rows, int cols, double[] data) {
+        this(rows, cols, data, 0);
+        if (data.length != 2L * rows * cols) {
+            throw new IllegalArgumentException(
+                    "Data length " + data.length + " does not match shape " + rows + " x " + cols);
+        }
+    }
+
+    /**
+     * Visão (sem cópia) das 2 * rows * cols posições de data a partir de offset.
+     */
+    public ComplexMatrix(int rows, int cols, double[] data, int offset) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix shape must not be negative: " + rows + " x " + cols);
+        }
+        if (offset < 0 || data.length - offset < 2L * rows * cols) {
+            throw new IllegalArgumentException("Data length " + data.length + " from offset " + offset
+                    + " does not fit shape " + rows + " x " + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+        this.offset = offset;
+    }
+
+    private static int checkedSize(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix shape must not be negative: " + rows + " x " + cols);
+        }
+        long size = 2L * rows * cols;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Matrix too large: " + size + " values");
+        }
+        return (int) size;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Array interno (sem cópia), intercalado re/im e ordenado por colunas.
+     * Em uma visão, a matriz começa em offset().
+     */
+    public double[] getData() {
+        return data;
+    }
+
+    /**
+     * Posição do elemento (0, 0) em getData().
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * Posição da parte real do elemento (row, col) em getData().
+     */
+    public int index(int row, int col) {
+        return offset + 2 * (col * rows + row);
+    }
+
+    /**
+     * Posição do primeiro elemento da coluna em getData().
+     */
+    public int columnOffset(int col) {
+        return offset + 2 * col * rows;
+    }
+
+    public double getReal(int row, int col) {
+        return data[index(row, col)];
+    }
+
+    public double getImag(int row, int col) {
+        return data[index(row, col) + 1];
+    }
+
+    public void set(int row, int col, double re, double im) {
+        int i = index(row, col);
+        data[i] = re;
+        data[i + 1] = im;
+    }
+
+    /**
+     * Módulo |z| do elemento (row, col).
+     */
+    public double abs(int row, int col) {
+        int i = index(row, col);
+        return Math.hypot(data[i], data[i + 1]);
+    }
+
+    /**
+     * Módulo ao quadrado |z|^2 do elemento (row, col), sem raiz quadrada.
+     */
+    public double absSquared(int row, int col) {
+        int i = index(row, col);
+        return data[i] * data[i] + data[i + 1] * data[i + 1];
+    }
+
+    public Complex get(int row, int col) {
+        int i = index(row, col);
+        return new Complex(data[i], data[i + 1]);
+    }
+
+    /**
+     * Copia a coluna (intercalada re/im) para dest, que deve ter pelo menos 2 * rows posições.
+     */
+    public double[] getColumn(int col, double[] dest) {
+        System.arraycopy(data, columnOffset(col), dest, 0, 2 * rows);
+        return dest;
+    }
+
+    public double[] getColumn(int col) {
+        return getColumn(col, new double[2 * rows]);
+    }
+
+    /**
+     * Copia a linha (intercalada re/im) para dest, que deve ter pelo menos 2 * cols posições.
+     */
+    public double[] getRow(int row, double[] dest) {
+        for (int col = 0; col < cols; col++) {
+            int i = index(row, col);
+            dest[2 * col] = data[i];
+            dest[2 * col + 1] = data[i + 1];
+        }
+        return dest;
+    }
+
+    public double[] getRow(int row) {
+        return getRow(row, new double[2 * cols]);
+    }
+
+    /**
+     * Conversão para o formato antigo Complex[rows][cols] (compatibilidade).
+     */
+    public Complex[][] toComplexArray() {
+        Complex[][] out = new Complex[rows][cols];
+        for (int col = 0; col < cols; col++) {
+            int i = columnOffset(col);
+            for (int row = 0; row < rows; row++, i += 2) {
+                out[row][col] = new Complex(data[i], data[i + 1]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Conversão a partir do formato antigo Complex[rows][cols] (compatibilidade).
+     */
+    public static ComplexMatrix fromComplexArray(Complex[][] values) {
+        int rows = values.length;
+        int cols = rows == 0 ? 0 : values[0].length;
+        ComplexMatrix matrix = new ComplexMatrix(rows, cols);
+        double[] data = matrix.data;
+        for (int col = 0; col < cols; col++) {
+            int i = matrix.columnOffset(col);
+            for (int row = 0; row < rows; row++, i += 2) {
+                data[i] = values[row][col].getReal();
+                data[i + 1] = values[row][col].getImaginary();
+            }
+        }
+        return matrix;
+    }
+}
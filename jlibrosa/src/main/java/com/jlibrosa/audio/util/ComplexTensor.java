@@ -0,0 +1,99 @@
+package com.jlibrosa.audio.util;
+
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ * Tensor complexo [channels][rows][cols] em um único double[] primitivo,
+ * ordenado por canal: cada canal é um bloco contíguo com o layout de
+ * ComplexMatrix (por colunas, re/im intercalados).
+ *
+ * channel(c) devolve uma ComplexMatrix que é uma visão (sem cópia) do canal,
+ * então tudo que escreve em ComplexMatrix (ex: a STFT mono) pode escrever
+ * direto no canal.
+ */
+public final class ComplexTensor {
+
+    private final int channels;
+    private final int rows;
+    private final int cols;
+    private final double[] data;
+    private final ComplexMatrix[] views;
+
+    public ComplexTensor(int channels, int rows, int cols) {
+        if (channels < 0 || rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Tensor shape must not be negative: " + channels + " x " + rows
+                    + " x " + cols);
+        }
+        long size = 2L * channels * rows * cols;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tensor too large: " + size + " values");
+        }
+        this.channels = channels;
+        this.rows = rows;
+        this.cols = cols;
+        this.data = new double[(int) size];
+        this.views = new ComplexMatrix[channels];
+        for (int c = 0; c < channels; c++) {
+            views[c] = new ComplexMatrix(rows, cols, data, channelOffset(c));
+        }
+    }
+
+    public int channels() {
+        return channels;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Array interno (sem cópia), ordenado por canal.
+     */
+    public double[] getData() {
+        return data;
+    }
+
+    /**
+     * Posição do início do canal em getData().
+     */
+    public int channelOffset(int channel) {
+        return 2 * channel * rows * cols;
+    }
+
+    /**
+     * Posição da parte real do elemento (channel, row, col) em getData().
+     */
+    public int index(int channel, int row, int col) {
+        return channelOffset(channel) + 2 * (col * rows + row);
+    }
+
+    /**
+     * Visão do canal como ComplexMatrix [rows][cols] (sem cópia).
+     */
+    public ComplexMatrix channel(int channel) {
+        return views[channel];
+    }
+
+    public double getReal(int channel, int row, int col) {
+        return data[index(channel, row, col)];
+    }
+
+    public double getImag(int channel, int row, int col) {
+        return data[index(channel, row, col) + 1];
+    }
+
+    /**
+     * Conversão para o formato antigo Complex[channels][rows][cols] (compatibilidade).
+     */
+    public Complex[][][] toComplexArray() {
+        Complex[][][] out = new Complex[channels][][];
+        for (int c = 0; c < channels; c++) {
+            out[c] = views[c].toComplexArray();
+        }
+        return out;
+    }
+}
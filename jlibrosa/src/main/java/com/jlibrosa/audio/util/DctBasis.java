@@ -0,0 +1,251 @@
+package com.jlibrosa.audio.util;
+
+import org.jtransforms.dct.DoubleDCT_1D;
+import org.jtransforms.dct.FloatDCT_1D;
+
+/**
+ * Base da DCT-II (scipy.fftpack.dct tipo 2, truncada em n_filters
+ * coeficientes), usada no MFCC: mfcc = base x espectrograma mel em dB.
+ *
+ * As bases ficam em cache por (n_filters, n_input, norm) num LruCache, como
+ * em FFTPlanCache e MelFilterBank, então os cossenos são calculados uma vez
+ * por configuração.
+ *
+ * apply escolhe o caminho mais barato: o produto com a base (MatrixOps,
+ * O(n_filters * n_input) por frame) ou, quando n_filters é próximo de
+ * n_input (sem passar dele), a DCT rápida do JTransforms
+ * (O(n_input log n_input) por frame) truncada nos primeiros n_filters
+ * coeficientes. Os dois caminhos diferem só por arredondamento (da ordem de
+ * 1e-14 relativo em double).
+ */
+public final class DctBasis {
+
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    /**
+     * Normalização ortonormal (norm='ortho' do librosa/scipy).
+     */
+    public static final String ORTHO = "ortho";
+
+    // A DCT rápida é usada a partir de n_filters >= 3/4 de n_input: medido com
+    // n_input = 128, o produto blocado ganha até aí (a DCT calcula todos os
+    // n_input coeficientes e depois descarta os que sobram)
+    private static final int FFT_NUMERATOR = 3;
+    private static final int FFT_DENOMINATOR = 4;
+
+    private final int nFilters;
+    private final int nInput;
+    private final boolean ortho;
+    private final double[][] basis;
+    private final float[][] floatBasis;
+
+    private DctBasis(int nFilters, int nInput, boolean ortho) {
+        this.nFilters = nFilters;
+        this.nInput = nInput;
+        this.ortho = ortho;
+        this.basis = new double[nFilters][nInput];
+        this.floatBasis = new float[nFilters][nInput];
+
+        double[] samples = new double[nInput];
+        for (int j = 0; j < nInput; j++) {
+            samples[j] = (1 + 2 * j) * Math.PI / (2.0 * nInput);
+        }
+        for (int i = 0; i < nFilters; i++) {
+            for (int j = 0; j < nInput; j++) {
+                if (i == 0) {
+                    basis[i][j] = ortho ? 1.0 / Math.sqrt(nInput) : 2.0;
+                } else {
+                    basis[i][j] = Math.cos(i * samples[j]) * (ortho ? Math.sqrt(2.0 / nInput) : 2.0);
+                }
+                floatBasis[i][j] = (float) basis[i][j];
+            }
+        }
+    }
+
+    public int nFilters() {
+        return nFilters;
+    }
+
+    public int nInput() {
+        return nInput;
+    }
+
+    public double get(int filter, int input) {
+        return basis[filter][input];
+    }
+
+    /**
+     * Cópia da base [n_filters][n_input].
+     */
+    public double[][] toArray() {
+        double[][] copy = new double[nFilters][];
+        for (int i = 0; i < nFilters; i++) {
+            copy[i] = basis[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * true quando apply usa a DCT rápida em vez do produto com a base.
+     */
+    public boolean usesFft() {
+        return nFilters <= nInput && nFilters * FFT_DENOMINATOR >= nInput * FFT_NUMERATOR;
+    }
+
+    /**
+     * DCT-II de cada coluna: [n_input][frames] -> [n_filters][frames].
+     */
+    public double[][] apply(double[][] x) {
+        checkInput(x.length);
+        if (!usesFft()) {
+            return MatrixOps.multiply(basis, x);
+        }
+        return applyFft(x);
+    }
+
+    /**
+     * Mesma DCT em float32 (Precision.FLOAT).
+     */
+    public float[][] apply(float[][] x) {
+        checkInput(x.length);
+        if (!usesFft()) {
+            return MatrixOps.multiply(floatBasis, x);
+        }
+        return applyFft(x);
+    }
+
+    private double[][] applyFft(final double[][] x) {
+        final int frames = x.length == 0 ? 0 : x[0].length;
+        final double[][] out = new double[nFilters][frames];
+        final DoubleDCT_1D dct = FFTPlanCache.doubleDCT(nInput);
+        MatrixOps.forColumns(frames, new MatrixOps.ColumnKernel() {
+            @Override
+            public void apply(int from, int to) {
+                double[] column = new double[nInput];
+                for (int t = from; t < to; t++) {
+                    for (int j = 0; j < nInput; j++) {
+                        column[j] = x[j][t];
+                    }
+                    // scale = true: DCT-II ortonormal
+                    dct.forward(column, true);
+                    for (int i = 0; i < nFilters; i++) {
+                        out[i][t] = column[i] * unscale(i);
+                    }
+                }
+            }
+        });
+        return out;
+    }
+
+    private float[][] applyFft(final float[][] x) {
+        final int frames = x.length == 0 ? 0 : x[0].length;
+        final float[][] out = new float[nFilters][frames];
+        final FloatDCT_1D dct = FFTPlanCache.floatDCT(nInput);
+        MatrixOps.forColumns(frames, new MatrixOps.ColumnKernel() {
+            @Override
+            public void apply(int from, int to) {
+                float[] column = new float[nInput];
+                for (int t = from; t < to; t++) {
+                    for (int j = 0; j < nInput; j++) {
+                        column[j] = x[j][t];
+                    }
+                    dct.forward(column, true);
+                    for (int i = 0; i < nFilters; i++) {
+                        out[i][t] = (float) (column[i] * unscale(i));
+                    }
+                }
+            }
+        });
+        return out;
+    }
+
+    // Fator que leva a DCT ortonormal para a normalização desta base
+    private double unscale(int i) {
+        if (ortho) {
+            return 1.0;
+        }
+        return 2.0 / (i == 0 ? Math.sqrt(1.0 / nInput) : Math.sqrt(2.0 / nInput));
+    }
+
+    private void checkInput(int rows) {
+        if (rows != nInput) {
+            throw new IllegalArgumentException("Input must have " + nInput + " rows, got " + rows);
+        }
+    }
+
+    // -----------------------------
+    // Cache
+    // -----------------------------
+
+    private static final class Key {
+        private final int nFilters;
+        private final int nInput;
+        private final boolean ortho;
+
+        Key(int nFilters, int nInput, boolean ortho) {
+            this.nFilters = nFilters;
+            this.nInput = nInput;
+            this.ortho = ortho;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return nFilters == other.nFilters && nInput == other.nInput && ortho == other.ortho;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * nFilters + nInput) + (ortho ? 1 : 0);
+        }
+    }
+
+    private static final LruCache<Key, DctBasis> BASES = new LruCache<Key, DctBasis>(DEFAULT_MAX_ENTRIES);
+
+    /**
+     * Base da DCT-II, do cache.
+     *
+     * @param nFilters número de coeficientes (n_mfcc)
+     * @param nInput   tamanho da entrada (n_mels)
+     * @param norm     ORTHO ou null (sem normalização, como scipy)
+     * @throws IllegalArgumentException se norm não for suportado ou os tamanhos forem inválidos
+     */
+    public static DctBasis get(int nFilters, int nInput, String norm) {
+        if (norm != null && !norm.equals(ORTHO)) {
+            throw new IllegalArgumentException("Unsupported DCT norm: " + norm);
+        }
+        if (nFilters <= 0 || nInput <= 0) {
+            throw new IllegalArgumentException("n_filters and n_input must be positive");
+        }
+        Key key = new Key(nFilters, nInput, norm != null);
+        DctBasis basis = BASES.get(key);
+        if (basis == null) {
+            // Construída fora do cache; se outra thread guardou a mesma base
+            // nesse meio tempo, a já guardada é a que prevalece
+            basis = BASES.putIfAbsent(key, new DctBasis(nFilters, nInput, norm != null));
+        }
+        return basis;
+    }
+
+    public static int getMaxEntries() {
+        return BASES.getMaxEntries();
+    }
+
+    /**
+     * Define o número máximo de bases mantidas; as excedentes são descartadas.
+     */
+    public static void setMaxEntries(int max) {
+        BASES.setMaxEntries(max);
+    }
+
+    public static int size() {
+        return BASES.size();
+    }
+
+    public static void clear() {
+        BASES.clear();
+    }
+}
@@ -0,0 +1,123 @@
+package com.jlibrosa.audio.util;
+
+import org.jtransforms.dct.DoubleDCT_1D;
+import org.jtransforms.dct.FloatDCT_1D;
+import org.jtransforms.fft.DoubleFFT_1D;
+import org.jtransforms.fft.FloatFFT_1D;
+
+/**
+ * Cache de planos FFT (e DCT) do JTransforms, compartilhado por STFT,
+ * Utils.fft, DctBasis e pela construção de filtros.
+ *
+ * Criar um DoubleFFT_1D/FloatFFT_1D calcula as tabelas de twiddle factors,
+ * o que custa mais que a própria FFT para sinais curtos. Os planos são
+ * imutáveis após a construção e podem ser usados por várias threads ao
+ * mesmo tempo, então uma única instância por (tipo, tamanho, precisão) basta.
+ *
+ * O cache é limitado (LruCache): ao passar de getMaxPlans() entradas, o
+ * plano usado há mais tempo é descartado. Os planos são construídos fora
+ * do cache; se outra thread guardou o mesmo tamanho nesse meio tempo, o
+ * plano já guardado é o que prevalece.
+ */
+public final class FFTPlanCache {
+
+    public static final int DEFAULT_MAX_PLANS = 32;
+
+    private static final class Key {
+        private final Precision precision;
+        private final long size;
+        private final boolean dct;
+
+        Key(Precision precision, long size, boolean dct) {
+            this.precision = precision;
+            this.size = size;
+            this.dct = dct;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return precision == other.precision && size == other.size && dct == other.dct;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * precision.hashCode() + Long.hashCode(size)) + (dct ? 1 : 0);
+        }
+    }
+
+    private static final LruCache<Key, Object> PLANS = new LruCache<Key, Object>(DEFAULT_MAX_PLANS);
+
+    private FFTPlanCache() {
+    }
+
+    /**
+     * Plano FFT em precisão dupla para sinais de tamanho n.
+     */
+    public static DoubleFFT_1D doubleFFT(long n) {
+        Key key = new Key(Precision.DOUBLE, n, false);
+        Object plan = PLANS.get(key);
+        if (plan == null) {
+            plan = PLANS.putIfAbsent(key, new DoubleFFT_1D(n));
+        }
+        return (DoubleFFT_1D) plan;
+    }
+
+    /**
+     * Plano FFT em precisão simples para sinais de tamanho n.
+     */
+    public static FloatFFT_1D floatFFT(long n) {
+        Key key = new Key(Precision.FLOAT, n, false);
+        Object plan = PLANS.get(key);
+        if (plan == null) {
+            plan = PLANS.putIfAbsent(key, new FloatFFT_1D(n));
+        }
+        return (FloatFFT_1D) plan;
+    }
+
+    /**
+     * Plano DCT em precisão dupla para sinais de tamanho n.
+     */
+    public static DoubleDCT_1D doubleDCT(long n) {
+        Key key = new Key(Precision.DOUBLE, n, true);
+        Object plan = PLANS.get(key);
+        if (plan == null) {
+            plan = PLANS.putIfAbsent(key, new DoubleDCT_1D(n));
+        }
+        return (DoubleDCT_1D) plan;
+    }
+
+    /**
+     * Plano DCT em precisão simples para sinais de tamanho n.
+     */
+    public static FloatDCT_1D floatDCT(long n) {
+        Key key = new Key(Precision.FLOAT, n, true);
+        Object plan = PLANS.get(key);
+        if (plan == null) {
+            plan = PLANS.putIfAbsent(key, new FloatDCT_1D(n));
+        }
+        return (FloatDCT_1D) plan;
+    }
+
+    public static int getMaxPlans() {
+        return PLANS.getMaxEntries();
+    }
+
+    /**
+     * Define o número máximo de planos mantidos; os excedentes são descartados.
+     */
+    public static void setMaxPlans(int max) {
+        PLANS.setMaxEntries(max);
+    }
+
+    public static int size() {
+        return PLANS.size();
+    }
+
+    public static void clear() {
+        PLANS.clear();
+    }
+}
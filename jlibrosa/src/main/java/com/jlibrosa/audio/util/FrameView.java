@@ -0,0 +1,296 @@
+package com.jlibrosa.audio.util;
+
+/**
+ * Visão em frames de um sinal, sem cópia: equivalente a Utils.frame, mas os
+ * frames são lidos direto do array de origem (offset + frame * hop).
+ *
+ * O sinal visto é signal[offset, offset + length) com padLeft amostras de
+ * padding virtual antes e padRight depois, no modo escolhido (PadMode). O
+ * padding nunca é materializado: as amostras fora do trecho são geradas na
+ * leitura, como np.pad faria sobre o trecho.
+ *
+ * A origem pode ser double[] ou float[] (amostras lidas do WAV), evitando
+ * também a cópia de conversão para double.
+ */
+public final class FrameView {
+
+    /**
+     * Modos de padding suportados (mesma semântica de np.pad).
+     */
+    public enum PadMode {
+        CONSTANT, REFLECT, EDGE;
+
+        /**
+         * Converte o nome usado no librosa ("constant", "reflect", "edge").
+         *
+         * @return o modo, ou null se não for suportado
+         */
+        public static PadMode fromString(String mode) {
+            if (mode == null) {
+                return null;
+            }
+            switch (mode) {
+                case "constant":
+                    return CONSTANT;
+                case "reflect":
+                    return REFLECT;
+                case "edge":
+                    return EDGE;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private final double[] signal;
+    private final float[] floatSignal;
+    private final int offset;
+    private final int length;
+    private final int padLeft;
+    private final int padRight;
+    private final PadMode padMode;
+    private final int frameLength;
+    private final int hopLength;
+    private final int numFrames;
+
+    /**
+     * Visão com padding constante (zeros).
+     */
+    public FrameView(double[] signal, int offset, int length, int padLeft, int padRight,
+            int frameLength, int hopLength) {
+        this(signal, offset, length, padLeft, padRight, PadMode.CONSTANT, frameLength, hopLength);
+    }
+
+    /**
+     * @param signal      array de origem (não é copiado)
+     * @param offset      início do trecho em signal
+     * @param length      número de amostras do trecho
+     * @param padLeft     amostras de padding virtual à esquerda
+     * @param padRight    amostras de padding virtual à direita
+     * @param padMode     modo do padding virtual
+     * @param frameLength tamanho de cada frame
+     * @param hopLength   distância entre o início de frames consecutivos
+     * @throws Utils.ParameterError se o sinal (com padding) for menor que um frame
+     */
+    public FrameView(double[] signal, int offset, int length, int padLeft, int padRight,
+            PadMode padMode, int frameLength, int hopLength) {
+        this(signal, null, signal == null ? -1 : signal.length, offset, length, padLeft, padRight, padMode,
+                frameLength, hopLength, -1);
+    }
+
+    /**
+     * Mesma visão sobre amostras float (convertidas para double na leitura).
+     */
+    public FrameView(float[] signal, int offset, int length, int padLeft, int padRight,
+            PadMode padMode, int frameLength, int hopLength) {
+        this(null, signal, signal == null ? -1 : signal.length, offset, length, padLeft, padRight, padMode,
+                frameLength, hopLength, -1);
+    }
+
+    private FrameView(double[] signal, float[] floatSignal, int sourceLength, int offset, int length,
+            int padLeft, int padRight, PadMode padMode, int frameLength, int hopLength, int maxFrames) {
+        if (sourceLength < 0 || length <= 0)
+            throw new Utils.ParameterError("Input array cannot be null or empty");
+
+        if (offset < 0 || offset + length > sourceLength)
+            throw new Utils.ParameterError("Invalid signal range [" + offset + ", " + (offset + length) + ")");
+
+        if (padLeft < 0 || padRight < 0)
+            throw new Utils.ParameterError("Padding must not be negative");
+
+        if (padMode == null)
+            throw new Utils.ParameterError("Padding mode must not be null");
+
+        if (frameLength <= 0)
+            throw new Utils.ParameterError("frame_length must be positive");
+
+        if (hopLength < 1)
+            throw new Utils.ParameterError("Invalid hop_length: " + hopLength);
+
+        int paddedLength = padLeft + length + padRight;
+        if (paddedLength < frameLength)
+            throw new Utils.ParameterError(
+                String.format("Input is too short (n=%d) for frame_length=%d", paddedLength, frameLength)
+            );
+
+        this.signal = signal;
+        this.floatSignal = floatSignal;
+        this.offset = offset;
+        this.length = length;
+        this.padLeft = padLeft;
+        this.padRight = padRight;
+        this.padMode = padMode;
+        this.frameLength = frameLength;
+        this.hopLength = hopLength;
+
+        int frames = 1 + (paddedLength - frameLength) / hopLength;
+        this.numFrames = maxFrames < 0 ? frames : Math.min(frames, maxFrames);
+    }
+
+    /**
+     * Frames de todo o sinal, sem padding (mesmos frames de Utils.frame).
+     */
+    public static FrameView of(double[] signal, int frameLength, int hopLength) {
+        return new FrameView(signal, 0, signal == null ? 0 : signal.length, 0, 0, frameLength, hopLength);
+    }
+
+    /**
+     * Mesma visão, limitada aos primeiros maxFrames frames.
+     */
+    public FrameView limit(int maxFrames) {
+        return new FrameView(signal, floatSignal, signal != null ? signal.length : floatSignal.length, offset,
+                length, padLeft, padRight, padMode, frameLength, hopLength, Math.max(0, maxFrames));
+    }
+
+    /**
+     * Mesma visão (trecho, padding e frames) sobre outro sinal de mesmo
+     * tamanho, por exemplo outro canal da mesma gravação.
+     */
+    public FrameView over(double[] other) {
+        int sourceLength = signal != null ? signal.length : floatSignal.length;
+        if (other == null || other.length != sourceLength) {
+            throw new Utils.ParameterError("Signal length must be " + sourceLength);
+        }
+        return new FrameView(other, null, other.length, offset, length, padLeft, padRight, padMode, frameLength,
+                hopLength, numFrames);
+    }
+
+    public int numFrames() {
+        return numFrames;
+    }
+
+    public int frameLength() {
+        return frameLength;
+    }
+
+    public int hopLength() {
+        return hopLength;
+    }
+
+    public PadMode padMode() {
+        return padMode;
+    }
+
+    /**
+     * Tamanho do sinal visto, incluindo o padding virtual.
+     */
+    public int paddedLength() {
+        return padLeft + length + padRight;
+    }
+
+    /**
+     * Amostra i do frame (índices no sinal com padding).
+     */
+    public double get(int frame, int i) {
+        return sampleAt(frame * hopLength + i);
+    }
+
+    /**
+     * Amostra na posição p do sinal com padding, 0 <= p < paddedLength().
+     */
+    public double sampleAt(int p) {
+        int i = p - padLeft;
+        if (i < 0 || i >= length) {
+            if (padMode == PadMode.CONSTANT) {
+                return 0.0;
+            }
+            i = padIndex(i);
+        }
+        return signal != null ? signal[offset + i] : floatSignal[offset + i];
+    }
+
+    /**
+     * Copia o frame para dest a partir de destOffset.
+     */
+    public void copyFrame(int frame, double[] dest, int destOffset) {
+        int start = frame * hopLength - padLeft;
+        if (start >= 0 && start + frameLength <= length) {
+            int base = offset + start;
+            if (signal != null) {
+                System.arraycopy(signal, base, dest, destOffset, frameLength);
+            } else {
+                for (int i = 0; i < frameLength; i++) {
+                    dest[destOffset + i] = floatSignal[base + i];
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < frameLength; i++) {
+            dest[destOffset + i] = sampleAt(frame * hopLength + i);
+        }
+    }
+
+    /**
+     * dest[i] = frame[i] * window[i], para i em [0, frameLength).
+     */
+    public void windowedFrame(int frame, double[] window, double[] dest) {
+        int start = frame * hopLength - padLeft;
+        if (start >= 0 && start + frameLength <= length) {
+            int base = offset + start;
+            if (signal != null) {
+                for (int i = 0; i < frameLength; i++) {
+                    dest[i] = signal[base + i] * window[i];
+                }
+            } else {
+                for (int i = 0; i < frameLength; i++) {
+                    dest[i] = floatSignal[base + i] * window[i];
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < frameLength; i++) {
+            dest[i] = sampleAt(frame * hopLength + i) * window[i];
+        }
+    }
+
+    /**
+     * Mesmo que windowedFrame(frame, window.toArray(), dest), sem copiar a janela.
+     */
+    public void windowedFrame(int frame, WindowCache.Window window, double[] dest) {
+        windowedFrame(frame, window.values(), dest);
+    }
+
+    /**
+     * Versão float: dest[i] = (float) frame[i] * window[i].
+     */
+    public void windowedFrame(int frame, float[] window, float[] dest) {
+        int start = frame * hopLength - padLeft;
+        if (start >= 0 && start + frameLength <= length) {
+            int base = offset + start;
+            if (floatSignal != null) {
+                for (int i = 0; i < frameLength; i++) {
+                    dest[i] = floatSignal[base + i] * window[i];
+                }
+            } else {
+                for (int i = 0; i < frameLength; i++) {
+                    dest[i] = (float) signal[base + i] * window[i];
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < frameLength; i++) {
+            dest[i] = (float) sampleAt(frame * hopLength + i) * window[i];
+        }
+    }
+
+    /**
+     * Mesmo que windowedFrame(frame, window.toFloatArray(), dest), sem copiar a janela.
+     */
+    public void windowedFrame(int frame, WindowCache.Window window, float[] dest) {
+        windowedFrame(frame, window.floatValues(), dest);
+    }
+
+    // Índice dentro do trecho para uma posição i fora de [0, length)
+    private int padIndex(int i) {
+        if (padMode == PadMode.EDGE || length == 1) {
+            return i < 0 ? 0 : length - 1;
+        }
+        // REFLECT: espelho sem repetir a borda, periódico com período 2 * (length - 1)
+        int period = 2 * (length - 1);
+        int k = i % period;
+        if (k < 0) {
+            k += period;
+        }
+        return k < length ? k : period - k;
+    }
+}
@@ -0,0 +1,122 @@
+package com.jlibrosa.audio.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache LRU limitado por número de entradas, seguro para várias threads,
+ * usado pelos caches de planos, janelas e bases (FFTPlanCache, WindowCache,
+ * MelFilterBank, DctBasis, CqtPlan).
+ *
+ * Leituras não travam: cada entrada guarda o instante do último acesso
+ * (um contador global). Só quando uma inserção passa de getMaxEntries() o
+ * cache procura e descarta as entradas acessadas há mais tempo; isso
+ * percorre as entradas, o que é barato para os poucos valores (caros de
+ * construir) que esses caches guardam.
+ *
+ * Os valores são construídos pelo chamador fora do cache; se duas threads
+ * guardam a mesma chave, putIfAbsent devolve o valor guardado primeiro.
+ */
+public final class LruCache<K, V> {
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile long lastAccess;
+
+        Entry(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+    private final AtomicLong clock = new AtomicLong();
+    private final Object evictionLock = new Object();
+    private volatile int maxEntries;
+
+    /**
+     * @throws IllegalArgumentException se maxEntries não for positivo
+     */
+    public LruCache(int maxEntries) {
+        checkMax(maxEntries);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Valor guardado para key, ou null.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Guarda value se key ainda não tem valor.
+     *
+     * @return o valor que ficou no cache (value, ou o que já estava guardado)
+     */
+    public V putIfAbsent(K key, V value) {
+        Entry<V> existing = entries.putIfAbsent(key, new Entry<V>(value, clock.incrementAndGet()));
+        if (existing != null) {
+            existing.lastAccess = clock.incrementAndGet();
+            return existing.value;
+        }
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+        return value;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Define o número máximo de entradas mantidas; as excedentes são descartadas.
+     */
+    public void setMaxEntries(int max) {
+        checkMax(max);
+        maxEntries = max;
+        evict();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // Descarta as entradas acessadas há mais tempo até caber no limite
+    private void evict() {
+        synchronized (evictionLock) {
+            while (entries.size() > maxEntries) {
+                K eldest = null;
+                long oldest = Long.MAX_VALUE;
+                for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                    long access = e.getValue().lastAccess;
+                    if (access < oldest) {
+                        oldest = access;
+                        eldest = e.getKey();
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                entries.remove(eldest);
+            }
+        }
+    }
+
+    private static void checkMax(int max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.jlibrosa.audio.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Produto de matrizes densas (double[][] e float[][], por linhas) usado nas
+ * projeções do MFCC: base da DCT x espectrograma mel e, via forColumns, a
+ * projeção mel esparsa de MelFilterBank.
+ *
+ * O laço ingênuo i-j-k percorre b[k][j] descendo colunas, uma linha de cache
+ * por multiplicação. Aqui a ordem é i-k-j (a linha de b é lida em sequência)
+ * e as colunas (frames) são processadas em blocos de COLUMN_BLOCK, com k em
+ * blocos de INNER_BLOCK, para que o trecho de b e de c usado fique no cache.
+ * Cada c[i][j] continua somando k em ordem crescente, então o resultado é
+ * idêntico ao do laço ingênuo.
+ *
+ * Com pelo menos getParallelColumnThreshold() colunas, os blocos de colunas
+ * são divididos entre as threads do ForkJoinPool (cada thread escreve em
+ * colunas distintas de c).
+ */
+public final class MatrixOps {
+
+    /**
+     * Número mínimo de colunas (frames) para dividir o produto entre threads.
+     */
+    public static final int DEFAULT_PARALLEL_COLUMN_THRESHOLD = 1024;
+
+    // Colunas de b e c por bloco (256 doubles = 2 KB por linha)
+    static final int COLUMN_BLOCK = 256;
+    // Linhas de b por bloco
+    static final int INNER_BLOCK = 64;
+
+    private static volatile int parallelColumnThreshold = DEFAULT_PARALLEL_COLUMN_THRESHOLD;
+
+    private static volatile ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+
+    private MatrixOps() {
+    }
+
+    public static int getParallelColumnThreshold() {
+        return parallelColumnThreshold;
+    }
+
+    /**
+     * Define a partir de quantas colunas o produto é calculado em paralelo.
+     * Integer.MAX_VALUE desliga o modo paralelo.
+     */
+    public static void setParallelColumnThreshold(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        parallelColumnThreshold = threshold;
+    }
+
+    public static ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * Pool usado no modo paralelo (padrão: ForkJoinPool.commonPool()).
+     */
+    public static void setForkJoinPool(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        forkJoinPool = pool;
+    }
+
+    /**
+     * c = a * b.
+     *
+     * @param a [m][n]
+     * @param b [n][p]
+     * @return [m][p]
+     */
+    public static double[][] multiply(final double[][] a, final double[][] b) {
+        final int inner = checkShapes(a.length == 0 ? 0 : a[0].length, b.length);
+        final int cols = b.length == 0 ? 0 : b[0].length;
+        final double[][] c = new double[a.length][cols];
+        forColumns(cols, new ColumnKernel() {
+            @Override
+            public void apply(int from, int to) {
+                for (int j0 = from; j0 < to; j0 += COLUMN_BLOCK) {
+                    int j1 = Math.min(j0 + COLUMN_BLOCK, to);
+                    for (int k0 = 0; k0 < inner; k0 += INNER_BLOCK) {
+                        int k1 = Math.min(k0 + INNER_BLOCK, inner);
+                        for (int i = 0; i < a.length; i++) {
+                            double[] aRow = a[i];
+                            double[] cRow = c[i];
+                            for (int k = k0; k < k1; k++) {
+                                double weight = aRow[k];
+                                double[] bRow = b[k];
+                                for (int j = j0; j < j1; j++) {
+                                    cRow[j] += weight * bRow[j];
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return c;
+    }
+
+    /**
+     * c = a * b em float32 (Precision.FLOAT).
+     */
+    public static float[][] multiply(final float[][] a, final float[][] b) {
+        final int inner = checkShapes(a.length == 0 ? 0 : a[0].length, b.length);
+        final int cols = b.length == 0 ? 0 : b[0].length;
+        final float[][] c = new float[a.length][cols];
+        forColumns(cols, new ColumnKernel() {
+            @Override
+            public void apply(int from, int to) {
+                for (int j0 = from; j0 < to; j0 += COLUMN_BLOCK) {
+                    int j1 = Math.min(j0 + COLUMN_BLOCK, to);
+                    for (int k0 = 0; k0 < inner; k0 += INNER_BLOCK) {
+                        int k1 = Math.min(k0 + INNER_BLOCK, inner);
+                        for (int i = 0; i < a.length; i++) {
+                            float[] aRow = a[i];
+                            float[] cRow = c[i];
+                            for (int k = k0; k < k1; k++) {
+                                float weight = aRow[k];
+                                float[] bRow = b[k];
+                                for (int j = j0; j < j1; j++) {
+                                    cRow[j] += weight * bRow[j];
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return c;
+    }
+
+    /**
+     * Trabalho sobre as colunas [from, to) de um produto; intervalos distintos
+     * não podem escrever nas mesmas posições.
+     */
+    interface ColumnKernel {
+        void apply(int from, int to);
+    }
+
+    /**
+     * Executa kernel sobre as colunas [0, cols), em paralelo a partir de
+     * parallelColumnThreshold colunas. Os pedaços são múltiplos de COLUMN_BLOCK.
+     */
+    static void forColumns(int cols, ColumnKernel kernel) {
+        ForkJoinPool pool = forkJoinPool;
+        if (cols >= parallelColumnThreshold && cols > COLUMN_BLOCK && pool.getParallelism() > 1) {
+            int blocks = (cols + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+            int grain = Math.max(1, blocks / (4 * pool.getParallelism()));
+            ColumnTask task = new ColumnTask(kernel, 0, blocks, grain, cols);
+            if (ForkJoinTask.getPool() == pool) {
+                task.invoke();
+            } else {
+                pool.invoke(task);
+            }
+        } else {
+            kernel.apply(0, cols);
+        }
+    }
+
+    private static int checkShapes(int aCols, int bRows) {
+        if (aCols != bRows) {
+            throw new IllegalArgumentException("Matrix shapes do not match: " + aCols + " columns x " + bRows + " rows");
+        }
+        return aCols;
+    }
+
+    /**
+     * Divide o intervalo de blocos de colunas [from, to) ao meio até atingir grain blocos.
+     */
+    private static final class ColumnTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ColumnKernel kernel;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final int cols;
+
+        ColumnTask(ColumnKernel kernel, int from, int to, int grain, int cols) {
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.cols = cols;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                kernel.apply(from * COLUMN_BLOCK, Math.min(to * COLUMN_BLOCK, cols));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ColumnTask(kernel, from, mid, grain, cols), new ColumnTask(kernel, mid, to, grain, cols));
+        }
+    }
+}
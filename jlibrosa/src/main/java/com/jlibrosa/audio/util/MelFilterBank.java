@@ -0,0 +1,361 @@
+package com.jlibrosa.audio.util;
+
+/**
+ * Banco de filtros mel esparso e imutável, equivalente a librosa.filters.mel.
+ *
+ * Cada banda é um triângulo que cobre poucos bins da FFT, então mais de 90%
+ * da matriz densa n_mels x (1 + n_fft/2) é zero. Aqui cada banda guarda só o
+ * intervalo [start, end) dos bins não nulos e os pesos desse intervalo; a
+ * projeção (apply) percorre apenas esses bins, na mesma ordem da
+ * multiplicação densa, então o resultado em double é idêntico a ela.
+ *
+ * Os bancos ficam em cache por (sr, n_fft, n_mels, fmin, fmax, htk, norm),
+ * num LruCache, como em FFTPlanCache e WindowCache.
+ */
+public final class MelFilterBank {
+
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private final int nMels;
+    private final int nBins;
+    private final int[] start;
+    private final int[] end;
+    // Pesos da banda m em weights[offset[m], offset[m] + end[m] - start[m])
+    private final int[] offset;
+    private final double[] weights;
+    private final float[] floatWeights;
+
+    private MelFilterBank(double[][] dense) {
+        this.nMels = dense.length;
+        this.nBins = nMels == 0 ? 0 : dense[0].length;
+        this.start = new int[nMels];
+        this.end = new int[nMels];
+        this.offset = new int[nMels];
+
+        int total = 0;
+        for (int m = 0; m < nMels; m++) {
+            int first = 0;
+            while (first < nBins && dense[m][first] == 0) {
+                first++;
+            }
+            int last = nBins;
+            while (last > first && dense[m][last - 1] == 0) {
+                last--;
+            }
+            start[m] = first;
+            end[m] = last;
+            offset[m] = total;
+            total += last - first;
+        }
+
+        this.weights = new double[total];
+        this.floatWeights = new float[total];
+        for (int m = 0; m < nMels; m++) {
+            for (int k = start[m]; k < end[m]; k++) {
+                weights[offset[m] + k - start[m]] = dense[m][k];
+                floatWeights[offset[m] + k - start[m]] = (float) dense[m][k];
+            }
+        }
+    }
+
+    public int nMels() {
+        return nMels;
+    }
+
+    /**
+     * Número de bins da FFT (1 + n_fft/2).
+     */
+    public int nBins() {
+        return nBins;
+    }
+
+    /**
+     * Primeiro bin não nulo da banda.
+     */
+    public int start(int band) {
+        return start[band];
+    }
+
+    /**
+     * Fim (exclusivo) dos bins não nulos da banda.
+     */
+    public int end(int band) {
+        return end[band];
+    }
+
+    /**
+     * Peso do bin na banda (zero fora de [start, end)).
+     */
+    public double weight(int band, int bin) {
+        if (bin < start[band] || bin >= end[band]) {
+            return 0.0;
+        }
+        return weights[offset[band] + bin - start[band]];
+    }
+
+    /**
+     * Número de pesos guardados (soma dos tamanhos dos intervalos das bandas).
+     */
+    public int nonZeros() {
+        return weights.length;
+    }
+
+    /**
+     * Matriz densa [n_mels][1 + n_fft/2], como a de librosa.filters.mel.
+     */
+    public double[][] toDense() {
+        double[][] dense = new double[nMels][nBins];
+        for (int m = 0; m < nMels; m++) {
+            System.arraycopy(weights, offset[m], dense[m], start[m], end[m] - start[m]);
+        }
+        return dense;
+    }
+
+    /**
+     * Projeção mel: mel[m][t] = soma dos pesos da banda m vezes spectrogram[k][t].
+     * Os frames são processados em blocos (e divididos entre threads em
+     * espectrogramas longos) como em MatrixOps.multiply.
+     *
+     * @param spectrogram [1 + n_fft/2][frames]
+     * @return [n_mels][frames]
+     */
+    public double[][] apply(final double[][] spectrogram) {
+        checkBins(spectrogram.length);
+        int frames = spectrogram.length == 0 ? 0 : spectrogram[0].length;
+        final double[][] mel = new double[nMels][frames];
+        MatrixOps.forColumns(frames, new MatrixOps.ColumnKernel() {
+            @Override
+            public void apply(int from, int to) {
+                for (int t0 = from; t0 < to; t0 += MatrixOps.COLUMN_BLOCK) {
+                    int t1 = Math.min(t0 + MatrixOps.COLUMN_BLOCK, to);
+                    for (int m = 0; m < nMels; m++) {
+                        double[] row = mel[m];
+                        for (int k = start[m], w = offset[m]; k < end[m]; k++, w++) {
+                            double weight = weights[w];
+                            double[] bin = spectrogram[k];
+                            for (int t = t0; t < t1; t++) {
+                                row[t] += weight * bin[t];
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return mel;
+    }
+
+    /**
+     * Mesma projeção em float32 (Precision.FLOAT), com os pesos em float.
+     */
+    public float[][] apply(final float[][] spectrogram) {
+        checkBins(spectrogram.length);
+        int frames = spectrogram.length == 0 ? 0 : spectrogram[0].length;
+        final float[][] mel = new float[nMels][frames];
+        MatrixOps.forColumns(frames, new MatrixOps.ColumnKernel() {
+            @Override
+            public void apply(int from, int to) {
+                for (int t0 = from; t0 < to; t0 += MatrixOps.COLUMN_BLOCK) {
+                    int t1 = Math.min(t0 + MatrixOps.COLUMN_BLOCK, to);
+                    for (int m = 0; m < nMels; m++) {
+                        float[] row = mel[m];
+                        for (int k = start[m], w = offset[m]; k < end[m]; k++, w++) {
+                            float weight = floatWeights[w];
+                            float[] bin = spectrogram[k];
+                            for (int t = t0; t < t1; t++) {
+                                row[t] += weight * bin[t];
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return mel;
+    }
+
+    private void checkBins(int bins) {
+        if (bins != nBins) {
+            throw new IllegalArgumentException("Spectrogram must have " + nBins + " frequency bins, got " + bins);
+        }
+    }
+
+    // -----------------------------
+    // Cache
+    // -----------------------------
+
+    private static final class Key {
+        private final double sr;
+        private final int nFft;
+        private final int nMels;
+        private final double fMin;
+        private final double fMax;
+        private final boolean htk;
+        private final String norm;
+
+        Key(double sr, int nFft, int nMels, double fMin, double fMax, boolean htk, String norm) {
+            this.sr = sr;
+            this.nFft = nFft;
+            this.nMels = nMels;
+            this.fMin = fMin;
+            this.fMax = fMax;
+            this.htk = htk;
+            this.norm = norm;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Double.compare(sr, other.sr) == 0 && nFft == other.nFft && nMels == other.nMels
+                    && Double.compare(fMin, other.fMin) == 0 && Double.compare(fMax, other.fMax) == 0
+                    && htk == other.htk && (norm == null ? other.norm == null : norm.equals(other.norm));
+        }
+
+        @Override
+        public int hashCode() {
+            int h = Double.hashCode(sr);
+            h = 31 * h + nFft;
+            h = 31 * h + nMels;
+            h = 31 * h + Double.hashCode(fMin);
+            h = 31 * h + Double.hashCode(fMax);
+            h = 31 * h + (htk ? 1 : 0);
+            return 31 * h + (norm == null ? 0 : norm.hashCode());
+        }
+    }
+
+    private static final LruCache<Key, MelFilterBank> BANKS = new LruCache<Key, MelFilterBank>(
+            DEFAULT_MAX_ENTRIES);
+
+    /**
+     * Banco de filtros mel (librosa.filters.mel), do cache.
+     *
+     * @param sr    taxa de amostragem
+     * @param nFft  tamanho da FFT
+     * @param nMels número de bandas
+     * @param fMin  frequência mínima (Hz)
+     * @param fMax  frequência máxima (Hz)
+     * @param htk   escala mel HTK (true) ou Slaney (false, padrão do librosa)
+     * @param norm  "slaney" (normalização por área, padrão do librosa) ou null
+     * @throws IllegalArgumentException se norm não for suportado
+     */
+    public static MelFilterBank get(double sr, int nFft, int nMels, double fMin, double fMax, boolean htk,
+            String norm) {
+        if (norm != null && !norm.equals("slaney")) {
+            throw new IllegalArgumentException("Unsupported mel norm: " + norm);
+        }
+        if (nFft <= 0 || nMels <= 0) {
+            throw new IllegalArgumentException("n_fft and n_mels must be positive");
+        }
+        Key key = new Key(sr, nFft, nMels, fMin, fMax, htk, norm);
+        MelFilterBank bank = BANKS.get(key);
+        if (bank == null) {
+            // Construído fora do cache; se outra thread guardou o mesmo banco
+            // nesse meio tempo, o já guardado é o que prevalece
+            bank = BANKS.putIfAbsent(key, new MelFilterBank(dense(sr, nFft, nMels, fMin, fMax, htk, norm)));
+        }
+        return bank;
+    }
+
+    public static int getMaxEntries() {
+        return BANKS.getMaxEntries();
+    }
+
+    /**
+     * Define o número máximo de bancos mantidos; os excedentes são descartados.
+     */
+    public static void setMaxEntries(int max) {
+        BANKS.setMaxEntries(max);
+    }
+
+    public static int size() {
+        return BANKS.size();
+    }
+
+    public static void clear() {
+        BANKS.clear();
+    }
+
+    // -----------------------------
+    // Construção (mesmo algoritmo de librosa.filters.mel)
+    // -----------------------------
+
+    private static double[][] dense(double sr, int nFft, int nMels, double fMin, double fMax, boolean htk,
+            String norm) {
+        // Frequência central de cada bin da FFT
+        double[] fftFreqs = new double[1 + nFft / 2];
+        for (int i = 0; i < fftFreqs.length; i++) {
+            fftFreqs[i] = 0 + (sr / 2) / (nFft / 2) * i;
+        }
+
+        // Frequências das bordas/centros das bandas, uniformes na escala mel
+        double melLow = hzToMel(fMin, htk);
+        double melHigh = hzToMel(fMax, htk);
+        double[] melF = new double[nMels + 2];
+        for (int i = 0; i < melF.length; i++) {
+            melF[i] = melToHz(melLow + (melHigh - melLow) / (melF.length - 1) * i, htk);
+        }
+
+        double[] fdiff = new double[melF.length - 1];
+        for (int i = 0; i < fdiff.length; i++) {
+            fdiff[i] = melF[i + 1] - melF[i];
+        }
+
+        double[][] weights = new double[nMels][fftFreqs.length];
+        for (int i = 0; i < nMels; i++) {
+            for (int j = 0; j < fftFreqs.length; j++) {
+                double lowerF = -(melF[i] - fftFreqs[j]) / fdiff[i];
+                double upperF = (melF[i + 2] - fftFreqs[j]) / fdiff[i + 1];
+                if (lowerF > upperF && upperF > 0) {
+                    weights[i][j] = upperF;
+                } else if (lowerF < upperF && lowerF > 0) {
+                    weights[i][j] = lowerF;
+                }
+            }
+        }
+
+        if (norm != null) {
+            // Slaney: cada banda com área aproximadamente constante
+            for (int i = 0; i < nMels; i++) {
+                double enorm = 2.0 / (melF[i + 2] - melF[i]);
+                for (int j = 0; j < fftFreqs.length; j++) {
+                    weights[i][j] *= enorm;
+                }
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Frequência em Hz na escala mel (librosa.hz_to_mel), HTK ou Slaney.
+     */
+    public static double hzToMel(double hz, boolean htk) {
+        if (htk) {
+            return 2595.0 * (Math.log(1.0 + hz / 700.0) / Math.log(10));
+        }
+        final double f_min = 0.0;
+        final double f_sp = 200.0 / 3;
+        final double min_log_hz = 1000.0;
+        final double min_log_mel = (min_log_hz - f_min) / f_sp;
+        final double logstep = Math.log(6.4) / 27.0;
+        if (hz < min_log_hz) {
+            return (hz - f_min) / f_sp;
+        }
+        return min_log_mel + Math.log(hz / min_log_hz) / logstep;
+    }
+
+    private static double melToHz(double mel, boolean htk) {
+        if (htk) {
+            return 700.0 * (Math.pow(10, mel / 2595.0) - 1.0);
+        }
+        final double f_min = 0.0;
+        final double f_sp = 200.0 / 3;
+        final double min_log_hz = 1000.0;
+        final double min_log_mel = (min_log_hz - f_min) / f_sp;
+        final double logstep = Math.log(6.4) / 27.0;
+        if (mel < min_log_mel) {
+            return f_min + f_sp * mel;
+        }
+        return min_log_hz * Math.exp(logstep * (mel - min_log_mel));
+    }
+}
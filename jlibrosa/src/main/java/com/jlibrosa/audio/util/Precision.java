@@ -0,0 +1,17 @@
+package com.jlibrosa.audio.util;
+
+/**
+ * Precisão numérica usada no cálculo de STFT, espectrograma mel e MFCC.
+ *
+ * FLOAT usa FloatFFT_1D e matrizes float (mel, DCT) de ponta a ponta, o que
+ * reduz pela metade a memória e a banda de memória. Limites de erro contra
+ * DOUBLE (verificados em TestFloatPrecision com ruído gaussiano e os WAV de
+ * audioFiles, n_fft = 2048, n_mels = 128; medidos cerca de 3x abaixo):
+ * - espectro de potência: erro absoluto até 1e-6 vezes o maior valor do frame;
+ * - espectrograma mel: erro relativo até 1e-4 nas bandas acima de 1e-6 vezes
+ *   o máximo do espectrograma;
+ * - MFCC: erro absoluto até 1e-3 (valores em dB, da ordem de 1e2).
+ */
+public enum Precision {
+    DOUBLE, FLOAT
+}
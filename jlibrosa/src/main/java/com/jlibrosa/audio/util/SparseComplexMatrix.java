@@ -0,0 +1,232 @@
+package com.jlibrosa.audio.util;
+
+import java.util.Arrays;
+
+/**
+ * Matriz complexa esparsa [rows][cols] no formato CSR (compressed sparse
+ * row), equivalente ao scipy.sparse.csr_matrix devolvido por
+ * librosa.util.sparsify_rows.
+ *
+ * Os elementos não nulos da linha i ficam nas posições
+ * rowPointers[i] .. rowPointers[i + 1] - 1, com as colunas em ordem
+ * crescente em columnIndices e os valores intercalados (re, im) em values,
+ * na mesma convenção de ComplexMatrix.
+ *
+ * Usada para as bases FFT da CQT/VQT: com sparsity = 0.01, cada filtro
+ * ocupa só uma faixa estreita de bins em torno da sua frequência, e o
+ * produto com a STFT (multiply) percorre apenas essa faixa.
+ *
+ * A matriz é imutável (os arrays são copiados na entrada e na saída), então
+ * pode ser guardada em cache (CqtPlan) e usada por várias threads.
+ */
+public class SparseComplexMatrix {
+
+    private final int rows;
+    private final int cols;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final double[] values;
+
+    /**
+     * Cria a matriz a partir de cópias dos arrays.
+     *
+     * @param rowPointers   rows + 1 posições, crescente, começando em 0
+     * @param columnIndices coluna de cada elemento, crescente dentro de cada linha
+     * @param values        valores intercalados re/im, 2 * nnz posições
+     */
+    public SparseComplexMatrix(int rows, int cols, int[] rowPointers, int[] columnIndices, double[] values) {
+        this(rows, cols, rowPointers.clone(), columnIndices.clone(), values.clone(), true);
+    }
+
+    // Sem cópia: só para arrays novos, criados em util; validate = false quando
+    // eles já são CSR válido por construção
+    SparseComplexMatrix(int rows, int cols, int[] rowPointers, int[] columnIndices, double[] values,
+            boolean validate) {
+        if (validate) {
+            if (rows < 0 || cols < 0) {
+                throw new IllegalArgumentException("Matrix shape must not be negative: " + rows + " x " + cols);
+            }
+            if (rowPointers.length != rows + 1 || rowPointers[0] != 0) {
+                throw new IllegalArgumentException("Row pointers must have " + (rows + 1) + " entries starting at 0");
+            }
+            int nnz = rowPointers[rows];
+            if (columnIndices.length < nnz || values.length < 2 * nnz) {
+                throw new IllegalArgumentException("Column indices and values must hold " + nnz + " elements");
+            }
+            for (int i = 0; i < rows; i++) {
+                if (rowPointers[i + 1] < rowPointers[i]) {
+                    throw new IllegalArgumentException("Row pointers must not decrease");
+                }
+                for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                    int col = columnIndices[p];
+                    if (col < 0 || col >= cols || (p > rowPointers[i] && col <= columnIndices[p - 1])) {
+                        throw new IllegalArgumentException("Column indices of row " + i
+                                + " must be increasing and inside [0, " + cols + ")");
+                    }
+                }
+            }
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    /**
+     * Cópia esparsa de uma matriz densa, sem os elementos exatamente nulos.
+     */
+    public static SparseComplexMatrix fromDense(ComplexMatrix dense) {
+        int rows = dense.rows();
+        int cols = dense.cols();
+        double[] data = dense.getData();
+
+        int[] rowPointers = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int j = 0; j < cols; j++) {
+                int idx = dense.index(i, j);
+                if (data[idx] != 0.0 || data[idx + 1] != 0.0) {
+                    count++;
+                }
+            }
+            rowPointers[i + 1] = rowPointers[i] + count;
+        }
+
+        int[] columnIndices = new int[rowPointers[rows]];
+        double[] values = new double[2 * rowPointers[rows]];
+        int p = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int idx = dense.index(i, j);
+                if (data[idx] != 0.0 || data[idx + 1] != 0.0) {
+                    columnIndices[p] = j;
+                    values[2 * p] = data[idx];
+                    values[2 * p + 1] = data[idx + 1];
+                    p++;
+                }
+            }
+        }
+        return new SparseComplexMatrix(rows, cols, rowPointers, columnIndices, values, false);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Número de elementos guardados.
+     */
+    public int nnz() {
+        return rowPointers[rows];
+    }
+
+    /**
+     * Cópia dos ponteiros de linha, rows + 1 posições.
+     */
+    public int[] getRowPointers() {
+        return rowPointers.clone();
+    }
+
+    /**
+     * Cópia das colunas dos elementos guardados.
+     */
+    public int[] getColumnIndices() {
+        return Arrays.copyOf(columnIndices, nnz());
+    }
+
+    /**
+     * Cópia dos valores guardados, intercalados re/im.
+     */
+    public double[] getValues() {
+        return Arrays.copyOf(values, 2 * nnz());
+    }
+
+    // Posição do elemento (row, col) em columnIndices, ou -1 se não guardado
+    private int find(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException("(" + row + ", " + col + ") outside " + rows + " x " + cols);
+        }
+        int p = Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], col);
+        return p >= 0 ? p : -1;
+    }
+
+    public double getReal(int row, int col) {
+        int p = find(row, col);
+        return p < 0 ? 0.0 : values[2 * p];
+    }
+
+    public double getImag(int row, int col) {
+        int p = find(row, col);
+        return p < 0 ? 0.0 : values[2 * p + 1];
+    }
+
+    /**
+     * Nova matriz com todos os valores guardados multiplicados por factor.
+     */
+    public SparseComplexMatrix scaled(double factor) {
+        double[] scaled = new double[2 * nnz()];
+        for (int p = 0; p < scaled.length; p++) {
+            scaled[p] = values[p] * factor;
+        }
+        return new SparseComplexMatrix(rows, cols, rowPointers, columnIndices, scaled, false);
+    }
+
+    /**
+     * Cópia densa da matriz.
+     */
+    public ComplexMatrix toDense() {
+        ComplexMatrix dense = new ComplexMatrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                dense.set(i, columnIndices[p], values[2 * p], values[2 * p + 1]);
+            }
+        }
+        return dense;
+    }
+
+    /**
+     * Produto esparso x denso: [rows][cols] x [cols][n] -> [rows][n].
+     *
+     * Cada coluna da saída (um frame) soma, para cada linha, só os elementos
+     * guardados, lendo a coluna correspondente de dense, que é contígua.
+     * Colunas são divididas entre threads como em MatrixOps.
+     */
+    public ComplexMatrix multiply(final ComplexMatrix dense) {
+        if (dense.rows() != cols) {
+            throw new IllegalArgumentException("Shapes " + rows + " x " + cols + " and " + dense.rows() + " x "
+                    + dense.cols() + " are not aligned");
+        }
+        final ComplexMatrix out = new ComplexMatrix(rows, dense.cols());
+        final double[] d = dense.getData();
+        final double[] o = out.getData();
+
+        MatrixOps.forColumns(dense.cols(), new MatrixOps.ColumnKernel() {
+            @Override
+            public void apply(int from, int to) {
+                for (int t = from; t < to; t++) {
+                    int dOff = dense.columnOffset(t);
+                    int oOff = out.columnOffset(t);
+                    for (int i = 0; i < rows; i++) {
+                        double re = 0.0;
+                        double im = 0.0;
+                        for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                            int k = dOff + 2 * columnIndices[p];
+                            double br = values[2 * p];
+                            double bi = values[2 * p + 1];
+                            re += br * d[k] - bi * d[k + 1];
+                            im += br * d[k + 1] + bi * d[k];
+                        }
+                        o[oOff + 2 * i] = re;
+                        o[oOff + 2 * i + 1] = im;
+                    }
+                }
+            }
+        });
+        return out;
+    }
+}
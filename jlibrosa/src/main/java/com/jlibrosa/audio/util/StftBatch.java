@@ -0,0 +1,125 @@
+package com.jlibrosa.audio.util;
+
+/**
+ * STFT de um lote de clipes de mesmo tamanho, guardada num único float[] com
+ * o shape [batch][frames][bins][2] (row-major): o bin k do frame t do clipe b
+ * fica em getData()[frameOffset(b, t) + 2 * k] (real) e na posição seguinte
+ * (imaginário).
+ *
+ * É o layout de entrada usual de modelos TFLite/ONNX ([N, T, F, 2]): getData()
+ * pode ser copiado direto para o buffer de entrada, sem transposição. Para
+ * comparar com a STFT de um clipe ([bins][frames]), use toComplexMatrix.
+ *
+ * O armazenamento é sempre float32; a precisão do cálculo é a de
+ * AudioFeatureExtraction (Precision): com DOUBLE a FFT roda em double e só o
+ * resultado é arredondado para float, com FLOAT a FFT já roda em float32.
+ */
+public final class StftBatch {
+
+    private final float[] data;
+    private final int batchSize;
+    private final int frames;
+    private final int bins;
+
+    /**
+     * Tensor zerado com o shape [batchSize][frames][bins][2].
+     */
+    public StftBatch(int batchSize, int frames, int bins) {
+        this(new float[checkedSize(batchSize, frames, bins)], batchSize, frames, bins);
+    }
+
+    /**
+     * Usa data (não é copiado) como armazenamento, por exemplo o array de
+     * entrada do modelo.
+     */
+    public StftBatch(float[] data, int batchSize, int frames, int bins) {
+        int size = checkedSize(batchSize, frames, bins);
+        if (data == null || data.length != size) {
+            throw new IllegalArgumentException("data must have batchSize * frames * bins * 2 = " + size
+                    + " positions");
+        }
+        this.data = data;
+        this.batchSize = batchSize;
+        this.frames = frames;
+        this.bins = bins;
+    }
+
+    private static int checkedSize(int batchSize, int frames, int bins) {
+        if (batchSize < 0 || frames < 0 || bins < 0) {
+            throw new IllegalArgumentException("Invalid shape: " + batchSize + " x " + frames + " x " + bins);
+        }
+        long size = 2L * batchSize * frames * bins;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Batch too large: " + size + " values");
+        }
+        return (int) size;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public int frames() {
+        return frames;
+    }
+
+    public int bins() {
+        return bins;
+    }
+
+    /**
+     * Shape do tensor: {batchSize, frames, bins, 2}.
+     */
+    public int[] shape() {
+        return new int[] { batchSize, frames, bins, 2 };
+    }
+
+    /**
+     * Array de armazenamento (sem cópia).
+     */
+    public float[] getData() {
+        return data;
+    }
+
+    /**
+     * Posição da parte real de (clip, frame, bin) em getData().
+     */
+    public int index(int clip, int frame, int bin) {
+        return 2 * ((clip * frames + frame) * bins + bin);
+    }
+
+    /**
+     * Posição do bin 0 do frame em getData(); os bins do frame são contíguos.
+     */
+    public int frameOffset(int clip, int frame) {
+        return 2 * (clip * frames + frame) * bins;
+    }
+
+    public float getReal(int clip, int frame, int bin) {
+        return data[index(clip, frame, bin)];
+    }
+
+    public float getImag(int clip, int frame, int bin) {
+        return data[index(clip, frame, bin) + 1];
+    }
+
+    public void set(int clip, int frame, int bin, float re, float im) {
+        int i = index(clip, frame, bin);
+        data[i] = re;
+        data[i + 1] = im;
+    }
+
+    /**
+     * STFT do clipe como ComplexMatrix [bins][frames].
+     */
+    public ComplexMatrix toComplexMatrix(int clip) {
+        ComplexMatrix matrix = new ComplexMatrix(bins, frames);
+        for (int t = 0; t < frames; t++) {
+            int offset = frameOffset(clip, t);
+            for (int f = 0; f < bins; f++) {
+                matrix.set(f, t, data[offset + 2 * f], data[offset + 2 * f + 1]);
+            }
+        }
+        return matrix;
+    }
+}
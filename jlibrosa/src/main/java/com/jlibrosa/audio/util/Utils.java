@@ -321,6 +321,86 @@ public class Utils {
         return frames;
     }
     
+    /**
+     * Equivalente ao librosa.util.sparsify_rows.
+     *
+     * Em cada linha, zera os elementos de menor módulo cuja soma fica abaixo
+     * de quantile * (soma dos módulos da linha) e guarda o resto em CSR.
+     * Elementos exatamente nulos não são guardados.
+     *
+     * Exemplo: linha com módulos [1, 2, 3, 94] e quantile = 0.05: as somas
+     * acumuladas normalizadas são [0.01, 0.03, 0.06, 1.0], a primeira que não
+     * fica abaixo de 0.05 é a do módulo 3, então ficam 3 e 94.
+     *
+     * @param x matriz [linhas][colunas]
+     * @param quantile fração da energia (soma dos módulos) descartada, em [0, 1)
+     * @return matriz esparsa com a mesma forma de x
+     */
+    public static SparseComplexMatrix sparsifyRows(ComplexMatrix x, double quantile) {
+        if (!(quantile >= 0.0 && quantile < 1.0))
+            throw new ParameterError("Invalid quantile " + String.format("%.2f", quantile));
+
+        int rows = x.rows();
+        int cols = x.cols();
+        double[] thresholds = new double[rows];
+        double[] mags = new double[cols];
+        double[] magSort = new double[cols];
+
+        // 1) Limiar de módulo de cada linha
+        for (int i = 0; i < rows; i++) {
+            double norm = 0.0;
+            for (int j = 0; j < cols; j++) {
+                mags[j] = x.abs(i, j);
+                norm += mags[j];
+            }
+            System.arraycopy(mags, 0, magSort, 0, cols);
+            Arrays.sort(magSort);
+
+            // argmin(cumulative_mag < quantile): primeiro índice que não fica
+            // abaixo do quantil (0 se nenhum, como o argmin do numpy)
+            int thresholdIdx = 0;
+            double cumulative = 0.0;
+            for (int j = 0; j < cols; j++) {
+                cumulative += magSort[j] / norm;
+                if (!(cumulative < quantile)) {
+                    thresholdIdx = j;
+                    break;
+                }
+            }
+            thresholds[i] = cols == 0 ? 0.0 : magSort[thresholdIdx];
+        }
+
+        // 2) Contagem por linha e 3) cópia dos elementos mantidos
+        int[] rowPointers = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int j = 0; j < cols; j++) {
+                double mag = x.abs(i, j);
+                if (mag >= thresholds[i] && mag != 0.0) {
+                    count++;
+                }
+            }
+            rowPointers[i + 1] = rowPointers[i] + count;
+        }
+
+        int[] columnIndices = new int[rowPointers[rows]];
+        double[] values = new double[2 * rowPointers[rows]];
+        int p = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                double mag = x.abs(i, j);
+                if (mag >= thresholds[i] && mag != 0.0) {
+                    columnIndices[p] = j;
+                    values[2 * p] = x.getReal(i, j);
+                    values[2 * p + 1] = x.getImag(i, j);
+                    p++;
+                }
+            }
+        }
+
+        return new SparseComplexMatrix(rows, cols, rowPointers, columnIndices, values, false);
+    }
+
     /**
      * Converte um tipo numérico real em seu tipo complexo correspondente.
      *
@@ -380,6 +460,12 @@ public class Utils {
                     return hannWindow(Nx, fftbins);
                 case "hamming":
                     return hammingWindow(Nx, fftbins);
+                case "ones":
+                case "boxcar":
+                case "rect":
+                    double[] ones = new double[Nx];
+                    Arrays.fill(ones, 1.0);
+                    return ones;
                 default:
                     throw new IllegalArgumentException("Unsupported window: " + name);
             }
@@ -532,7 +618,7 @@ public class Utils {
 
     public static Complex[] fft(double[] signal, int nFft) {
 
-        DoubleFFT_1D fft = new DoubleFFT_1D(nFft);
+        DoubleFFT_1D fft = FFTPlanCache.doubleFFT(nFft);
 
         double[] fftBuffer = new double[2 * nFft];
 
@@ -554,4 +640,107 @@ public class Utils {
         return result;
     }
 
+    /**
+     * Desempacota a saída de DoubleFFT_1D.realForward (meio espectro
+     * empacotado em n posições) nos 1 + n/2 bins complexos intercalados
+     * (re, im) de dest, a partir de destOffset.
+     *
+     * Layout do JTransforms:
+     * - n par:   a[0] = Re[0], a[1] = Re[n/2], a[2k], a[2k+1] = Re[k], Im[k]
+     * - n ímpar: a[0] = Re[0], a[1] = Im[(n-1)/2], a[2k], a[2k+1] = Re[k], Im[k],
+     *            a[n-1] = Re[(n-1)/2]
+     */
+    public static void unpackRealForward(double[] packed, int n, double[] dest, int destOffset) {
+        dest[destOffset] = packed[0];
+        dest[destOffset + 1] = 0.0;
+
+        if (n == 1) {
+            return;
+        }
+
+        if (n % 2 == 0) {
+            System.arraycopy(packed, 2, dest, destOffset + 2, n - 2);
+            dest[destOffset + n] = packed[1];
+            dest[destOffset + n + 1] = 0.0;
+        } else {
+            System.arraycopy(packed, 2, dest, destOffset + 2, n - 3);
+            dest[destOffset + n - 1] = packed[n - 1];
+            dest[destOffset + n] = packed[1];
+        }
+    }
+
+    /**
+     * Operação inversa de unpackRealForward: empacota os 1 + n/2 bins
+     * intercalados (re, im) de src, a partir de srcOffset, no layout de
+     * entrada de DoubleFFT_1D.realInverse. As partes imaginárias do bin 0 e
+     * do bin n/2 (n par) são ignoradas, como em numpy.fft.irfft.
+     */
+    public static void packRealInverse(double[] src, int srcOffset, int n, double[] packed) {
+        packed[0] = src[srcOffset];
+
+        if (n == 1) {
+            return;
+        }
+
+        if (n % 2 == 0) {
+            System.arraycopy(src, srcOffset + 2, packed, 2, n - 2);
+            packed[1] = src[srcOffset + n];
+        } else {
+            System.arraycopy(src, srcOffset + 2, packed, 2, n - 3);
+            packed[n - 1] = src[srcOffset + n - 1];
+            packed[1] = src[srcOffset + n];
+        }
+    }
+
+    /**
+     * Mesmo desempacotamento para a saída de FloatFFT_1D.realForward.
+     */
+    public static void unpackRealForward(float[] packed, int n, float[] dest, int destOffset) {
+        dest[destOffset] = packed[0];
+        dest[destOffset + 1] = 0.0f;
+
+        if (n == 1) {
+            return;
+        }
+
+        if (n % 2 == 0) {
+            System.arraycopy(packed, 2, dest, destOffset + 2, n - 2);
+            dest[destOffset + n] = packed[1];
+            dest[destOffset + n + 1] = 0.0f;
+        } else {
+            System.arraycopy(packed, 2, dest, destOffset + 2, n - 3);
+            dest[destOffset + n - 1] = packed[n - 1];
+            dest[destOffset + n] = packed[1];
+        }
+    }
+
+    /**
+     * FFT inversa complexa, normalizada por 1/n (mesma convenção de
+     * DftNormalization.STANDARD do commons-math).
+     */
+    public static Complex[] ifft(Complex[] spectrum) {
+
+        int n = spectrum.length;
+        DoubleFFT_1D fft = FFTPlanCache.doubleFFT(n);
+
+        double[] fftBuffer = new double[2 * n];
+        for (int k = 0; k < n; k++) {
+            fftBuffer[2 * k] = spectrum[k].getReal();
+            fftBuffer[2 * k + 1] = spectrum[k].getImaginary();
+        }
+
+        fft.complexInverse(fftBuffer, true);
+
+        Complex[] result = new Complex[n];
+
+        for (int k = 0; k < n; k++) {
+            result[k] = new Complex(
+                fftBuffer[2 * k],
+                fftBuffer[2 * k + 1]
+            );
+        }
+
+        return result;
+    }
+
 }
\ No newline at end of file
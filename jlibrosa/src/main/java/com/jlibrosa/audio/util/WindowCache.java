@@ -0,0 +1,186 @@
+package com.jlibrosa.audio.util;
+
+import java.util.Arrays;
+
+/**
+ * Cache de janelas já centralizadas em n_fft (Utils.getWindow seguido de
+ * Utils.padCenter), compartilhado por Spectrum.stft e AudioFeatureExtraction.
+ *
+ * Calcular a janela (cossenos, ou a série de Bessel da Kaiser) a cada STFT
+ * pesa em clipes curtos. As janelas devolvidas são imutáveis, então a mesma
+ * instância pode ser usada por várias threads ao mesmo tempo. Cada janela
+ * guarda também os seus quadrados, somados amostra a amostra pela iSTFT
+ * (Spectrum.istft) na normalização window_sumsquare do librosa.
+ *
+ * A chave é (tipo, parâmetros, win_length, n_fft, fftbins). Janelas passadas
+ * como double[] não são guardadas. O cache é limitado (LruCache): ao passar
+ * de getMaxEntries() entradas, a usada há mais tempo é descartada. Só
+ * janelas (n_fft posições) ficam no cache, nada do tamanho do sinal.
+ */
+public final class WindowCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    /**
+     * Janela imutável com n_fft posições (zeros fora de win_length).
+     */
+    public static final class Window {
+        private final double[] values;
+        private final double[] squared;
+        private final float[] floatValues;
+
+        private Window(double[] values) {
+            this.values = values;
+            this.squared = new double[values.length];
+            this.floatValues = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                squared[i] = values[i] * values[i];
+                floatValues[i] = (float) values[i];
+            }
+        }
+
+        public int length() {
+            return values.length;
+        }
+
+        public double get(int i) {
+            return values[i];
+        }
+
+        /**
+         * window[i]^2, usado na iSTFT.
+         */
+        public double squared(int i) {
+            return squared[i];
+        }
+
+        /**
+         * Cópia dos valores da janela.
+         */
+        public double[] toArray() {
+            return values.clone();
+        }
+
+        /**
+         * Cópia dos valores da janela em float (Precision.FLOAT).
+         */
+        public float[] toFloatArray() {
+            return floatValues.clone();
+        }
+
+        // Acesso sem cópia para os laços de util (FrameView); não deve ser modificado
+        double[] values() {
+            return values;
+        }
+
+        float[] floatValues() {
+            return floatValues;
+        }
+    }
+
+    private static final class Key {
+        private final String type;
+        private final double[] params;
+        private final int winLength;
+        private final int nFft;
+        private final boolean fftbins;
+
+        Key(String type, double[] params, int winLength, int nFft, boolean fftbins) {
+            this.type = type;
+            this.params = params;
+            this.winLength = winLength;
+            this.nFft = nFft;
+            this.fftbins = fftbins;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return type.equals(other.type) && Arrays.equals(params, other.params) && winLength == other.winLength
+                    && nFft == other.nFft && fftbins == other.fftbins;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = type.hashCode();
+            h = 31 * h + Arrays.hashCode(params);
+            h = 31 * h + winLength;
+            h = 31 * h + nFft;
+            return 31 * h + (fftbins ? 1 : 0);
+        }
+    }
+
+    private static final LruCache<Key, Window> ENTRIES = new LruCache<Key, Window>(DEFAULT_MAX_ENTRIES);
+
+    private WindowCache() {
+    }
+
+    /**
+     * Equivalente a Utils.padCenter(Utils.getWindow(window, winLength, fftbins), nFft).
+     *
+     * @throws IllegalArgumentException se a janela não for suportada
+     * @throws Utils.ParameterError     se winLength for maior que nFft
+     */
+    public static Window get(Object window, int winLength, int nFft, boolean fftbins) {
+        Key key = key(window, winLength, nFft, fftbins);
+        if (key == null) {
+            return build(window, winLength, nFft, fftbins);
+        }
+        Window cached = ENTRIES.get(key);
+        if (cached == null) {
+            // Calculada fora do cache; se outra thread guardou a mesma chave
+            // nesse meio tempo, a já guardada é a que prevalece
+            cached = ENTRIES.putIfAbsent(key, build(window, winLength, nFft, fftbins));
+        }
+        return cached;
+    }
+
+    public static int getMaxEntries() {
+        return ENTRIES.getMaxEntries();
+    }
+
+    /**
+     * Define o número máximo de entradas mantidas; as excedentes são descartadas.
+     */
+    public static void setMaxEntries(int max) {
+        ENTRIES.setMaxEntries(max);
+    }
+
+    public static int size() {
+        return ENTRIES.size();
+    }
+
+    public static void clear() {
+        ENTRIES.clear();
+    }
+
+    private static Window build(Object window, int winLength, int nFft, boolean fftbins) {
+        return new Window(Utils.padCenter(Utils.getWindow(window, winLength, fftbins), nFft));
+    }
+
+    // Chave da especificação da janela (mesmos formatos de Utils.getWindow),
+    // ou null quando ela não deve ser guardada (double[]) ou não é reconhecida;
+    // nesse caso Utils.getWindow decide (e lança o erro, se houver)
+    private static Key key(Object window, int winLength, int nFft, boolean fftbins) {
+        String type;
+        double[] params;
+        if (window instanceof String) {
+            type = ((String) window).toLowerCase();
+            params = new double[0];
+        } else if (window instanceof Object[] && ((Object[]) window).length == 2
+                && ((Object[]) window)[0] instanceof String && ((Object[]) window)[1] instanceof Number) {
+            Object[] spec = (Object[]) window;
+            type = ((String) spec[0]).toLowerCase();
+            params = new double[] { ((Number) spec[1]).doubleValue() };
+        } else if (window instanceof Number) {
+            type = "kaiser";
+            params = new double[] { ((Number) window).doubleValue() };
+        } else {
+            return null;
+        }
+        return new Key(type, params, winLength, nFft, fftbins);
+    }
+}
@@ -0,0 +1,52 @@
+package com.jlibrosa.audio.wavFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull based source of audio blocks, used to process long recordings in constant memory.
+ *
+ * Every call to nextBlock() fills a caller owned [channels][blockSize] buffer. Consecutive
+ * blocks start (blockSize - overlap) frames apart, so the first overlap frames of a block
+ * repeat the last overlap frames of the previous one. For frame based processing such as
+ * STFT, an overlap of n_fft - hop_length and a block size of n_fft + k * hop_length makes
+ * every block hold exactly k + 1 complete frames, without any frame crossing two blocks.
+ */
+public interface AudioSource extends Closeable {
+
+	int getNumChannels();
+
+	long getSampleRate();
+
+	/**
+	 * @return total number of frames available from this source
+	 */
+	long getNumFrames();
+
+	int getBlockSize();
+
+	int getOverlap();
+
+	/**
+	 * @return true if nextBlock() will return frames which have not been returned yet
+	 */
+	boolean hasNextBlock();
+
+	/**
+	 * To read the next block into the given buffer. The buffer may be the same one on every
+	 * call or a new one each time, and the caller may change its contents between calls.
+	 * Frames beyond the end of the source are filled with zeros.
+	 *
+	 * @param block - [channels][blockSize] buffer owned by the caller
+	 * @return number of valid frames in the block, 0 once the source is exhausted
+	 * @throws IOException
+	 * @throws WavFileException
+	 */
+	int nextBlock(float[][] block) throws IOException, WavFileException;
+
+	/**
+	 * @return position, in frames, of the first frame of the last block returned
+	 */
+	long getBlockStart();
+
+}
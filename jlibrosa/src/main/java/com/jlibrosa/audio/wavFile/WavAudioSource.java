@@ -0,0 +1,139 @@
+package com.jlibrosa.audio.wavFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * AudioSource reading fixed size, overlapping blocks out of a Wav file.
+ *
+ * Blocks are read through the memory mapped random access of WavFile, so only the
+ * frames of the current block are ever held in memory. The overlapping frames of each
+ * block are kept in an internal [channels][overlap] buffer and copied to the front of
+ * the next one, so they are decoded once whatever the caller does with its buffers.
+ */
+public class WavAudioSource implements AudioSource {
+
+	private final WavFile wavFile;
+	private final int blockSize;
+	private final int overlap;
+	private final long numFrames;
+
+	private long blockStart = -1;        // Start frame of the last block returned
+	private int blockFrames = 0;        // Valid frames in the last block returned
+	private final float[][] overlapFrames;        // Last overlap frames of the last block returned
+
+	private WavAudioSource(WavFile wavFile, int blockSize, int overlap) {
+		this.wavFile = wavFile;
+		this.blockSize = blockSize;
+		this.overlap = overlap;
+		this.numFrames = wavFile.getTotalNumFrames();
+		this.overlapFrames = new float[wavFile.getNumChannels()][overlap];
+	}
+
+	/**
+	 * To open the Wav file as a source of overlapping blocks.
+	 *
+	 * @param file
+	 * @param blockSize - number of frames per block
+	 * @param overlap   - number of frames shared by consecutive blocks
+	 * @return
+	 * @throws IOException
+	 * @throws WavFileException
+	 */
+	public static WavAudioSource open(File file, int blockSize, int overlap) throws IOException, WavFileException {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive");
+		}
+		if (overlap < 0 || overlap >= blockSize) {
+			throw new IllegalArgumentException("overlap must be >= 0 and < blockSize");
+		}
+		return new WavAudioSource(WavFile.openWavFile(file), blockSize, overlap);
+	}
+
+	@Override
+	public int getNumChannels() {
+		return wavFile.getNumChannels();
+	}
+
+	@Override
+	public long getSampleRate() {
+		return wavFile.getSampleRate();
+	}
+
+	@Override
+	public long getNumFrames() {
+		return numFrames;
+	}
+
+	@Override
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	@Override
+	public int getOverlap() {
+		return overlap;
+	}
+
+	@Override
+	public long getBlockStart() {
+		return blockStart;
+	}
+
+	@Override
+	public boolean hasNextBlock() {
+		if (blockStart < 0) {
+			return numFrames > 0;
+		}
+		return blockStart + blockFrames < numFrames;
+	}
+
+	@Override
+	public int nextBlock(float[][] block) throws IOException, WavFileException {
+		if (block.length < getNumChannels() || block[0].length < blockSize) {
+			throw new IllegalArgumentException("block must be at least [" + getNumChannels() + "][" + blockSize + "]");
+		}
+		if (!hasNextBlock()) {
+			return 0;
+		}
+
+		long start = blockStart < 0 ? 0 : blockStart + blockSize - overlap;
+		int reused = 0;
+
+		// Copy the overlapping frames kept from the previous block instead of decoding them again
+		if (blockStart >= 0 && overlap > 0) {
+			for (int c = 0; c < getNumChannels(); c++) {
+				System.arraycopy(overlapFrames[c], 0, block[c], 0, overlap);
+			}
+			reused = overlap;
+		}
+
+		int toRead = (int) Math.min(blockSize - reused, numFrames - start - reused);
+		int read = (int) wavFile.readFrames(block, reused, start + reused, toRead);
+		int valid = reused + read;
+
+		if (valid < blockSize) {
+			for (int c = 0; c < getNumChannels(); c++) {
+				Arrays.fill(block[c], valid, blockSize, 0.0f);
+			}
+		}
+
+		// A block shorter than blockSize is the last one, so its overlap is never needed
+		if (valid == blockSize && overlap > 0) {
+			for (int c = 0; c < getNumChannels(); c++) {
+				System.arraycopy(block[c], blockSize - overlap, overlapFrames[c], 0, overlap);
+			}
+		}
+
+		blockStart = start;
+		blockFrames = valid;
+		return valid;
+	}
+
+	@Override
+	public void close() throws IOException {
+		wavFile.close();
+	}
+
+}
@@ -4,6 +4,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 
 /**
@@ -18,6 +21,7 @@ public class WavFile {
     private enum IOState {READING, WRITING, CLOSED}
 
     private final static int BUFFER_SIZE = 4096;
+    private final static int MAPPED_WINDOW_SIZE = 1 << 26; // Upper bound of the data region mapped at once
 
     private final static int FMT_CHUNK_ID = 0x20746D66;
     private final static int DATA_CHUNK_ID = 0x61746164;
@@ -39,6 +43,8 @@ public class WavFile {
     private long totalNumFrames;
     private FileOutputStream oStream;    // Output stream used for writting data
     private FileInputStream iStream;        // Input stream used for reading data
+    private FileChannel iChannel;            // Channel of the input stream, used to map the data chunk
+    private long dataChunkStart;            // Byte position of the first frame within the file
     private float floatScale;                // Scaling factor used for int <-> float conversion
     private float floatOffset;            // Offset factor used for int <-> float conversion
     private boolean wordAlignAdjust;        // Specify if an extra byte at the end of the data chunk is required for word alignment
@@ -52,6 +58,8 @@ public class WavFile {
 
     // Buffering
     private byte[] buffer;                    // Local buffer used for IO
+    private ByteBuffer byteBuffer;            // Little-endian view of the local buffer used for block decoding
+    private float[] decodedBuffer;            // Interleaved samples of one block, before de-interleaving
     private int bufferPointer;                // Points to the current position in local buffer
     private int bytesRead;                    // Bytes read after last read into local buffer
     private long frameCounter;                // Current number of frames read or written
@@ -108,6 +116,7 @@ public class WavFile {
 
         // Create a new file input stream for reading file data
         wavFile.iStream = new FileInputStream(file);
+        wavFile.iChannel = wavFile.iStream.getChannel();
 
         // Read the first 12 bytes of the file
         int bytesRead = wavFile.iStream.read(wavFile.buffer, 0, 12);
@@ -199,6 +208,9 @@ public class WavFile {
                 // Calculate the number of frames
                 wavFile.numFrames = chunkSize / wavFile.blockAlign;
 
+                // Remember where the samples start so that frames can be mapped directly
+                wavFile.dataChunkStart = wavFile.iChannel.position();
+
                 // Flag that we've found the wave data chunk
                 foundData = true;
                 break;
@@ -224,6 +236,12 @@ public class WavFile {
             wavFile.floatScale = 0.5f * ((1 << wavFile.validBits) - 1);
         }
 
+        // The local buffer must be able to hold at least one complete frame
+        if (wavFile.blockAlign > wavFile.buffer.length) {
+            wavFile.buffer = new byte[wavFile.blockAlign];
+        }
+        wavFile.byteBuffer = ByteBuffer.wrap(wavFile.buffer).order(ByteOrder.LITTLE_ENDIAN);
+
         wavFile.bufferPointer = 0;
         wavFile.bytesRead = 0;
         wavFile.frameCounter = 0;
@@ -251,30 +269,76 @@ public class WavFile {
     }
 
     /**
-     * To Read the wav file samples per byte
-     * @return
+     * To decode a block of interleaved PCM samples into float values in one pass.
+     * 
+     * The source buffer must be in little-endian order and hold at least
+     * numSamples * bytesPerSample bytes from its current position. Each sample is
+     * scaled the same way as the original per-byte reader (value / 32767).
+     * 
+     * @param source
+     * @param sampleBuffer
+     * @param offset
+     * @param numSamples
+     */
+    private void decodeSamples(ByteBuffer source, float[] sampleBuffer, int offset, int numSamples) {
+        int end = offset + numSamples;
+
+        switch (bytesPerSample) {
+            case 1:
+                // 8 bit data is unsigned
+                for (int i = offset; i < end; i++) {
+                    sampleBuffer[i] = (float) ((source.get() & 0xFF) / 32767.0);
+                }
+                break;
+            case 2:
+                for (int i = offset; i < end; i++) {
+                    sampleBuffer[i] = (float) (source.getShort() / 32767.0);
+                }
+                break;
+            case 3:
+                for (int i = offset; i < end; i++) {
+                    int low = source.getShort() & 0xFFFF;
+                    int high = source.get();
+                    sampleBuffer[i] = (float) ((low | (high << 16)) / 32767.0);
+                }
+                break;
+            case 4:
+                for (int i = offset; i < end; i++) {
+                    sampleBuffer[i] = (float) (source.getInt() / 32767.0);
+                }
+                break;
+            default:
+                for (int i = offset; i < end; i++) {
+                    long val = 0;
+                    for (int b = 0; b < bytesPerSample; b++) {
+                        int v = source.get();
+                        if (b < bytesPerSample - 1) v &= 0xFF;
+                        val += v << (b * 8);
+                    }
+                    sampleBuffer[i] = (float) (val / 32767.0);
+                }
+                break;
+        }
+    }
+
+    /**
+     * To fill the local buffer with the next numBytes bytes of the input stream
+     * @param numBytes
+     * @return little-endian view over the filled part of the local buffer
      * @throws IOException
      * @throws WavFileException
      */
-    private double readSample() throws IOException, WavFileException {
-        long val = 0;
-
-        for (int b = 0; b < bytesPerSample; b++) {
-            if (bufferPointer == bytesRead) {
-                int read = iStream.read(buffer, 0, BUFFER_SIZE);
-                if (read == -1) throw new WavFileException("Not enough data available");
-                bytesRead = read;
-                bufferPointer = 0;
-            }
-
-            int v = buffer[bufferPointer];
-            if (b < bytesPerSample - 1 || bytesPerSample == 1) v &= 0xFF;
-            val += v << (b * 8);
-
-            bufferPointer++;
+    private ByteBuffer fillBuffer(int numBytes) throws IOException, WavFileException {
+        int filled = 0;
+        while (filled < numBytes) {
+            int read = iStream.read(buffer, filled, numBytes - filled);
+            if (read == -1) throw new WavFileException("Not enough data available");
+            filled += read;
         }
 
-        return val/32767.0;
+        byteBuffer.clear();
+        byteBuffer.limit(numBytes);
+        return byteBuffer;
     }
 
     /**
@@ -301,15 +365,23 @@ public class WavFile {
     private int readFramesInternal(float[] sampleBuffer, int offset, int numFramesToRead) throws IOException, WavFileException {
         if (ioState != IOState.READING) throw new IOException("Cannot read from WavFile instance");
 
-        for (int f = 0; f < numFramesToRead; f++) {
-            if (frameCounter == numFrames) return f;
+        int framesPerBlock = buffer.length / blockAlign;
+        int framesRead = 0;
 
-            for (int c = 0; c < numChannels; c++) {
-                sampleBuffer[offset] = floatOffset + (float) readSample() / floatScale;
-                offset++;
+        while (framesRead < numFramesToRead) {
+            if (frameCounter == numFrames) return framesRead;
+
+            int blockFrames = (int) Math.min(Math.min(framesPerBlock, numFramesToRead - framesRead), numFrames - frameCounter);
+            int blockSamples = blockFrames * numChannels;
+
+            decodeSamples(fillBuffer(blockFrames * blockAlign), sampleBuffer, offset, blockSamples);
+            for (int i = offset; i < offset + blockSamples; i++) {
+                sampleBuffer[i] = floatOffset + sampleBuffer[i] / floatScale;
             }
 
-            frameCounter++;
+            offset += blockSamples;
+            framesRead += blockFrames;
+            frameCounter += blockFrames;
         }
 
         return numFramesToRead;
@@ -325,45 +397,96 @@ public class WavFile {
      * @throws WavFileException
      */
     public long readFrames(float[][] sampleBuffer, int numFramesToRead, int frameOffset) throws IOException, WavFileException {
-        return readFramesInternal(sampleBuffer, frameOffset, numFramesToRead);
+        return readFramesInternal(sampleBuffer, 0, frameOffset, numFramesToRead);
     }
 
     /**
-     * To Read the wav file frames
+     * To Read the wav file frames into the given position of the sample buffer
      * @param sampleBuffer
+     * @param bufferOffset
      * @param frameOffset
      * @param numFramesToRead
      * @return
      * @throws IOException
      * @throws WavFileException
      */
-    private long readFramesInternal(float[][] sampleBuffer, int frameOffset, int numFramesToRead) throws IOException, WavFileException {
+    public long readFrames(float[][] sampleBuffer, int bufferOffset, long frameOffset, int numFramesToRead) throws IOException, WavFileException {
+        return readFramesInternal(sampleBuffer, bufferOffset, frameOffset, numFramesToRead);
+    }
+
+    /**
+     * To Read the wav file frames starting at the given frame offset.
+     * 
+     * The data chunk is memory mapped from dataChunkStart + frameOffset * blockAlign,
+     * so only the requested window is decoded irrespective of where it sits in the file.
+     * The sequential read position used by readFrames(float[], int) is not affected.
+     * 
+     * @param sampleBuffer
+     * @param bufferOffset
+     * @param frameOffset
+     * @param numFramesToRead
+     * @return number of frames read
+     * @throws IOException
+     * @throws WavFileException
+     */
+    private long readFramesInternal(float[][] sampleBuffer, int bufferOffset, long frameOffset, int numFramesToRead) throws IOException, WavFileException {
         if (ioState != IOState.READING) throw new IOException("Cannot read from WavFile instance");
-        
-        int readFrameCounter = 0;
-        for (int f = 0; f < totalNumFrames; f++) {
-            if (readFrameCounter == numFramesToRead) return readFrameCounter;
-            
-            //if(frameCounter==totalNumFrames) return readFrameCounter;
-            
-            for (int c = 0; c < numChannels; c++) {
-            	float magValue = (float) readSample();
-            	if(f>=frameOffset) {
-            		sampleBuffer[c][readFrameCounter] = magValue;
-            	}
+        if (frameOffset < 0) throw new WavFileException("Frame offset must not be negative");
 
+        long framesAvailable = totalNumFrames - frameOffset;
+        if (numFramesToRead <= 0 || framesAvailable <= 0) return 0;
+
+        int framesToRead = (int) Math.min(numFramesToRead, framesAvailable);
+        int framesPerWindow = Math.max(1, MAPPED_WINDOW_SIZE / blockAlign);
+        int framesPerBlock = buffer.length / blockAlign;
+
+        if (numChannels > 1 && decodedBuffer == null) {
+            decodedBuffer = new float[framesPerBlock * numChannels];
+        }
+
+        int readFrameCounter = 0;
+        while (readFrameCounter < framesToRead) {
+            int windowFrames = Math.min(framesPerWindow, framesToRead - readFrameCounter);
+            ByteBuffer window = mapFrames(frameOffset + readFrameCounter, windowFrames);
+
+            if (numChannels == 1) {
+                // Mono data needs no de-interleaving, decode straight into the output
+                decodeSamples(window, sampleBuffer[0], bufferOffset + readFrameCounter, windowFrames);
+                readFrameCounter += windowFrames;
+                continue;
             }
-            
-            if(f>=frameOffset) {
-            	readFrameCounter++;
+
+            int windowEnd = readFrameCounter + windowFrames;
+            while (readFrameCounter < windowEnd) {
+                int blockFrames = Math.min(framesPerBlock, windowEnd - readFrameCounter);
+                decodeSamples(window, decodedBuffer, 0, blockFrames * numChannels);
+
+                int i = 0;
+                for (int f = 0; f < blockFrames; f++) {
+                    for (int c = 0; c < numChannels; c++) {
+                        sampleBuffer[c][bufferOffset + readFrameCounter + f] = decodedBuffer[i++];
+                    }
+                }
+                readFrameCounter += blockFrames;
             }
-            
-            
         }
 
         return readFrameCounter;
     }
 
+    /**
+     * To map a window of frames of the data chunk into memory.
+     * @param frameOffset
+     * @param numFrames
+     * @return little-endian buffer positioned at the first requested frame
+     * @throws IOException
+     */
+    private ByteBuffer mapFrames(long frameOffset, int numFrames) throws IOException {
+        long position = dataChunkStart + frameOffset * blockAlign;
+        long size = (long) numFrames * blockAlign;
+        return iChannel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
     /**
      * To close the Input Wav File Istream.
      * 
@@ -374,6 +497,7 @@ public class WavFile {
         if (iStream != null) {
             iStream.close();
             iStream = null;
+            iChannel = null;
         }
 
         if (oStream != null) {
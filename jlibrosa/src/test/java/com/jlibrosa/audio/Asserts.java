@@ -0,0 +1,19 @@
+package com.jlibrosa.audio;
+
+/**
+ *
+ * Assertion shared by the main-style test classes: a failed check stops the test
+ * with a "[FAIL] message" RuntimeException.
+ *
+ */
+final class Asserts {
+
+	private Asserts() {
+	}
+
+	static void assertTrue(boolean condition, String message) {
+		if (!condition) {
+			throw new RuntimeException("[FAIL] " + message);
+		}
+	}
+}
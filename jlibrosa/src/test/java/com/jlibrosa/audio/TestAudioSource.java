@@ -0,0 +1,76 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Arrays;
+
+import com.jlibrosa.audio.wavFile.AudioSource;
+
+/**
+ *
+ * This class checks that the overlapping blocks of an AudioSource cover the
+ * complete file and match the values returned by loadAndReadAcrossChannels,
+ * also when the caller reuses the buffer and overwrites it between blocks.
+ *
+ */
+public class TestAudioSource {
+
+	public static void main(String[] args) throws Exception {
+		String audioFilePath = "audioFiles/001_children_playing.wav";
+
+		JLibrosa jLibrosa = new JLibrosa();
+		float[][] fullValues = jLibrosa.loadAndReadAcrossChannels(audioFilePath, -1, -1);
+
+		checkBlocks(audioFilePath, fullValues, 4096, 0, true, false);
+		checkBlocks(audioFilePath, fullValues, 2048 + 7 * 512, 2048 - 512, true, false);
+		checkBlocks(audioFilePath, fullValues, 5000, 1234, false, false);
+		checkBlocks(audioFilePath, fullValues, 2048 + 7 * 512, 2048 - 512, true, true);
+	}
+
+	private static void checkBlocks(String audioFilePath, float[][] fullValues, int blockSize, int overlap,
+			boolean reuseBuffer, boolean overwrite) throws Exception {
+		JLibrosa jLibrosa = new JLibrosa();
+		AudioSource audioSource = jLibrosa.openAudioSource(audioFilePath, blockSize, overlap);
+
+		int channels = audioSource.getNumChannels();
+		long totalFrames = audioSource.getNumFrames();
+		assertTrue(totalFrames == fullValues[0].length, "number of frames");
+
+		float[][] block = new float[channels][blockSize];
+		long covered = 0;
+		int blocks = 0;
+
+		while (audioSource.hasNextBlock()) {
+			if (!reuseBuffer) {
+				block = new float[channels][blockSize];
+			}
+			int valid = audioSource.nextBlock(block);
+			long start = audioSource.getBlockStart();
+			assertTrue(start == (long) blocks * (blockSize - overlap), "start of block " + blocks);
+
+			for (int c = 0; c < channels; c++) {
+				for (int f = 0; f < blockSize; f++) {
+					float expected = f < valid ? fullValues[c][(int) (start + f)] : 0.0f;
+					assertTrue(block[c][f] == expected, "value at block " + blocks + ", channel " + c + ", frame " + f);
+				}
+			}
+
+			if (overwrite) {
+				// e.g. the caller processes the block in place before reading the next one
+				for (int c = 0; c < channels; c++) {
+					Arrays.fill(block[c], Float.NaN);
+				}
+			}
+
+			covered = start + valid;
+			blocks++;
+		}
+
+		assertTrue(covered == totalFrames, "blocks must cover the whole file");
+		assertTrue(audioSource.nextBlock(block) == 0, "exhausted source must return no frames");
+		audioSource.close();
+
+		System.out.println("[OK] blockSize=" + blockSize + " overlap=" + overlap + " blocks=" + blocks
+				+ (overwrite ? " (buffer overwritten between blocks)" : ""));
+	}
+}
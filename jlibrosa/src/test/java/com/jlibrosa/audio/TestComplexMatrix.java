@@ -0,0 +1,90 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.math3.complex.Complex;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.util.ComplexMatrix;
+
+/**
+ *
+ * This class checks the ComplexMatrix layout and that the ComplexMatrix STFT
+ * entry points match the Complex[][] adapters.
+ *
+ */
+public class TestComplexMatrix {
+
+	public static void main(String[] args) {
+		// --- Layout and accessors ---
+		ComplexMatrix m = new ComplexMatrix(3, 2);
+		for (int r = 0; r < 3; r++) {
+			for (int c = 0; c < 2; c++) {
+				m.set(r, c, 10 * r + c, -(10 * r + c));
+			}
+		}
+		assertTrue(m.getData().length == 12, "data length");
+		assertTrue(m.getData()[m.columnOffset(1)] == 1.0, "column 1 starts with element (0, 1)");
+		assertTrue(m.getReal(2, 1) == 21.0 && m.getImag(2, 1) == -21.0, "element (2, 1)");
+		double[] row = m.getRow(1);
+		assertTrue(row.length == 4 && row[2] == 11.0 && row[3] == -11.0, "row 1");
+		double[] col = m.getColumn(0);
+		assertTrue(col.length == 6 && col[4] == 20.0 && col[5] == -20.0, "column 0");
+		assertTrue(m.abs(1, 0) == Math.hypot(10, 10), "abs");
+
+		Complex[][] arr = m.toComplexArray();
+		ComplexMatrix back = ComplexMatrix.fromComplexArray(arr);
+		for (int i = 0; i < m.getData().length; i++) {
+			assertTrue(m.getData()[i] == back.getData()[i], "round trip at " + i);
+		}
+		try {
+			new ComplexMatrix(1025, 1 << 21);
+			assertTrue(false, "a shape above Integer.MAX_VALUE values must be rejected");
+		} catch (IllegalArgumentException expected) {
+			assertTrue(expected.getMessage().startsWith("Matrix too large"), "too large message");
+		}
+		System.out.println("[OK] ComplexMatrix layout and conversions");
+
+		// --- STFT: ComplexMatrix vs the Complex[][] adapter ---
+		Random random = new Random(7);
+		double[] y = new double[10007];
+		for (int i = 0; i < y.length; i++) {
+			y[i] = random.nextGaussian() * 0.1;
+		}
+
+		ComplexMatrix stft = Spectrum.stftMatrix(y, 2048, 512, null, "hann", true, "constant");
+		Complex[][] stftOld = Spectrum.stft(y, 2048, 512, null, "hann", true, "constant");
+		assertTrue(stft.rows() == stftOld.length && stft.cols() == stftOld[0].length, "STFT shape");
+		for (int r = 0; r < stft.rows(); r++) {
+			for (int c = 0; c < stft.cols(); c++) {
+				assertTrue(stft.getReal(r, c) == stftOld[r][c].getReal()
+						&& stft.getImag(r, c) == stftOld[r][c].getImaginary(), "STFT value at " + r + ", " + c);
+			}
+		}
+		System.out.println("[OK] Spectrum.stftMatrix matches Spectrum.stft " + stft.rows() + " x " + stft.cols());
+
+		// --- JLibrosa: STFT and iSTFT with ComplexMatrix ---
+		float[] yf = new float[y.length];
+		for (int i = 0; i < y.length; i++) {
+			yf[i] = (float) y[i];
+		}
+		JLibrosa jLibrosa = new JLibrosa();
+		ComplexMatrix features = jLibrosa.generateSTFTMatrix(yf, 22050, 40);
+		Complex[][] featuresOld = jLibrosa.generateSTFTFeatures(yf, 22050, 40);
+		for (int r = 0; r < features.rows(); r++) {
+			for (int c = 0; c < features.cols(); c++) {
+				assertTrue(features.get(r, c).equals(featuresOld[r][c]), "STFT features at " + r + ", " + c);
+			}
+		}
+
+		float[] inv = jLibrosa.generateInvSTFTFeatures(features, 22050, 40);
+		float[] invOld = jLibrosa.generateInvSTFTFeatures(featuresOld, 22050, 40);
+		assertTrue(inv.length == invOld.length, "iSTFT length");
+		for (int i = 0; i < inv.length; i++) {
+			assertTrue(inv[i] == invOld[i], "iSTFT value at " + i);
+		}
+		System.out.println("[OK] JLibrosa STFT/iSTFT with ComplexMatrix match the Complex[][] methods");
+	}
+}
@@ -0,0 +1,126 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.complex.Complex;
+
+import com.jlibrosa.audio.process.AudioFeatureExtraction;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.Utils;
+
+/**
+ *
+ * This class checks the complex STFT of AudioFeatureExtraction (one real FFT per frame)
+ * against the reference magnitudes in stft_java.csv (440 Hz sine, sr 22050, n_fft 2048,
+ * hop 512, written by TestSTFTSENO) and against the full complex FFT of each windowed frame.
+ *
+ */
+public class TestComplexStftParity {
+
+	public static void main(String[] args) throws IOException {
+		int n_fft = 2048;
+		int hop_length = 512;
+		double sr = 22050.0;
+
+		AudioFeatureExtraction afe = new AudioFeatureExtraction();
+		afe.setN_fft(n_fft);
+		afe.setHop_length(hop_length);
+
+		// --- Magnitudes from stft_java.csv ---
+		float[] sine = new float[4096];
+		for (int i = 0; i < sine.length; i++) {
+			sine[i] = (float) Math.sin(2 * Math.PI * 440.0 * i / sr);
+		}
+		double[][] expected = readCsv("stft_java.csv");
+		ComplexMatrix stft = afe.extractSTFTFeaturesAsComplexMatrix(sine, true);
+		assertTrue(stft.rows() == expected.length && stft.cols() == expected[0].length,
+				"shape " + stft.rows() + " x " + stft.cols());
+
+		// stft_java.csv uses "constant" padding and this test uses "reflect": only the
+		// frames that do not touch the padding (2 to 6) are compared
+		double peak = 0;
+		for (double[] row : expected) {
+			for (double value : row) {
+				peak = Math.max(peak, value);
+			}
+		}
+		for (int t = 2; t <= 6; t++) {
+			for (int k = 0; k < stft.rows(); k++) {
+				double mag = Math.hypot(stft.getReal(k, t), stft.getImag(k, t));
+				// the csv sine was generated in double, this one in float
+				assertTrue(Math.abs(mag - expected[k][t]) <= 1e-5 * peak, "bin " + k + " frame " + t + ": " + mag
+						+ " vs " + expected[k][t]);
+			}
+		}
+		System.out.println("[OK] interior frames match stft_java.csv");
+
+		// --- Same result as the full complex FFT of each frame ---
+		Random random = new Random(21);
+		float[] y = new float[10000];
+		for (int i = 0; i < y.length; i++) {
+			y[i] = (float) random.nextGaussian();
+		}
+		double[] window = Utils.padCenter(Utils.getWindow("hann", n_fft, true), n_fft);
+		for (boolean paddingFlag : new boolean[] { true, false }) {
+			stft = afe.extractSTFTFeaturesAsComplexMatrix(y, paddingFlag);
+			Complex[][] values = afe.extractSTFTFeaturesAsComplexValues(y, paddingFlag);
+			int pad = paddingFlag ? n_fft / 2 : 0;
+			int frames = 1 + (y.length + 2 * pad - n_fft) / hop_length;
+			assertTrue(stft.cols() == frames && values[0].length == frames, "frames paddingFlag=" + paddingFlag);
+
+			for (int t = 0; t < frames; t++) {
+				double[] frame = new double[n_fft];
+				for (int i = 0; i < n_fft; i++) {
+					frame[i] = reflect(y, t * hop_length + i - pad) * window[i];
+				}
+				Complex[] full = Utils.fft(frame, n_fft);
+				for (int k = 0; k < stft.rows(); k++) {
+					double tolerance = 1e-9 * (1 + full[k].abs());
+					assertTrue(Math.abs(stft.getReal(k, t) - full[k].getReal()) <= tolerance
+							&& Math.abs(stft.getImag(k, t) - full[k].getImaginary()) <= tolerance,
+							"bin " + k + " frame " + t + " paddingFlag=" + paddingFlag);
+					assertTrue(values[k][t].getReal() == stft.getReal(k, t)
+							&& values[k][t].getImaginary() == stft.getImag(k, t), "Complex[][] adapter");
+				}
+			}
+			System.out.println("[OK] one real FFT per frame matches the full complex FFT, paddingFlag=" + paddingFlag);
+		}
+	}
+
+	// Sample i of the reflect padded signal (numpy.pad mode="reflect")
+	private static double reflect(float[] y, int i) {
+		if (i < 0) {
+			return y[-i];
+		}
+		if (i >= y.length) {
+			return y[2 * (y.length - 1) - i];
+		}
+		return y[i];
+	}
+
+	private static double[][] readCsv(String path) throws IOException {
+		List<double[]> rows = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(new FileReader(path));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] cols = line.split(",");
+				double[] row = new double[cols.length];
+				for (int i = 0; i < cols.length; i++) {
+					row[i] = Double.parseDouble(cols[i]);
+				}
+				rows.add(row);
+			}
+		} finally {
+			reader.close();
+		}
+		return rows.toArray(new double[rows.size()][]);
+	}
+}
@@ -0,0 +1,102 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Arrays;
+
+import com.jlibrosa.audio.core.Constantq;
+import com.jlibrosa.audio.core.CqtPlan;
+import com.jlibrosa.audio.util.ComplexMatrix;
+
+/**
+ *
+ * This class checks the CQT/VQT plan cache: one plan per set of analysis parameters,
+ * the same transform with a cached and with a freshly built plan, the per-octave
+ * layout of the plan and the LRU limit.
+ *
+ */
+public class TestCqtPlan {
+
+	public static void main(String[] args) {
+		int sr = 22050;
+		int hop = 512;
+		double fmin = 32.70319566257483;
+
+		// --- One plan per key ---
+		CqtPlan plan = CqtPlan.get(sr, hop, fmin, 84, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann");
+		assertTrue(CqtPlan.get(sr, hop, fmin, 84, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann") == plan, "same plan");
+		assertTrue(CqtPlan.get(sr, hop, fmin, 84, 12, "equal", 0.0, 1.0, 1.0, 0.01, null) == plan,
+				"null window is hann");
+		assertTrue(CqtPlan.get(sr, hop, fmin, 84, 12, "equal", 5.0, 1.0, 1.0, 0.01, "hann") != plan,
+				"gamma is part of the key");
+		assertTrue(CqtPlan.get(sr, 256, fmin, 84, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann") != plan,
+				"hop is part of the key");
+		double[] ratios = new double[12];
+		for (int i = 0; i < ratios.length; i++) {
+			ratios[i] = Math.pow(2.0, i / 12.0);
+		}
+		double[] original = ratios.clone();
+		CqtPlan fromRatios = CqtPlan.get(sr, hop, fmin, 84, 0, ratios, 0.0, 1.0, 1.0, 0.01, "hann");
+		// The key holds a copy of the ratios
+		ratios[0] = 1.5;
+		assertTrue(CqtPlan.get(sr, hop, fmin, 84, 0, original, 0.0, 1.0, 1.0, 0.01, "hann") == fromRatios,
+				"ratios copied into the key");
+		assertTrue(Arrays.equals(fromRatios.freqs(), plan.freqs()), "equal temperament ratios give the same freqs");
+		System.out.println("[OK] one plan per analysis parameters");
+
+		// --- Layout: 7 octaves, early downsample and nFft per octave ---
+		assertTrue(plan.nOctaves() == 7 && plan.nBins() == 84, "octaves");
+		assertTrue(plan.earlySr() == sr && plan.earlyHopLength() == hop, "no early downsample for 84 bins");
+		CqtPlan low = CqtPlan.get(sr, hop, fmin, 60, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann");
+		assertTrue(low.earlySr() < sr && low.earlyHopLength() < hop
+				&& sr / low.earlySr() == (double) hop / low.earlyHopLength(), "early downsample for 60 bins");
+		for (int i = 0; i < plan.nOctaves(); i++) {
+			assertTrue(Integer.bitCount(plan.nFft(i)) == 1, "nFft power of two");
+		}
+		double[] freqs = plan.freqs();
+		freqs[0] = -1;
+		assertTrue(plan.freqs()[0] == fmin, "freqs returns a copy");
+		System.out.println("[OK] per-octave plan layout");
+
+		// --- Same transform with the cached plan and with a new plan ---
+		double[] y = new double[3 * sr];
+		for (int i = 0; i < y.length; i++) {
+			y[i] = Math.sin(2 * Math.PI * 440.0 * i / sr) + 0.5 * Math.sin(2 * Math.PI * 97.0 * i / sr);
+		}
+		ComplexMatrix cached = Constantq.cqt(y, sr, hop, fmin, 84, 12, 0.0, 1.0, 1.0, 0.01, "hann", true, null,
+				null, null);
+		ComplexMatrix again = Constantq.cqt(y, sr, hop, fmin, 84, 12, 0.0, 1.0, 1.0, 0.01, "hann", true, null,
+				null, null);
+		CqtPlan.clear();
+		ComplexMatrix fresh = Constantq.cqt(y, sr, hop, fmin, 84, 12, 0.0, 1.0, 1.0, 0.01, "hann", true, null,
+				null, null);
+		assertTrue(Arrays.equals(cached.getData(), again.getData()), "cached plan is not modified by cqt");
+		assertTrue(Arrays.equals(cached.getData(), fresh.getData()), "fresh plan gives the same cqt");
+		System.out.println("[OK] cached and fresh plans give the same cqt");
+
+		// --- LRU ---
+		int max = CqtPlan.getMaxEntries();
+		try {
+			CqtPlan.clear();
+			CqtPlan.setMaxEntries(2);
+			CqtPlan.get(sr, hop, fmin, 12, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann");
+			CqtPlan.get(sr, hop, fmin, 24, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann");
+			CqtPlan.get(sr, hop, fmin, 36, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann");
+			assertTrue(CqtPlan.size() == 2, "cache limited to max entries");
+		} finally {
+			CqtPlan.setMaxEntries(max);
+		}
+		System.out.println("[OK] cache with LRU limit");
+
+		// --- Nyquist ---
+		boolean thrown = false;
+		try {
+			CqtPlan.get(sr, hop, fmin, 120, 12, "equal", 0.0, 1.0, 1.0, 0.01, "hann");
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "bins above Nyquist must be rejected");
+		assertTrue(CqtPlan.size() == 2, "failed plans are not cached");
+		System.out.println("[OK] bins above Nyquist rejected");
+	}
+}
@@ -0,0 +1,96 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import com.jlibrosa.audio.util.DctBasis;
+
+/**
+ *
+ * This class checks the cached DCT-II basis used for mfcc: the basis against the
+ * scipy formula, the fast DCT path against the basis product, and the cache.
+ *
+ */
+public class TestDctBasis {
+
+	public static void main(String[] args) {
+		Random random = new Random(20);
+		int[][] sizes = { { 40, 128 }, { 100, 128 }, { 128, 128 }, { 13, 26 }, { 20, 20 }, { 30, 37 }, { 60, 40 } };
+
+		for (int[] size : sizes) {
+			int nFilters = size[0];
+			int nInput = size[1];
+			for (String norm : new String[] { DctBasis.ORTHO, null }) {
+				DctBasis basis = DctBasis.get(nFilters, nInput, norm);
+
+				// --- Basis equal to the scipy formula (dct type 2) ---
+				for (int i = 0; i < nFilters; i++) {
+					for (int j = 0; j < nInput; j++) {
+						double expected = 2 * Math.cos(Math.PI * i * (2 * j + 1) / (2.0 * nInput));
+						if (norm != null) {
+							expected *= i == 0 ? Math.sqrt(1.0 / (4 * nInput)) : Math.sqrt(1.0 / (2 * nInput));
+						}
+						assertTrue(Math.abs(basis.get(i, j) - expected) <= 1e-12, "basis " + i + ", " + j);
+					}
+				}
+
+				// --- apply (fast DCT or product) equal to the product with the basis ---
+				int frames = 300;
+				double[][] x = new double[nInput][frames];
+				float[][] xf = new float[nInput][frames];
+				for (int j = 0; j < nInput; j++) {
+					for (int t = 0; t < frames; t++) {
+						x[j][t] = random.nextGaussian() * 20;
+						xf[j][t] = (float) x[j][t];
+					}
+				}
+				double[][] y = basis.apply(x);
+				float[][] yf = basis.apply(xf);
+				for (int i = 0; i < nFilters; i++) {
+					for (int t = 0; t < frames; t++) {
+						double expected = 0;
+						// Error relative to the sum of magnitudes (the terms cancel out)
+						double scale = 0;
+						for (int j = 0; j < nInput; j++) {
+							expected += basis.get(i, j) * x[j][t];
+							scale += Math.abs(basis.get(i, j) * x[j][t]);
+						}
+						assertTrue(Math.abs(y[i][t] - expected) <= 1e-12 * scale, "double dct " + i + ", " + t);
+						assertTrue(Math.abs(yf[i][t] - expected) <= 1e-4 * scale, "float dct " + i + ", " + t);
+					}
+				}
+				System.out.println("[OK] DCT-II " + nFilters + " x " + nInput + " norm=" + norm + " fft="
+						+ basis.usesFft());
+			}
+		}
+		assertTrue(DctBasis.get(128, 128, DctBasis.ORTHO).usesFft(), "fast DCT when n_filters == n_input");
+		assertTrue(!DctBasis.get(40, 128, DctBasis.ORTHO).usesFft(), "basis product for the default 40 x 128");
+
+		// --- Cache ---
+		DctBasis basis = DctBasis.get(40, 128, DctBasis.ORTHO);
+		assertTrue(DctBasis.get(40, 128, DctBasis.ORTHO) == basis, "same basis per key");
+		assertTrue(DctBasis.get(40, 128, null) != basis, "norm is part of the key");
+		int max = DctBasis.getMaxEntries();
+		try {
+			DctBasis.clear();
+			DctBasis.setMaxEntries(2);
+			DctBasis.get(10, 20, DctBasis.ORTHO);
+			DctBasis.get(10, 30, DctBasis.ORTHO);
+			DctBasis.get(10, 40, DctBasis.ORTHO);
+			assertTrue(DctBasis.size() == 2, "cache limited to max entries");
+		} finally {
+			DctBasis.setMaxEntries(max);
+		}
+		System.out.println("[OK] cache per (n_filters, n_input, norm) with LRU limit");
+
+		boolean thrown = false;
+		try {
+			DctBasis.get(40, 128, "forward");
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "unsupported norm must be rejected");
+		System.out.println("[OK] unsupported norm rejected");
+	}
+}
@@ -0,0 +1,67 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.Random;
+
+/**
+ *
+ * This class checks the in-place mono downmix against the DecimalFormat based
+ * rounding it replaces.
+ *
+ */
+public class TestDownmixToMono {
+
+	public static void main(String[] args) {
+		DecimalFormat df = new DecimalFormat("#.#####");
+		df.setRoundingMode(RoundingMode.CEILING);
+
+		Random random = new Random(42);
+		int numFrames = 200000;
+		float[][] stereo = new float[2][numFrames];
+		for (int i = 0; i < numFrames; i++) {
+			stereo[0][i] = (float) ((random.nextInt(65536) - 32768) / 32767.0);
+			stereo[1][i] = i % 10 == 0 ? (float) (random.nextDouble() * 1e-5) : (float) ((random.nextInt(65536) - 32768) / 32767.0);
+		}
+
+		float[] expected = new float[numFrames];
+		float[] expectedUnrounded = new float[numFrames];
+		for (int i = 0; i < numFrames; i++) {
+			double mean = ((double) stereo[0][i] + stereo[1][i]) / 2;
+			expected[i] = Float.parseFloat(df.format(mean));
+			expectedUnrounded[i] = (float) mean;
+		}
+
+		float[][] copy = { stereo[0].clone(), stereo[1].clone() };
+		float[] mono = JLibrosa.downmixToMono(copy, numFrames, true);
+		assertTrue(mono == copy[0], "downmix must be written into the first channel");
+		for (int i = 0; i < numFrames; i++) {
+			assertTrue(Float.floatToIntBits(expected[i]) == Float.floatToIntBits(mono[i]),
+					"rounded mean at frame " + i + ": expected " + expected[i] + " got " + mono[i]);
+		}
+
+		float[] unrounded = JLibrosa.downmixToMono(new float[][] { stereo[0].clone(), stereo[1].clone() }, numFrames, false);
+		for (int i = 0; i < numFrames; i++) {
+			assertTrue(expectedUnrounded[i] == unrounded[i], "unrounded mean at frame " + i);
+		}
+
+		System.out.println("[OK] downmixToMono matches DecimalFormat rounding for " + numFrames + " frames");
+
+		// Small values that need rounding: ceiling to the next 1e-5 step, values
+		// below 1e-6 truncated to (signed) zero and negatives just below a step
+		float[] values = { 1e-6f, 1.5e-6f, -1.5e-6f, 9.99e-6f, -9.99e-6f, 1.001e-5f, -1.001e-5f, -2.0001e-5f,
+				0.1234501f, -0.1234599f, 0.5f };
+		float[] rounded = { 0.0f, 1e-5f, -0.0f, 1e-5f, -0.0f, 2e-5f, -1e-5f, -2e-5f, 0.12346f, -0.12345f, 0.5f };
+		float[][] small = { values.clone(), values.clone() };
+		float[] smallMono = JLibrosa.downmixToMono(small, values.length, true);
+		for (int i = 0; i < values.length; i++) {
+			assertTrue(Float.floatToIntBits(rounded[i]) == Float.floatToIntBits(smallMono[i]),
+					"rounded " + values[i] + ": expected " + rounded[i] + " got " + smallMono[i]);
+			assertTrue(Float.floatToIntBits(rounded[i]) == Float.floatToIntBits(Float.parseFloat(df.format(values[i]))),
+					"DecimalFormat reference for " + values[i]);
+		}
+		System.out.println("[OK] small values rounded up to the next 1e-5 step");
+	}
+}
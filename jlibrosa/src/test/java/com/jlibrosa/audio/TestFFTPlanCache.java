@@ -0,0 +1,80 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.complex.Complex;
+import org.jtransforms.fft.DoubleFFT_1D;
+
+import com.jlibrosa.audio.util.FFTPlanCache;
+import com.jlibrosa.audio.util.Utils;
+
+/**
+ *
+ * This class checks that FFT plans are shared per (size, precision), that the
+ * cache evicts the least recently used plan, and that Utils.ifft inverts Utils.fft.
+ *
+ */
+public class TestFFTPlanCache {
+
+	public static void main(String[] args) throws Exception {
+		FFTPlanCache.clear();
+
+		DoubleFFT_1D plan = FFTPlanCache.doubleFFT(2048);
+		assertTrue(plan == FFTPlanCache.doubleFFT(2048), "same plan for the same size");
+		assertTrue(FFTPlanCache.floatFFT(2048) == FFTPlanCache.floatFFT(2048), "same float plan for the same size");
+		assertTrue(FFTPlanCache.size() == 2, "double and float plans are cached separately");
+		System.out.println("[OK] plans are shared per size and precision");
+
+		// --- LRU ---
+		int previousMax = FFTPlanCache.getMaxPlans();
+		FFTPlanCache.clear();
+		FFTPlanCache.setMaxPlans(2);
+		DoubleFFT_1D p512 = FFTPlanCache.doubleFFT(512);
+		FFTPlanCache.doubleFFT(1024);
+		FFTPlanCache.doubleFFT(512);      // 512 becomes the most recent
+		FFTPlanCache.doubleFFT(4096);     // discards 1024
+		assertTrue(FFTPlanCache.size() == 2, "cache bounded to 2 plans");
+		assertTrue(FFTPlanCache.doubleFFT(512) == p512, "recently used plan kept");
+		FFTPlanCache.setMaxPlans(previousMax);
+		System.out.println("[OK] least recently used plan is evicted");
+
+		// --- Concurrent use ---
+		FFTPlanCache.clear();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<DoubleFFT_1D>> futures = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			futures.add(pool.submit(new Callable<DoubleFFT_1D>() {
+				@Override
+				public DoubleFFT_1D call() {
+					return FFTPlanCache.doubleFFT(3000);
+				}
+			}));
+		}
+		DoubleFFT_1D first = futures.get(0).get();
+		for (Future<DoubleFFT_1D> f : futures) {
+			assertTrue(f.get() == first, "concurrent callers share one plan");
+		}
+		pool.shutdown();
+		System.out.println("[OK] concurrent lookups share one plan");
+
+		// --- fft / ifft ---
+		double[] signal = new double[1000];
+		for (int i = 0; i < signal.length; i++) {
+			signal[i] = Math.sin(0.05 * i) + 0.25 * Math.cos(0.31 * i);
+		}
+		Complex[] spectrum = Utils.fft(signal, signal.length);
+		Complex[] back = Utils.ifft(spectrum);
+		for (int i = 0; i < signal.length; i++) {
+			assertTrue(Math.abs(back[i].getReal() - signal[i]) < 1e-12 && Math.abs(back[i].getImaginary()) < 1e-12,
+					"ifft(fft(x)) at " + i);
+		}
+		System.out.println("[OK] Utils.ifft inverts Utils.fft");
+	}
+}
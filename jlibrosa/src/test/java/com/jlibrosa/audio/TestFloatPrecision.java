@@ -0,0 +1,106 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import com.jlibrosa.audio.process.AudioFeatureExtraction;
+import com.jlibrosa.audio.util.Precision;
+import com.jlibrosa.audio.util.StftBatch;
+
+/**
+ *
+ * This class checks that the float32 engine (Precision.FLOAT) stays within the error
+ * bounds documented in Precision for the power spectrum, mel spectrogram and MFCC, and
+ * that JLibrosa forwards the precision option.
+ *
+ */
+public class TestFloatPrecision {
+
+	public static void main(String[] args) throws Exception {
+		JLibrosa jLibrosa = new JLibrosa();
+		float[] noise = new float[44100];
+		Random random = new Random(1);
+		for (int i = 0; i < noise.length; i++) {
+			noise[i] = (float) random.nextGaussian();
+		}
+		checkBounds("noise", noise);
+		checkBounds("1995-1826-0003.wav", jLibrosa.loadAndRead("audioFiles/1995-1826-0003.wav", -1, -1));
+		checkBounds("001_children_playing.wav", jLibrosa.loadAndRead("audioFiles/001_children_playing.wav", -1, -1));
+
+		// --- JLibrosa passes the precision on ---
+		float[][] mfccDouble = jLibrosa.generateMFCCFeatures(noise, 22050, 40);
+		jLibrosa.setPrecision(Precision.FLOAT);
+		float[][] mfccFloat = jLibrosa.generateMFCCFeatures(noise, 22050, 40);
+		boolean differs = false;
+		for (int i = 0; i < mfccDouble.length; i++) {
+			for (int t = 0; t < mfccDouble[0].length; t++) {
+				assertTrue(Math.abs(mfccDouble[i][t] - mfccFloat[i][t]) <= 1e-3, "JLibrosa MFCC at " + i + "," + t);
+				differs |= mfccDouble[i][t] != mfccFloat[i][t];
+			}
+		}
+		assertTrue(differs, "setPrecision(FLOAT) must reach AudioFeatureExtraction");
+
+		// --- Batch STFT in float32 ---
+		float[][] clips = { noise, noise.clone() };
+		StftBatch batchFloat = jLibrosa.generateSTFTBatch(clips, 2048, 512);
+		jLibrosa.setPrecision(Precision.DOUBLE);
+		StftBatch batchDouble = jLibrosa.generateSTFTBatch(clips, 2048, 512);
+		double maxAbs = 0;
+		for (float v : batchDouble.getData()) {
+			maxAbs = Math.max(maxAbs, Math.abs(v));
+		}
+		for (int i = 0; i < batchDouble.getData().length; i++) {
+			assertTrue(Math.abs(batchDouble.getData()[i] - batchFloat.getData()[i]) <= 1e-5 * maxAbs,
+					"float batch STFT at " + i);
+		}
+		System.out.println("[OK] JLibrosa forwards the precision option (MFCC and batch STFT)");
+	}
+
+	private static void checkBounds(String name, float[] y) {
+		AudioFeatureExtraction exact = new AudioFeatureExtraction();
+		exact.setSampleRate(22050);
+		AudioFeatureExtraction fast = new AudioFeatureExtraction();
+		fast.setSampleRate(22050);
+		fast.setPrecision(Precision.FLOAT);
+
+		// --- Power spectrum: relative to the largest value of the frame ---
+		double[][] power = exact.extractSTFTFeatures(y);
+		float[][] powerFloat = fast.extractSTFTFeaturesFloat(y);
+		for (int t = 0; t < power[0].length; t++) {
+			double max = 0;
+			for (int k = 0; k < power.length; k++) {
+				max = Math.max(max, power[k][t]);
+			}
+			for (int k = 0; k < power.length; k++) {
+				assertTrue(Math.abs(power[k][t] - powerFloat[k][t]) <= 1e-6 * max, name + " power at " + k + "," + t);
+			}
+		}
+
+		// --- Mel: relative, in the bands above 1e-6 of the maximum ---
+		float[][] mel = exact.melSpectrogramWithComplexValueProcessing(y);
+		float[][] melFloat = fast.melSpectrogramWithComplexValueProcessing(y);
+		double max = 0;
+		for (float[] row : mel) {
+			for (float v : row) {
+				max = Math.max(max, v);
+			}
+		}
+		for (int i = 0; i < mel.length; i++) {
+			for (int t = 0; t < mel[0].length; t++) {
+				if (mel[i][t] > 1e-6 * max) {
+					assertTrue(Math.abs(mel[i][t] - melFloat[i][t]) <= 1e-4 * mel[i][t], name + " mel at " + i + "," + t);
+				}
+			}
+		}
+
+		// --- MFCC: absolute, in dB ---
+		float[] mfcc = exact.extractMFCCFeatures(y);
+		float[] mfccFloat = fast.extractMFCCFeatures(y);
+		assertTrue(mfcc.length == mfccFloat.length, name + " MFCC length");
+		for (int i = 0; i < mfcc.length; i++) {
+			assertTrue(Math.abs(mfcc[i] - mfccFloat[i]) <= 1e-3, name + " MFCC at " + i);
+		}
+		System.out.println("[OK] float32 power, mel and MFCC within the documented bounds for " + name);
+	}
+}
@@ -0,0 +1,114 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.FrameView;
+import com.jlibrosa.audio.util.Utils;
+
+/**
+ *
+ * This class checks that FrameView reads the same frames as Utils.frame, with and
+ * without an offset, and that its virtual padding modes match np.pad.
+ *
+ */
+public class TestFrameView {
+
+	public static void main(String[] args) {
+		double[] x = new double[1003];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i + 1;
+		}
+
+		// --- No padding: equal to Utils.frame ---
+		double[][] frames = Utils.frame(x, 256, 64);
+		FrameView view = FrameView.of(x, 256, 64);
+		assertTrue(view.numFrames() == frames.length, "number of frames");
+		double[] buffer = new double[256];
+		for (int f = 0; f < frames.length; f++) {
+			view.copyFrame(f, buffer, 0);
+			for (int i = 0; i < 256; i++) {
+				assertTrue(buffer[i] == frames[f][i] && view.get(f, i) == frames[f][i], "frame " + f + " sample " + i);
+			}
+		}
+		assertTrue(view.limit(3).numFrames() == 3, "limit");
+		System.out.println("[OK] FrameView.of matches Utils.frame (" + frames.length + " frames)");
+
+		// --- Offset + virtual padding: equal to Utils.frame(pad1D(x[offset:])) ---
+		int offset = 17;
+		double[] sliced = new double[x.length - offset];
+		System.arraycopy(x, offset, sliced, 0, sliced.length);
+		double[] padded = Utils.pad1D(sliced, 128, 100, 0.0);
+		double[][] paddedFrames = Utils.frame(padded, 256, 64);
+
+		FrameView paddedView = new FrameView(x, offset, x.length - offset, 128, 100, 256, 64);
+		assertTrue(paddedView.paddedLength() == padded.length, "padded length");
+		assertTrue(paddedView.numFrames() == paddedFrames.length, "number of padded frames");
+
+		double[] window = Utils.getWindow("hann", 256, true);
+		double[] windowed = new double[256];
+		for (int f = 0; f < paddedFrames.length; f++) {
+			paddedView.windowedFrame(f, window, windowed);
+			for (int i = 0; i < 256; i++) {
+				assertTrue(windowed[i] == paddedFrames[f][i] * window[i], "windowed frame " + f + " sample " + i);
+			}
+		}
+		System.out.println("[OK] FrameView with offset and padding matches Utils.frame(pad1D(x))");
+
+		// --- Padding modes (np.pad examples) ---
+		double[] small = { 1, 2, 3, 4, 5 };
+		assertPadded(small, 2, 3, FrameView.PadMode.REFLECT, new double[] { 3, 2, 1, 2, 3, 4, 5, 4, 3, 2 });
+		assertPadded(small, 2, 3, FrameView.PadMode.EDGE, new double[] { 1, 1, 1, 2, 3, 4, 5, 5, 5, 5 });
+		assertPadded(small, 2, 3, FrameView.PadMode.CONSTANT, new double[] { 0, 0, 1, 2, 3, 4, 5, 0, 0, 0 });
+		// padding longer than the signal: repeated reflection
+		assertPadded(new double[] { 1, 2, 3 }, 5, 5, FrameView.PadMode.REFLECT,
+				new double[] { 2, 1, 2, 3, 2, 1, 2, 3, 2, 1, 2, 3, 2 });
+		System.out.println("[OK] constant, reflect and edge padding match np.pad");
+
+		// --- Centered STFT = uncentered STFT of the explicitly padded signal ---
+		int n_fft = 512;
+		double[] reflected = new double[x.length + n_fft];
+		double[] edged = new double[x.length + n_fft];
+		for (int i = 0; i < n_fft / 2; i++) {
+			reflected[n_fft / 2 - i - 1] = x[i + 1];
+			reflected[n_fft / 2 + x.length + i] = x[x.length - 2 - i];
+			edged[i] = x[0];
+			edged[n_fft / 2 + x.length + i] = x[x.length - 1];
+		}
+		System.arraycopy(x, 0, reflected, n_fft / 2, x.length);
+		System.arraycopy(x, 0, edged, n_fft / 2, x.length);
+		assertSameStft(Spectrum.stftMatrix(x, n_fft, 128, null, "hann", true, "reflect"),
+				Spectrum.stftMatrix(reflected, n_fft, 128, null, "hann", false, "constant"), "reflect");
+		assertSameStft(Spectrum.stftMatrix(x, n_fft, 128, null, "hann", true, "edge"),
+				Spectrum.stftMatrix(edged, n_fft, 128, null, "hann", false, "constant"), "edge");
+		System.out.println("[OK] centered STFT with reflect/edge padding matches explicitly padded input");
+
+		// --- Signal too short ---
+		boolean thrown = false;
+		try {
+			FrameView.of(new double[10], 16, 4);
+		} catch (Utils.ParameterError e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "short input must be rejected like Utils.frame");
+		System.out.println("[OK] short input rejected");
+	}
+
+	private static void assertPadded(double[] x, int padLeft, int padRight, FrameView.PadMode mode, double[] expected) {
+		FrameView view = new FrameView(x, 0, x.length, padLeft, padRight, mode, 1, 1);
+		assertTrue(view.paddedLength() == expected.length, "padded length for " + mode);
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue(view.sampleAt(i) == expected[i], mode + " padding at " + i + ": expected " + expected[i]
+					+ " got " + view.sampleAt(i));
+		}
+	}
+
+	private static void assertSameStft(ComplexMatrix a, ComplexMatrix b, String mode) {
+		assertTrue(a.rows() == b.rows() && a.cols() == b.cols(), mode + " STFT shape");
+		for (int i = 0; i < a.getData().length; i++) {
+			assertTrue(Math.abs(a.getData()[i] - b.getData()[i]) <= 1e-9 * (1 + Math.abs(b.getData()[i])),
+					mode + " STFT value at " + i);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.math3.complex.Complex;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.Utils;
+import com.jlibrosa.audio.util.WindowCache;
+
+/**
+ *
+ * This class checks the overlap-add iSTFT: the round trip STFT -> iSTFT, a direct
+ * librosa.istft computation on an arbitrary (non consistent) spectrogram, the parallel
+ * mode against the sequential one and the JLibrosa inverse STFT methods.
+ *
+ */
+public class TestIstft {
+
+	public static void main(String[] args) {
+		Random random = new Random(22);
+		double[] y = new double[30011];
+		for (int i = 0; i < y.length; i++) {
+			y[i] = random.nextGaussian();
+		}
+
+		// --- Round trip STFT -> iSTFT ---
+		int[][] configs = { { 2048, 512 }, { 1024, 256 }, { 512, 128 }, { 400, 100 } };
+		for (int[] config : configs) {
+			int n_fft = config[0];
+			int hop = config[1];
+			for (String mode : new String[] { "reflect", "constant" }) {
+				ComplexMatrix stft = Spectrum.stftMatrix(y, n_fft, hop, null, "hann", true, mode);
+				double[] back = Spectrum.istft(stft, hop, null, "hann", true, y.length);
+				assertTrue(back.length == y.length, "round trip length");
+				for (int i = 0; i < y.length; i++) {
+					assertTrue(Math.abs(back[i] - y[i]) <= 1e-10, "round trip n_fft=" + n_fft + " mode=" + mode
+							+ " sample " + i);
+				}
+			}
+			System.out.println("[OK] STFT -> iSTFT round trip n_fft=" + n_fft + " hop=" + hop);
+		}
+
+		// --- librosa.istft written out, with the full spectrum and Utils.ifft ---
+		int n_fft = 1024;
+		int hop = 256;
+		int frames = 700;
+		ComplexMatrix noise = new ComplexMatrix(1 + n_fft / 2, frames);
+		for (int i = 0; i < noise.getData().length; i++) {
+			noise.getData()[i] = random.nextGaussian();
+		}
+		double[] expected = librosaIstft(noise, n_fft, hop);
+		double[] actual = Spectrum.istft(noise, hop, null, "hann", false, null);
+		assertTrue(actual.length == expected.length, "istft length");
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue(Math.abs(actual[i] - expected[i]) <= 1e-10 * (1 + Math.abs(expected[i])), "istft sample " + i);
+		}
+		System.out.println("[OK] overlap-add matches librosa.istft on a non consistent spectrogram");
+
+		// --- Parallel equal to sequential, bit for bit ---
+		int threshold = Spectrum.getParallelFrameThreshold();
+		try {
+			Spectrum.setParallelFrameThreshold(Integer.MAX_VALUE);
+			double[] sequential = Spectrum.istft(noise, hop, null, "hann", true, null);
+			Spectrum.setParallelFrameThreshold(8);
+			double[] parallel = Spectrum.istft(noise, hop, null, "hann", true, null);
+			assertTrue(sequential.length == (frames - 1) * hop, "center trims n_fft/2 on each side");
+			for (int i = 0; i < sequential.length; i++) {
+				assertTrue(sequential[i] == parallel[i], "parallel sample " + i);
+			}
+		} finally {
+			Spectrum.setParallelFrameThreshold(threshold);
+		}
+		System.out.println("[OK] parallel overlap-add matches the sequential one");
+
+		// --- length shorter and longer than the signal ---
+		assertTrue(Spectrum.istft(noise, hop, null, "hann", true, 1000).length == 1000, "shorter length");
+		double[] longer = Spectrum.istft(noise, hop, null, "hann", false, expected.length + 50);
+		assertTrue(longer.length == expected.length + 50 && longer[expected.length + 10] == 0.0, "zero padded length");
+		System.out.println("[OK] length trims or zero pads the output");
+
+		// --- The normalisation leaves nothing signal-sized in the cache ---
+		int cached = WindowCache.size();
+		for (int extra = 1; extra <= 5; extra++) {
+			Spectrum.istft(noise, hop, null, "hann", false, expected.length - extra * hop);
+		}
+		assertTrue(WindowCache.size() == cached, "istft of new lengths must not add cache entries");
+		System.out.println("[OK] window normalisation computed per call");
+
+		// --- JLibrosa: iSTFT with and without padding ---
+		float[] yf = new float[y.length];
+		for (int i = 0; i < y.length; i++) {
+			yf[i] = (float) y[i];
+		}
+		JLibrosa jLibrosa = new JLibrosa();
+		Complex[][] padded = jLibrosa.generateSTFTFeaturesWithPadOption(yf, 22050, 40, 2048, 128, 512, true);
+		float[] inv = jLibrosa.generateInvSTFTFeaturesWithPadOption(padded, 22050, 40, 2048, 128, 512, -1, true);
+		int covered = 512 * (padded[0].length - 1);
+		assertTrue(inv.length == covered, "padded inverse length " + inv.length);
+		for (int i = 0; i < covered; i++) {
+			assertTrue(Math.abs(inv[i] - yf[i]) <= 1e-4, "padded inverse sample " + i);
+		}
+		Complex[][] unpadded = jLibrosa.generateSTFTFeaturesWithPadOption(yf, 22050, 40, 2048, 128, 512, false);
+		inv = jLibrosa.generateInvSTFTFeatures(unpadded, 22050, 40, 2048, 128, 512);
+		for (int i = 1; i < inv.length - 1; i++) {
+			assertTrue(Math.abs(inv[i] - yf[i]) <= 1e-4, "unpadded inverse sample " + i);
+		}
+		System.out.println("[OK] JLibrosa inverse STFT reconstructs the signal");
+	}
+
+	// librosa.istft (center=False) with the full Hermitian spectrum and the window
+	// sum of squares computed here
+	private static double[] librosaIstft(ComplexMatrix stft, int n_fft, int hop) {
+		double[] window = Utils.padCenter(Utils.getWindow("hann", n_fft, true), n_fft);
+		int frames = stft.cols();
+		double[] y = new double[n_fft + hop * (frames - 1)];
+		double[] sumSquare = new double[y.length];
+		for (int t = 0; t < frames; t++) {
+			Complex[] full = new Complex[n_fft];
+			for (int k = 0; k <= n_fft / 2; k++) {
+				double imag = k == 0 || k == n_fft / 2 ? 0 : stft.getImag(k, t);
+				full[k] = new Complex(stft.getReal(k, t), imag);
+				if (k > 0 && k < n_fft / 2) {
+					full[n_fft - k] = full[k].conjugate();
+				}
+			}
+			Complex[] frame = Utils.ifft(full);
+			for (int i = 0; i < n_fft; i++) {
+				y[t * hop + i] += frame[i].getReal() * window[i];
+				sumSquare[t * hop + i] += window[i] * window[i];
+			}
+		}
+		for (int i = 0; i < y.length; i++) {
+			if (sumSquare[i] > Double.MIN_NORMAL) {
+				y[i] /= sumSquare[i];
+			}
+		}
+		return y;
+	}
+}
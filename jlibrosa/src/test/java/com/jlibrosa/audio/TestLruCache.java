@@ -0,0 +1,84 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.jlibrosa.audio.util.LruCache;
+
+/**
+ *
+ * This class checks the shared LRU cache: eviction of the least recently used entry,
+ * the first stored value winning on putIfAbsent, the size limit and concurrent use.
+ *
+ */
+public class TestLruCache {
+
+	public static void main(String[] args) throws Exception {
+		// --- LRU ---
+		LruCache<Integer, String> cache = new LruCache<Integer, String>(2);
+		cache.putIfAbsent(1, "one");
+		cache.putIfAbsent(2, "two");
+		assertTrue("one".equals(cache.get(1)), "get");
+		cache.putIfAbsent(3, "three");     // discards 2, the least recently used
+		assertTrue(cache.size() == 2, "bounded to 2 entries");
+		assertTrue(cache.get(2) == null && "one".equals(cache.get(1)) && "three".equals(cache.get(3)),
+				"least recently used entry evicted");
+		System.out.println("[OK] least recently used entry is evicted");
+
+		// --- The first stored value wins ---
+		assertTrue("one".equals(cache.putIfAbsent(1, "uno")), "existing value returned");
+		assertTrue("one".equals(cache.get(1)), "existing value kept");
+		System.out.println("[OK] putIfAbsent keeps the stored value");
+
+		// --- Limit ---
+		cache.setMaxEntries(1);
+		assertTrue(cache.size() == 1 && cache.getMaxEntries() == 1, "trimmed to the new limit");
+		cache.clear();
+		assertTrue(cache.size() == 0, "clear");
+		boolean thrown = false;
+		try {
+			cache.setMaxEntries(0);
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "non positive limit rejected");
+		System.out.println("[OK] size limit");
+
+		// --- Concurrent use: many inserts and reads stay within the limit ---
+		final LruCache<Integer, Integer> shared = new LruCache<Integer, Integer>(16);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+			futures.add(pool.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					int mismatches = 0;
+					for (int i = 0; i < 20000; i++) {
+						int key = (i * 31 + seed) % 64;
+						Integer value = shared.get(key);
+						if (value == null) {
+							value = shared.putIfAbsent(key, key * 10);
+						}
+						if (value != key * 10) {
+							mismatches++;
+						}
+					}
+					return mismatches;
+				}
+			}));
+		}
+		for (Future<Integer> f : futures) {
+			assertTrue(f.get() == 0, "values read back under concurrency");
+		}
+		pool.shutdown();
+		assertTrue(shared.size() <= 16, "bounded under concurrency: " + shared.size());
+		System.out.println("[OK] concurrent use stays bounded");
+	}
+}
@@ -0,0 +1,100 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import com.jlibrosa.audio.util.MatrixOps;
+import com.jlibrosa.audio.util.MelFilterBank;
+
+/**
+ *
+ * This class checks that the blocked (and parallel) matrix product gives exactly the
+ * result of the naive i-j-k loop, for shapes that are not multiples of the block sizes,
+ * and that the mel projection is the same with and without the parallel split.
+ *
+ */
+public class TestMatrixOps {
+
+	public static void main(String[] args) {
+		Random random = new Random(19);
+		int[][] shapes = { { 40, 128, 1 }, { 40, 128, 3000 }, { 13, 70, 257 }, { 1, 1, 1 }, { 7, 200, 513 } };
+
+		int threshold = MatrixOps.getParallelColumnThreshold();
+		try {
+			for (int columnThreshold : new int[] { Integer.MAX_VALUE, 1 }) {
+				MatrixOps.setParallelColumnThreshold(columnThreshold);
+				for (int[] shape : shapes) {
+					double[][] a = random(shape[0], shape[1], random);
+					double[][] b = random(shape[1], shape[2], random);
+					double[][] c = MatrixOps.multiply(a, b);
+					float[][] af = toFloat(a);
+					float[][] bf = toFloat(b);
+					float[][] cf = MatrixOps.multiply(af, bf);
+
+					// --- Same result as the naive loop, bit for bit ---
+					for (int i = 0; i < shape[0]; i++) {
+						for (int j = 0; j < shape[2]; j++) {
+							double sum = 0;
+							float sumFloat = 0;
+							for (int k = 0; k < shape[1]; k++) {
+								sum += a[i][k] * b[k][j];
+								sumFloat += af[i][k] * bf[k][j];
+							}
+							assertTrue(c[i][j] == sum, "double " + shape[0] + "x" + shape[1] + "x" + shape[2]);
+							assertTrue(cf[i][j] == sumFloat, "float " + shape[0] + "x" + shape[1] + "x" + shape[2]);
+						}
+					}
+				}
+				System.out.println("[OK] blocked product matches the naive loop, column threshold=" + columnThreshold);
+			}
+
+			// --- Mel projection with and without splitting across threads ---
+			MelFilterBank bank = MelFilterBank.get(22050, 2048, 128, 0.0, 11025, false, "slaney");
+			double[][] spectro = random(bank.nBins(), 5000, random);
+			MatrixOps.setParallelColumnThreshold(Integer.MAX_VALUE);
+			double[][] sequential = bank.apply(spectro);
+			MatrixOps.setParallelColumnThreshold(1);
+			double[][] parallel = bank.apply(spectro);
+			for (int m = 0; m < sequential.length; m++) {
+				for (int t = 0; t < sequential[m].length; t++) {
+					assertTrue(sequential[m][t] == parallel[m][t], "mel band " + m + " frame " + t);
+				}
+			}
+			System.out.println("[OK] parallel mel projection matches the sequential one");
+		} finally {
+			MatrixOps.setParallelColumnThreshold(threshold);
+		}
+
+		// --- Incompatible shapes ---
+		boolean thrown = false;
+		try {
+			MatrixOps.multiply(new double[3][4], new double[5][2]);
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "shape mismatch must be rejected");
+		System.out.println("[OK] shape mismatch rejected");
+	}
+
+	private static double[][] random(int rows, int cols, Random random) {
+		double[][] m = new double[rows][cols];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				m[i][j] = random.nextGaussian();
+			}
+		}
+		return m;
+	}
+
+	private static float[][] toFloat(double[][] m) {
+		float[][] f = new float[m.length][];
+		for (int i = 0; i < m.length; i++) {
+			f[i] = new float[m[i].length];
+			for (int j = 0; j < m[i].length; j++) {
+				f[i][j] = (float) m[i][j];
+			}
+		}
+		return f;
+	}
+}
@@ -0,0 +1,160 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import com.jlibrosa.audio.util.MelFilterBank;
+
+/**
+ *
+ * This class checks the sparse mel filterbank: the weights against the librosa formula,
+ * the projection against the dense matrix product, the sparsity and the cache.
+ *
+ */
+public class TestMelFilterBank {
+
+	public static void main(String[] args) {
+		double sr = 22050;
+		int n_fft = 2048;
+		int n_mels = 128;
+
+		// --- Weights equal to librosa.filters.mel ---
+		for (boolean htk : new boolean[] { false, true }) {
+			for (String norm : new String[] { "slaney", null }) {
+				MelFilterBank bank = MelFilterBank.get(sr, n_fft, n_mels, 0.0, sr / 2, htk, norm);
+				double[][] expected = librosaMel(sr, n_fft, n_mels, 0.0, sr / 2, htk, norm != null);
+				double[][] dense = bank.toDense();
+				for (int m = 0; m < n_mels; m++) {
+					for (int k = 0; k < dense[m].length; k++) {
+						assertTrue(Math.abs(dense[m][k] - expected[m][k]) <= 1e-10 * (1 + Math.abs(expected[m][k])),
+								"htk=" + htk + " norm=" + norm + " band " + m + " bin " + k);
+						assertTrue(bank.weight(m, k) == dense[m][k], "weight(" + m + ", " + k + ")");
+					}
+				}
+				System.out.println("[OK] mel weights htk=" + htk + " norm=" + norm);
+			}
+		}
+
+		// --- Sparsity: at least 10x fewer weights than the dense matrix ---
+		MelFilterBank bank = MelFilterBank.get(sr, n_fft, n_mels, 0.0, sr / 2, false, "slaney");
+		assertTrue(bank.nBins() == 1 + n_fft / 2, "nBins");
+		assertTrue(bank.nonZeros() * 10 <= n_mels * bank.nBins(),
+				"nonZeros=" + bank.nonZeros() + " of " + n_mels * bank.nBins());
+		System.out.println("[OK] " + bank.nonZeros() + " weights stored out of " + n_mels * bank.nBins());
+
+		// --- Sparse projection equal to the dense product, bit for bit ---
+		Random random = new Random(18);
+		int frames = 50;
+		double[][] spectro = new double[bank.nBins()][frames];
+		float[][] spectroFloat = new float[bank.nBins()][frames];
+		for (int k = 0; k < spectro.length; k++) {
+			for (int t = 0; t < frames; t++) {
+				spectro[k][t] = random.nextDouble() * 100;
+				spectroFloat[k][t] = (float) spectro[k][t];
+			}
+		}
+		double[][] dense = bank.toDense();
+		double[][] mel = bank.apply(spectro);
+		float[][] melFloat = bank.apply(spectroFloat);
+		for (int m = 0; m < n_mels; m++) {
+			for (int t = 0; t < frames; t++) {
+				double sum = 0;
+				float sumFloat = 0;
+				for (int k = 0; k < dense[m].length; k++) {
+					sum += dense[m][k] * spectro[k][t];
+					sumFloat += (float) dense[m][k] * spectroFloat[k][t];
+				}
+				assertTrue(mel[m][t] == sum, "double projection band " + m + " frame " + t);
+				assertTrue(melFloat[m][t] == sumFloat, "float projection band " + m + " frame " + t);
+			}
+		}
+		System.out.println("[OK] sparse projection matches the dense product");
+
+		// --- Cache ---
+		assertTrue(MelFilterBank.get(sr, n_fft, n_mels, 0.0, sr / 2, false, "slaney") == bank, "same bank per key");
+		assertTrue(MelFilterBank.get(sr, n_fft, n_mels, 0.0, sr / 2, true, "slaney") != bank, "htk is part of the key");
+		assertTrue(MelFilterBank.get(sr, n_fft, n_mels, 0.0, sr / 2, false, null) != bank, "norm is part of the key");
+
+		int max = MelFilterBank.getMaxEntries();
+		try {
+			MelFilterBank.clear();
+			MelFilterBank.setMaxEntries(2);
+			MelFilterBank.get(sr, 512, 40, 0.0, sr / 2, false, "slaney");
+			MelFilterBank.get(sr, 1024, 40, 0.0, sr / 2, false, "slaney");
+			MelFilterBank.get(sr, 2048, 40, 0.0, sr / 2, false, "slaney");
+			assertTrue(MelFilterBank.size() == 2, "cache limited to max entries");
+		} finally {
+			MelFilterBank.setMaxEntries(max);
+		}
+		System.out.println("[OK] cache per (sr, n_fft, n_mels, fmin, fmax, htk, norm) with LRU limit");
+
+		// --- Invalid parameters ---
+		boolean thrown = false;
+		try {
+			MelFilterBank.get(sr, n_fft, n_mels, 0.0, sr / 2, false, "l2");
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "unsupported norm must be rejected");
+		thrown = false;
+		try {
+			bank.apply(new double[10][frames]);
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "spectrogram with the wrong number of bins must be rejected");
+		System.out.println("[OK] invalid parameters rejected");
+	}
+
+	// librosa.filters.mel written as in numpy: fftfreqs = linspace(0, sr/2, 1 + n_fft/2),
+	// weights = max(0, min(lower, upper))
+	private static double[][] librosaMel(double sr, int n_fft, int n_mels, double fmin, double fmax, boolean htk,
+			boolean slaney) {
+		int bins = 1 + n_fft / 2;
+		double[] fftfreqs = new double[bins];
+		for (int k = 0; k < bins; k++) {
+			fftfreqs[k] = sr / 2 * k / (bins - 1);
+		}
+		double minMel = hzToMel(fmin, htk);
+		double maxMel = hzToMel(fmax, htk);
+		double[] melF = new double[n_mels + 2];
+		for (int i = 0; i < melF.length; i++) {
+			melF[i] = melToHz(minMel + (maxMel - minMel) * i / (melF.length - 1), htk);
+		}
+		double[][] weights = new double[n_mels][bins];
+		for (int m = 0; m < n_mels; m++) {
+			for (int k = 0; k < bins; k++) {
+				double lower = (fftfreqs[k] - melF[m]) / (melF[m + 1] - melF[m]);
+				double upper = (melF[m + 2] - fftfreqs[k]) / (melF[m + 2] - melF[m + 1]);
+				weights[m][k] = Math.max(0, Math.min(lower, upper));
+				if (slaney) {
+					weights[m][k] *= 2.0 / (melF[m + 2] - melF[m]);
+				}
+			}
+		}
+		return weights;
+	}
+
+	private static double hzToMel(double hz, boolean htk) {
+		if (htk) {
+			return 2595.0 * Math.log10(1.0 + hz / 700.0);
+		}
+		double fSp = 200.0 / 3;
+		if (hz < 1000.0) {
+			return hz / fSp;
+		}
+		return 1000.0 / fSp + Math.log(hz / 1000.0) / (Math.log(6.4) / 27.0);
+	}
+
+	private static double melToHz(double mel, boolean htk) {
+		if (htk) {
+			return 700.0 * (Math.pow(10, mel / 2595.0) - 1.0);
+		}
+		double fSp = 200.0 / 3;
+		if (mel < 1000.0 / fSp) {
+			return fSp * mel;
+		}
+		return 1000.0 * Math.exp(Math.log(6.4) / 27.0 * (mel - 1000.0 / fSp));
+	}
+}
@@ -0,0 +1,135 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.MatrixOps;
+import com.jlibrosa.audio.util.SparseComplexMatrix;
+import com.jlibrosa.audio.util.Utils;
+
+/**
+ *
+ * This class checks the CSR complex matrix and Utils.sparsifyRows: the librosa
+ * sparsify_rows quantile rule, the dense round trip and the sparse x dense product
+ * against the dense complex product (sequential and parallel).
+ *
+ */
+public class TestSparseComplexMatrix {
+
+	public static void main(String[] args) {
+		Random random = new Random(25);
+
+		// --- sparsify_rows: magnitudes [1, 2, 3, 94], quantile 0.05 -> 3 and 94 are kept ---
+		ComplexMatrix x = new ComplexMatrix(2, 4);
+		x.set(0, 0, 0.0, 2.0);
+		x.set(0, 1, 94.0, 0.0);
+		x.set(0, 2, -1.0, 0.0);
+		x.set(0, 3, 1.8, -2.4);
+		// Second row all zero: nothing is stored
+		SparseComplexMatrix s = Utils.sparsifyRows(x, 0.05);
+		assertTrue(s.rows() == 2 && s.cols() == 4, "shape");
+		assertTrue(s.nnz() == 2, "nnz " + s.nnz());
+		assertTrue(s.getReal(0, 1) == 94.0 && s.getReal(0, 3) == 1.8 && s.getImag(0, 3) == -2.4, "kept values");
+		assertTrue(s.getReal(0, 0) == 0.0 && s.getImag(0, 0) == 0.0 && s.getReal(0, 2) == 0.0, "dropped values");
+		assertTrue(s.getRowPointers()[2] == s.getRowPointers()[1], "empty row");
+		assertTrue(Utils.sparsifyRows(x, 0.0).nnz() == 4, "quantile 0 keeps every non zero element");
+		System.out.println("[OK] sparsifyRows keeps the top-energy elements of each row");
+
+		// --- Ties at the threshold are all kept ---
+		ComplexMatrix ties = new ComplexMatrix(1, 5);
+		for (int j = 0; j < 5; j++) {
+			ties.set(0, j, 1.0, 0.0);
+		}
+		assertTrue(Utils.sparsifyRows(ties, 0.5).nnz() == 5, "ties at the threshold are kept");
+		System.out.println("[OK] ties at the threshold are kept");
+
+		// --- Invalid quantile ---
+		for (double quantile : new double[] { -0.1, 1.0, Double.NaN }) {
+			boolean thrown = false;
+			try {
+				Utils.sparsifyRows(x, quantile);
+			} catch (Utils.ParameterError e) {
+				thrown = true;
+			}
+			assertTrue(thrown, "quantile " + quantile + " must be rejected");
+		}
+		System.out.println("[OK] invalid quantile rejected");
+
+		// --- Round trip dense -> sparse -> dense ---
+		ComplexMatrix dense = new ComplexMatrix(30, 513);
+		for (int i = 0; i < 30; i++) {
+			// narrow band around the "center" of each filter, as in the CQT bases
+			int center = 15 * i + 20;
+			for (int k = Math.max(0, center - 40); k < Math.min(513, center + 40); k++) {
+				double gain = Math.exp(-0.01 * (k - center) * (k - center));
+				dense.set(i, k, gain * random.nextGaussian(), gain * random.nextGaussian());
+			}
+		}
+		SparseComplexMatrix full = SparseComplexMatrix.fromDense(dense);
+		ComplexMatrix back = full.toDense();
+		for (int i = 0; i < dense.getData().length; i++) {
+			assertTrue(back.getData()[i] == dense.getData()[i], "round trip " + i);
+		}
+		System.out.println("[OK] dense round trip, nnz=" + full.nnz());
+
+		// --- Immutable: arrays copied on the way in and out ---
+		int[] rowPointers = full.getRowPointers();
+		int[] columnIndices = full.getColumnIndices();
+		double[] values = full.getValues();
+		SparseComplexMatrix copy = new SparseComplexMatrix(30, 513, rowPointers, columnIndices, values);
+		double before = full.getValues()[0];
+		values[0] = 1e9;
+		full.getValues()[0] = 1e9;
+		assertTrue(full.getValues()[0] == before && copy.getValues()[0] == before, "arrays are copied");
+		SparseComplexMatrix doubled = full.scaled(2.0);
+		assertTrue(doubled.getValues()[0] == 2 * before && full.getValues()[0] == before, "scaled returns a copy");
+		System.out.println("[OK] sparse matrix is immutable");
+
+		// --- Sparse x dense product equal to the dense complex product ---
+		SparseComplexMatrix sparse = Utils.sparsifyRows(dense, 0.01);
+		assertTrue(sparse.nnz() < full.nnz(), "sparsity 0.01 drops elements");
+		ComplexMatrix kept = sparse.toDense();
+		ComplexMatrix stft = new ComplexMatrix(513, 2000);
+		for (int i = 0; i < stft.getData().length; i++) {
+			stft.getData()[i] = random.nextGaussian();
+		}
+		int threshold = MatrixOps.getParallelColumnThreshold();
+		try {
+			MatrixOps.setParallelColumnThreshold(Integer.MAX_VALUE);
+			ComplexMatrix sequential = sparse.multiply(stft);
+			MatrixOps.setParallelColumnThreshold(1);
+			ComplexMatrix parallel = sparse.multiply(stft);
+			for (int t = 0; t < stft.cols(); t++) {
+				for (int i = 0; i < kept.rows(); i++) {
+					double re = 0;
+					double im = 0;
+					double scale = 0;
+					for (int k = 0; k < kept.cols(); k++) {
+						re += kept.getReal(i, k) * stft.getReal(k, t) - kept.getImag(i, k) * stft.getImag(k, t);
+						im += kept.getReal(i, k) * stft.getImag(k, t) + kept.getImag(i, k) * stft.getReal(k, t);
+						scale += kept.abs(i, k) * stft.abs(k, t);
+					}
+					assertTrue(Math.abs(sequential.getReal(i, t) - re) <= 1e-12 * scale
+							&& Math.abs(sequential.getImag(i, t) - im) <= 1e-12 * scale, "product " + i + ", " + t);
+					assertTrue(sequential.getReal(i, t) == parallel.getReal(i, t)
+							&& sequential.getImag(i, t) == parallel.getImag(i, t), "parallel product " + i + ", " + t);
+				}
+			}
+		} finally {
+			MatrixOps.setParallelColumnThreshold(threshold);
+		}
+		System.out.println("[OK] sparse x dense product matches the dense product, nnz=" + sparse.nnz());
+
+		// --- Incompatible shapes ---
+		boolean thrown = false;
+		try {
+			sparse.multiply(new ComplexMatrix(100, 3));
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "shape mismatch must be rejected");
+		System.out.println("[OK] shape mismatch rejected");
+	}
+}
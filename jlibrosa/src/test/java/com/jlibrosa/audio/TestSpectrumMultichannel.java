@@ -0,0 +1,82 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.ComplexTensor;
+
+/**
+ *
+ * This class checks that the parallel multichannel STFT gives, for every channel,
+ * exactly the mono STFT of that channel, in a channel-major tensor.
+ *
+ */
+public class TestSpectrumMultichannel {
+
+	public static void main(String[] args) {
+		Random random = new Random(5);
+		int channels = 8;
+		int samples = 30000;
+		double[][] y = new double[channels][samples];
+		for (int c = 0; c < channels; c++) {
+			for (int i = 0; i < samples; i++) {
+				y[c][i] = random.nextGaussian();
+			}
+		}
+
+		int threshold = Spectrum.getParallelFrameThreshold();
+		try {
+			for (int frameThreshold : new int[] { Integer.MAX_VALUE, 8 }) {
+				Spectrum.setParallelFrameThreshold(frameThreshold);
+				for (boolean center : new boolean[] { true, false }) {
+					ComplexTensor tensor = Spectrum.stftTensor(y, 2048, 512, null, "hann", center, "reflect");
+					assertTrue(tensor.channels() == channels, "channels");
+
+					// --- Each channel equal to the mono STFT ---
+					for (int c = 0; c < channels; c++) {
+						ComplexMatrix expected = Spectrum.stftMatrix(y[c], 2048, 512, null, "hann", center, "reflect");
+						ComplexMatrix channel = tensor.channel(c);
+						assertTrue(channel.rows() == expected.rows() && channel.cols() == expected.cols(), "shape");
+						for (int col = 0; col < expected.cols(); col++) {
+							for (int row = 0; row < expected.rows(); row++) {
+								assertTrue(channel.getReal(row, col) == expected.getReal(row, col)
+										&& channel.getImag(row, col) == expected.getImag(row, col)
+										&& tensor.getReal(c, row, col) == expected.getReal(row, col),
+										"channel " + c + " bin " + row + " frame " + col);
+							}
+						}
+					}
+
+					// --- Per channel layout: each channel is a contiguous block ---
+					int block = 2 * tensor.rows() * tensor.cols();
+					assertTrue(tensor.getData().length == channels * block, "tensor data length");
+					assertTrue(tensor.channel(3).index(0, 0) == 3 * block, "channel 3 starts at its block");
+					System.out.println("[OK] multichannel STFT center=" + center + " frame threshold=" + frameThreshold
+							+ " " + channels + " x " + tensor.rows() + " x " + tensor.cols());
+				}
+			}
+		} finally {
+			Spectrum.setParallelFrameThreshold(threshold);
+		}
+
+		// --- Old API (Complex[][][] and ComplexMatrix[]) ---
+		ComplexMatrix[] matrices = Spectrum.stftMatrix(y, 1024, 256, null, "hann", true, "constant");
+		assertTrue(Spectrum.stft(y, 1024, 256, null, "hann", true, "constant")[7][100][20].getReal()
+				== matrices[7].getReal(100, 20), "Complex[][][] adapter");
+		System.out.println("[OK] Complex[][][] and ComplexMatrix[] adapters");
+
+		// --- Channels of different lengths ---
+		boolean thrown = false;
+		try {
+			Spectrum.stftTensor(new double[][] { new double[4096], new double[4000] }, 1024, 256, null, "hann", true,
+					"constant");
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "channels with different lengths must be rejected");
+		System.out.println("[OK] channels with different lengths rejected");
+	}
+}
@@ -0,0 +1,63 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.util.ComplexMatrix;
+
+/**
+ *
+ * This class checks that the fork-join STFT gives exactly the same matrix as the
+ * sequential one.
+ *
+ */
+public class TestSpectrumParallel {
+
+	public static void main(String[] args) {
+		Random random = new Random(3);
+		double[] y = new double[22050 * 5 + 123];
+		for (int i = 0; i < y.length; i++) {
+			y[i] = random.nextGaussian() * 0.1;
+		}
+
+		int previousThreshold = Spectrum.getParallelFrameThreshold();
+		ForkJoinPool previousPool = Spectrum.getForkJoinPool();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Spectrum.setForkJoinPool(pool);
+
+			check(y, 2048, 512, true);
+			check(y, 1024, 256, false);
+			// hop > n_fft/2 and (len - n_fft/2) % hop < hop - n_fft/2: no frame in the tail
+			check(Arrays.copyOf(y, 512 + 156 * 700 + 10), 1024, 700, true);
+		} finally {
+			Spectrum.setParallelFrameThreshold(previousThreshold);
+			Spectrum.setForkJoinPool(previousPool);
+			pool.shutdown();
+		}
+	}
+
+	private static void check(double[] y, int n_fft, int hop_length, boolean center) {
+		Spectrum.setParallelFrameThreshold(Integer.MAX_VALUE);
+		ComplexMatrix sequential = Spectrum.stftMatrix(y, n_fft, hop_length, null, "hann", center, "constant");
+
+		Spectrum.setParallelFrameThreshold(1);
+		ComplexMatrix parallel = Spectrum.stftMatrix(y, n_fft, hop_length, null, "hann", center, "constant");
+
+		int expectedFrames = center ? 1 + y.length / hop_length : 1 + (y.length - n_fft) / hop_length;
+		assertTrue(sequential.cols() == expectedFrames, "number of frames for hop " + hop_length);
+		assertTrue(parallel.rows() == sequential.rows() && parallel.cols() == sequential.cols(), "shape");
+
+		double[] a = sequential.getData();
+		double[] b = parallel.getData();
+		for (int i = 0; i < a.length; i++) {
+			assertTrue(Double.doubleToLongBits(a[i]) == Double.doubleToLongBits(b[i]), "value at " + i);
+		}
+		System.out.println("[OK] parallel STFT n_fft=" + n_fft + " hop=" + hop_length + " center=" + center
+				+ " " + parallel.rows() + " x " + parallel.cols());
+	}
+}
@@ -0,0 +1,108 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.core.SpectrumTraceListener;
+import com.jlibrosa.audio.util.WindowCache;
+
+/**
+ *
+ * This class checks that Spectrum.stft is silent by default and reports its padding
+ * decision, frame counts, shape and warnings to an installed SpectrumTraceListener.
+ *
+ */
+public class TestSpectrumTraceListener {
+
+	public static void main(String[] args) {
+		double[] y = new double[10007];
+		for (int i = 0; i < y.length; i++) {
+			y[i] = Math.sin(0.01 * i);
+		}
+
+		// --- No listener: nothing is written to System.out or System.err ---
+		PrintStream realOut = System.out;
+		PrintStream realErr = System.err;
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(captured));
+		System.setErr(new PrintStream(captured));
+		try {
+			Spectrum.stftMatrix(y, 2048, 512, null, "hann", true, "constant");
+			// n_fft larger than the signal: only a warning, delivered to the listener
+			Spectrum.stftMatrix(new double[1500], 2048, 512, null, "hann", true, "constant");
+		} finally {
+			System.setOut(realOut);
+			System.setErr(realErr);
+		}
+		assertTrue(captured.size() == 0, "stft must not print by default");
+		System.out.println("[OK] stft is silent without a listener");
+
+		// --- With a listener: structured events ---
+		final List<String> events = new ArrayList<>();
+		final List<String> warnings = new ArrayList<>();
+		final int[] shape = new int[4];
+		Spectrum.setTraceListener(new SpectrumTraceListener() {
+			@Override
+			public void onWindow(String window, int winLength, int nFft, WindowCache.Window fftWindow) {
+				events.add("window " + window + " " + fftWindow.length());
+			}
+
+			@Override
+			public void onPadding(PaddingDecision decision, String padMode, int signalLength, int start,
+					int startK, int tailK) {
+				events.add("padding " + decision + " start=" + start);
+			}
+
+			@Override
+			public void onHeadFrames(int paddedLength, int framesBeforeTrim, int framesKept) {
+				events.add("head " + framesKept);
+			}
+
+			@Override
+			public void onTailFrames(int start, int paddedLength, int frames) {
+				events.add("tail " + frames);
+			}
+
+			@Override
+			public void onShape(int freqBins, int headFrames, int middleFrames, int tailFrames) {
+				shape[0] = freqBins;
+				shape[1] = headFrames;
+				shape[2] = middleFrames;
+				shape[3] = tailFrames;
+			}
+
+			@Override
+			public void onWarning(String message) {
+				warnings.add(message);
+			}
+		});
+		try {
+			int frames = Spectrum.stftMatrix(y, 2048, 512, null, "hann", true, "constant").cols();
+
+			assertTrue(events.get(0).equals("window hann 2048"), "window event: " + events);
+			assertTrue(events.get(1).equals("padding PARTIAL start=0"), "padding event: " + events);
+			assertTrue(events.get(2).equals("head 2"), "head event: " + events);
+			assertTrue(events.get(3).equals("tail 2"), "tail event: " + events);
+			assertTrue(shape[0] == 1025 && shape[1] + shape[2] + shape[3] == frames, "shape event");
+			assertTrue(warnings.isEmpty(), "no warning for n_fft <= length: " + warnings);
+
+			events.clear();
+			Spectrum.stftMatrix(new double[1500], 2048, 512, null, "hann", true, "constant");
+			assertTrue(events.get(1).startsWith("padding FULL"), "full padding event: " + events);
+			assertTrue(warnings.size() == 1 && warnings.get(0).equals("n_fft=2048 is larger than input length=1500"),
+					"warning event: " + warnings);
+
+			events.clear();
+			Spectrum.stftMatrix(y, 2048, 512, null, "hann", false, "constant");
+			assertTrue(events.get(1).startsWith("padding NONE"), "no padding event: " + events);
+		} finally {
+			Spectrum.setTraceListener(null);
+		}
+		System.out.println("[OK] listener receives window, padding, frame, shape and warning events");
+	}
+}
@@ -0,0 +1,93 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.util.ComplexMatrix;
+
+/**
+ *
+ * This class checks that the STFT frame loop does not allocate per frame: writing
+ * into a preallocated ComplexMatrix costs the same bytes for a short and for a long
+ * signal.
+ *
+ */
+public class TestStftAllocations {
+
+	private static final int N_FFT = 1024;
+	private static final int HOP = 256;
+
+	public static void main(String[] args) {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)
+				|| !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			System.out.println("[OK] skipped: thread allocation counter not supported by this JVM");
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		// Sequential path: everything is allocated on the thread calling stft
+		int threshold = Spectrum.getParallelFrameThreshold();
+		Spectrum.setParallelFrameThreshold(Integer.MAX_VALUE);
+		try {
+			double[] shortSignal = signal(20 * HOP);
+			double[] longSignal = signal(2000 * HOP);
+			ComplexMatrix shortOut = Spectrum.stftMatrix(shortSignal, N_FFT, HOP, null, "hann", true, "constant");
+			ComplexMatrix longOut = Spectrum.stftMatrix(longSignal, N_FFT, HOP, null, "hann", true, "constant");
+
+			// --- Warm up (JIT, FFT plan cache, per-thread scratch) ---
+			for (int i = 0; i < 20; i++) {
+				run(shortSignal, shortOut);
+				run(longSignal, longOut);
+			}
+
+			long shortBytes = Long.MAX_VALUE;
+			long longBytes = Long.MAX_VALUE;
+			for (int i = 0; i < 5; i++) {
+				shortBytes = Math.min(shortBytes, allocated(threads, shortSignal, shortOut));
+				longBytes = Math.min(longBytes, allocated(threads, longSignal, longOut));
+			}
+
+			int extraFrames = longOut.cols() - shortOut.cols();
+			double perFrame = (double) (longBytes - shortBytes) / extraFrames;
+			System.out.println("short=" + shortBytes + " bytes, long=" + longBytes + " bytes, " + extraFrames
+					+ " extra frames -> " + perFrame + " bytes/frame");
+			assertTrue(perFrame < 1.0, "STFT allocates " + perFrame + " bytes per frame");
+			System.out.println("[OK] no per-frame allocation in Spectrum.stftMatrix");
+
+			// --- Output matrix with the wrong shape ---
+			boolean thrown = false;
+			try {
+				run(longSignal, shortOut);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			assertTrue(thrown, "output matrix with the wrong shape must be rejected");
+			System.out.println("[OK] output shape checked");
+		} finally {
+			Spectrum.setParallelFrameThreshold(threshold);
+		}
+	}
+
+	private static long allocated(com.sun.management.ThreadMXBean threads, double[] y, ComplexMatrix out) {
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		run(y, out);
+		return threads.getThreadAllocatedBytes(id) - before;
+	}
+
+	private static void run(double[] y, ComplexMatrix out) {
+		Spectrum.stftMatrix(y, N_FFT, HOP, null, "hann", true, "constant", out);
+	}
+
+	private static double[] signal(int length) {
+		double[] y = new double[length];
+		for (int i = 0; i < length; i++) {
+			y[i] = Math.sin(2 * Math.PI * 440 * i / 22050.0);
+		}
+		return y;
+	}
+}
@@ -0,0 +1,82 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import com.jlibrosa.audio.util.ComplexMatrix;
+import com.jlibrosa.audio.util.StftBatch;
+
+/**
+ *
+ * This class checks that the batched STFT gives, for every clip, the float-rounded
+ * values of the per-clip STFT, for both the [batch][samples] and the packed input,
+ * in the [batch][frames][bins][2] layout.
+ *
+ */
+public class TestStftBatch {
+
+	public static void main(String[] args) {
+		JLibrosa jLibrosa = new JLibrosa();
+		Random random = new Random(3);
+		int batchSize = 9;
+		int samples = 22050;
+		int n_fft = 2048;
+		int hop = 512;
+
+		float[][] clips = new float[batchSize][samples];
+		float[] packed = new float[batchSize * samples];
+		for (int b = 0; b < batchSize; b++) {
+			for (int i = 0; i < samples; i++) {
+				clips[b][i] = (float) random.nextGaussian();
+				packed[b * samples + i] = clips[b][i];
+			}
+		}
+
+		for (boolean padding : new boolean[] { true, false }) {
+			StftBatch batch = jLibrosa.generateSTFTBatchWithPadOption(clips, n_fft, hop, padding);
+			assertTrue(batch.batchSize() == batchSize && batch.bins() == 1 + n_fft / 2, "batch shape");
+
+			// --- Each clip equal to its own STFT (rounded to float) ---
+			for (int b = 0; b < batchSize; b++) {
+				ComplexMatrix expected = jLibrosa.generateSTFTMatrixWithPadOption(clips[b], -1, 40, n_fft, 128, hop,
+						padding);
+				assertTrue(batch.frames() == expected.cols(), "frames for clip " + b);
+				for (int t = 0; t < expected.cols(); t++) {
+					for (int f = 0; f < expected.rows(); f++) {
+						assertTrue(batch.getReal(b, t, f) == (float) expected.getReal(f, t)
+								&& batch.getImag(b, t, f) == (float) expected.getImag(f, t),
+								"clip " + b + " frame " + t + " bin " + f);
+					}
+				}
+			}
+
+			// --- Layout [batch][frames][bins][2] ---
+			int[] shape = batch.shape();
+			assertTrue(shape[0] == batchSize && shape[1] == batch.frames() && shape[2] == batch.bins() && shape[3] == 2,
+					"shape()");
+			assertTrue(batch.getData()[((2 * batch.frames() + 3) * batch.bins() + 5) * 2 + 1] == batch.getImag(2, 3, 5),
+					"row-major layout");
+
+			// --- Packed buffer, writing into a preallocated tensor ---
+			StftBatch out = new StftBatch(new float[batch.getData().length], batchSize, batch.frames(), batch.bins());
+			StftBatch fromPacked = jLibrosa.generateSTFTBatchWithPadOption(packed, batchSize, n_fft, hop, padding, out);
+			assertTrue(fromPacked == out, "packed batch must be written into out");
+			for (int i = 0; i < out.getData().length; i++) {
+				assertTrue(out.getData()[i] == batch.getData()[i], "packed input value at " + i);
+			}
+			System.out.println("[OK] batch STFT of " + batchSize + " clips (padding=" + padding + ") "
+					+ batch.frames() + " frames x " + batch.bins() + " bins");
+		}
+
+		// --- Clips of different lengths ---
+		boolean thrown = false;
+		try {
+			jLibrosa.generateSTFTBatch(new float[][] { new float[4096], new float[4000] }, n_fft, hop);
+		} catch (IllegalArgumentException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "clips with different lengths must be rejected");
+		System.out.println("[OK] clips with different lengths rejected");
+	}
+}
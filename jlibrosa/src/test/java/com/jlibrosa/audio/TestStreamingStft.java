@@ -0,0 +1,146 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import com.jlibrosa.audio.core.Spectrum;
+import com.jlibrosa.audio.core.StreamingStft;
+import com.jlibrosa.audio.util.ComplexMatrix;
+
+/**
+ *
+ * This class checks that feeding a signal to StreamingStft in random-sized pushes,
+ * followed by flush, emits exactly the columns of Spectrum.stftMatrix over the whole
+ * signal, including the center padding at the start and at the end of the stream.
+ *
+ */
+public class TestStreamingStft {
+
+	public static void main(String[] args) {
+		Random random = new Random(17);
+		int[][] configs = { { 2048, 512 }, { 1024, 256 }, { 512, 384 }, { 400, 160 }, { 511, 128 } };
+		int[] lengths = { 100, 300, 1000, 2047, 5000, 22050 };
+		String[] modes = { "constant", "reflect", "edge" };
+
+		for (int[] config : configs) {
+			int n_fft = config[0];
+			int hop = config[1];
+			for (int length : lengths) {
+				double[] y = new double[length];
+				for (int i = 0; i < length; i++) {
+					y[i] = random.nextGaussian();
+				}
+				for (String mode : modes) {
+					check(y, n_fft, hop, true, mode, random);
+				}
+				if (length >= n_fft) {
+					check(y, n_fft, hop, false, "constant", random);
+				}
+			}
+			System.out.println("[OK] streaming STFT matches Spectrum.stftMatrix for n_fft=" + n_fft + " hop=" + hop);
+		}
+
+		// --- Columns are emitted as soon as the frame is complete ---
+		StreamingStft stream = new StreamingStft(1024, 256, null, "hann", true, "constant");
+		assertTrue(stream.push(new double[511]).cols() == 0, "no column before n_fft/2 + 1 samples");
+		assertTrue(stream.push(new double[1]).cols() == 1, "first column once frame 0 is complete");
+		assertTrue(stream.push(new double[255]).cols() == 0, "no column before the next hop");
+		assertTrue(stream.push(new double[1]).cols() == 1, "one column per hop");
+		System.out.println("[OK] columns emitted as soon as each hop is available");
+
+		// --- push after flush ---
+		stream.flush();
+		boolean thrown = false;
+		try {
+			stream.push(new double[10]);
+		} catch (IllegalStateException e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "push after flush must be rejected");
+		stream.reset();
+		assertTrue(stream.push(new double[512]).cols() == 1, "reset starts a new stream");
+		System.out.println("[OK] flush ends the stream and reset starts a new one");
+
+		// --- flush after more than Integer.MAX_VALUE samples ---
+		// The counters are advanced by a multiple of n_fft, n_fft + hop and hop, so
+		// the ring buffer and the history stay consistent: flush must emit the same
+		// columns, with shifted indices. With hop > n_fft/2 and a number of samples
+		// that is a multiple of hop, the last frame uses all of the right padding and
+		// the reflected slice has the same length, so the result depends on the exact
+		// slice length
+		double[] y = new double[14 * 352];
+		for (int i = 0; i < y.length; i++) {
+			y[i] = random.nextGaussian();
+		}
+		StreamingStft small = new StreamingStft(512, 352, null, "hann", true, "reflect");
+		StreamingStft large = new StreamingStft(512, 352, null, "hann", true, "reflect");
+		small.push(y);
+		large.push(y);
+		long shift = 152064L * 20000;
+		assertTrue(shift > Integer.MAX_VALUE, "shift past Integer.MAX_VALUE");
+		advance(large, "samples", shift);
+		advance(large, "written", shift);
+		advance(large, "nextFrame", shift / 352);
+		ComplexMatrix expected = small.flush();
+		final ComplexMatrix tail = new ComplexMatrix(expected.rows(), expected.cols());
+		final long firstFrame = small.framesEmitted() - expected.cols() + shift / 352;
+		final int[] count = new int[1];
+		large.flush(new StreamingStft.ColumnListener() {
+			@Override
+			public void onColumn(long frame, double[] column) {
+				assertTrue(frame == firstFrame + count[0], "frame index past Integer.MAX_VALUE samples");
+				System.arraycopy(column, 0, tail.getData(), tail.columnOffset(count[0]), column.length);
+				count[0]++;
+			}
+		});
+		assertTrue(count[0] == expected.cols(), "flush frames past Integer.MAX_VALUE samples: " + count[0]);
+		for (int i = 0; i < expected.getData().length; i++) {
+			assertTrue(tail.getData()[i] == expected.getData()[i], "flush value at " + i);
+		}
+		System.out.println("[OK] flush after more than Integer.MAX_VALUE samples");
+	}
+
+	// Adds delta to a private StreamingStft counter, faking a long stream
+	private static void advance(StreamingStft stream, String name, long delta) {
+		try {
+			Field field = StreamingStft.class.getDeclaredField(name);
+			field.setAccessible(true);
+			field.setLong(stream, field.getLong(stream) + delta);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void check(double[] y, int n_fft, int hop, boolean center, String mode, Random random) {
+		ComplexMatrix expected = Spectrum.stftMatrix(y, n_fft, hop, null, "hann", center, mode);
+
+		final ComplexMatrix actual = new ComplexMatrix(expected.rows(), expected.cols());
+		final int[] count = new int[1];
+		final String label = "n_fft=" + n_fft + " hop=" + hop + " length=" + y.length + " center=" + center + " mode=" + mode;
+		StreamingStft.ColumnListener listener = new StreamingStft.ColumnListener() {
+			@Override
+			public void onColumn(long frame, double[] column) {
+				assertTrue(frame == count[0], label + ": frames out of order");
+				assertTrue(frame < actual.cols(), label + ": too many frames");
+				System.arraycopy(column, 0, actual.getData(), actual.columnOffset((int) frame), column.length);
+				count[0]++;
+			}
+		};
+
+		StreamingStft stream = new StreamingStft(n_fft, hop, null, "hann", center, mode);
+		int position = 0;
+		while (position < y.length) {
+			int chunk = Math.min(y.length - position, 1 + random.nextInt(700));
+			stream.push(y, position, chunk, listener);
+			position += chunk;
+		}
+		stream.flush(listener);
+
+		assertTrue(count[0] == expected.cols(), label + ": expected " + expected.cols() + " frames, got " + count[0]);
+		for (int i = 0; i < expected.getData().length; i++) {
+			assertTrue(actual.getData()[i] == expected.getData()[i], label + ": value at " + i);
+		}
+	}
+}
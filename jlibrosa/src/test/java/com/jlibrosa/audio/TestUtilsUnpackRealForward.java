@@ -0,0 +1,62 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Random;
+
+import org.jtransforms.fft.DoubleFFT_1D;
+import org.jtransforms.fft.FloatFFT_1D;
+
+import com.jlibrosa.audio.util.Utils;
+
+/**
+ *
+ * This class checks that unpacking the realForward half spectrum gives the same
+ * first 1 + n/2 bins as realForwardFull, for even and odd sizes, in double and float.
+ *
+ */
+public class TestUtilsUnpackRealForward {
+
+	public static void main(String[] args) {
+		Random random = new Random(11);
+		int[] sizes = { 1, 2, 3, 8, 9, 1000, 1001, 2048, 2205 };
+
+		for (int n : sizes) {
+			double[] signal = new double[n];
+			for (int i = 0; i < n; i++) {
+				signal[i] = random.nextGaussian();
+			}
+			DoubleFFT_1D fft = new DoubleFFT_1D(n);
+
+			double[] full = new double[2 * n];
+			System.arraycopy(signal, 0, full, 0, n);
+			fft.realForwardFull(full);
+
+			double[] packed = signal.clone();
+			fft.realForward(packed);
+
+			int freqBins = 1 + n / 2;
+			double[] unpacked = new double[2 * freqBins + 3];
+			Utils.unpackRealForward(packed, n, unpacked, 3);
+
+			for (int i = 0; i < 2 * freqBins; i++) {
+				assertTrue(Math.abs(unpacked[3 + i] - full[i]) <= 1e-9 * (1 + Math.abs(full[i])),
+						"n=" + n + " position " + i + ": expected " + full[i] + " got " + unpacked[3 + i]);
+			}
+
+			// --- Float version (FloatFFT_1D) ---
+			float[] packedFloat = new float[n];
+			for (int i = 0; i < n; i++) {
+				packedFloat[i] = (float) signal[i];
+			}
+			new FloatFFT_1D(n).realForward(packedFloat);
+			float[] unpackedFloat = new float[2 * freqBins];
+			Utils.unpackRealForward(packedFloat, n, unpackedFloat, 0);
+			for (int i = 0; i < 2 * freqBins; i++) {
+				assertTrue(Math.abs(unpackedFloat[i] - full[i]) <= 1e-4 * (1 + Math.abs(full[i])),
+						"float n=" + n + " position " + i + ": expected " + full[i] + " got " + unpackedFloat[i]);
+			}
+			System.out.println("[OK] unpackRealForward n=" + n);
+		}
+	}
+}
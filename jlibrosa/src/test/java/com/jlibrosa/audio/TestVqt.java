@@ -1,10 +1,116 @@
 package com.jlibrosa.audio;
 
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.util.Arrays;
+
 import com.jlibrosa.audio.core.Constantq;
+import com.jlibrosa.audio.util.ComplexMatrix;
 
+/**
+ *
+ * This class checks the multi-octave cqt/vqt pipeline: the output shape, the peak bin
+ * of pure tones (with and without early downsampling), the scale option and the
+ * filter basis returned by vqtFilterFFT.
+ *
+ */
 public class TestVqt {
-    public static void main(String[] args) {
 
-    }
-}
+	private static final int SR = 22050;
+	private static final int HOP = 512;
+
+	public static void main(String[] args) {
+		double[] y440 = sine(440.0, 3 * SR);
+		double[] y110 = sine(110.0, 3 * SR);
+
+		// --- Shape [nBins][1 + len / hop] ---
+		ComplexMatrix C = cqt(y440, 84, true);
+		assertTrue(C.rows() == 84, "rows " + C.rows());
+		assertTrue(C.cols() == 1 + y440.length / HOP, "cols " + C.cols());
+		System.out.println("[OK] cqt shape " + C.rows() + " x " + C.cols());
+
+		// --- Peak at the bin of the note (fmin = C1, 12 bins per octave) ---
+		// A4 = 440 Hz -> bin 45, A2 = 110 Hz -> bin 21
+		assertTrue(peakBin(C) == 45, "440 Hz peak bin " + peakBin(C));
+		assertTrue(peakBin(cqt(y110, 84, true)) == 21, "110 Hz peak bin");
+		System.out.println("[OK] pure tones peak at their note bins");
+
+		// --- With early downsample (60 bins: the highest filter is well below Nyquist) ---
+		ComplexMatrix low = cqt(y110, 60, true);
+		assertTrue(low.rows() == 60 && low.cols() == C.cols(), "early downsample shape");
+		assertTrue(peakBin(low) == 21, "early downsample peak bin " + peakBin(low));
+		System.out.println("[OK] early downsampled cqt keeps shape and peak");
 
+		// --- scale = false: the tone amplitude does not drop with the octave ---
+		// (without the division by sqrt(lengths), a sine of amplitude 1 gives ~ 1/2 in its bin)
+		double peak440 = peakMagnitude(cqt(y440, 84, false), 45);
+		double peak110 = peakMagnitude(cqt(y110, 84, false), 21);
+		assertTrue(Math.abs(peak440 / peak110 - 1.0) < 0.05, "unscaled peaks " + peak440 + " vs " + peak110);
+		System.out.println("[OK] unscaled magnitudes are constant across octaves");
+
+		// --- vqt with gamma > 0 ---
+		ComplexMatrix V = Constantq.vqt(y440, SR, HOP, null, 84, "equal", 5.0, 12, 0.0, 1.0, 1.0, 0.01, "hann",
+				true, "constant", null, null);
+		assertTrue(V.rows() == 84 && V.cols() == C.cols(), "vqt shape");
+		assertTrue(peakBin(V) == 45, "vqt peak bin " + peakBin(V));
+		System.out.println("[OK] vqt with gamma = 5");
+
+		// --- vqtFilterFFT: half spectrum and nFft a power of 2 ---
+		double[] freqs = { 440.0, 466.16, 493.88 };
+		double[] alpha = new double[freqs.length];
+		Arrays.fill(alpha, Math.pow(2.0, 1.0 / 12) - 1);
+		Constantq.FilterResult filters = Constantq.vqtFilterFFT(SR, freqs, 1.0, 1.0, 0.01, HOP, "hann", 0.0, alpha);
+		assertTrue(Integer.bitCount(filters.nFft) == 1 && filters.nFft >= 2 * HOP, "nFft " + filters.nFft);
+		assertTrue(filters.fftBasis.rows() == 3 && filters.fftBasis.cols() == filters.nFft / 2 + 1, "basis shape");
+		for (int i = 0; i < freqs.length; i++) {
+			int best = 0;
+			double bestMag = 0;
+			for (int k = 0; k < filters.fftBasis.cols(); k++) {
+				double mag = Math.hypot(filters.fftBasis.getReal(i, k), filters.fftBasis.getImag(i, k));
+				if (mag > bestMag) {
+					bestMag = mag;
+					best = k;
+				}
+			}
+			double expected = freqs[i] * filters.nFft / SR;
+			assertTrue(Math.abs(best - expected) <= 1.0, "filter " + i + " peaks at bin " + best);
+		}
+		System.out.println("[OK] vqtFilterFFT basis peaks at the filter frequencies");
+	}
+
+	private static ComplexMatrix cqt(double[] y, int nBins, boolean scale) {
+		return Constantq.cqt(y, SR, HOP, null, nBins, 12, 0.0, 1.0, 1.0, 0.01, "hann", scale, "constant", null,
+				null);
+	}
+
+	// Bin with the largest energy summed over the frames
+	private static int peakBin(ComplexMatrix C) {
+		int best = 0;
+		double bestEnergy = -1;
+		for (int k = 0; k < C.rows(); k++) {
+			double energy = 0;
+			for (int t = 0; t < C.cols(); t++) {
+				energy += C.getReal(k, t) * C.getReal(k, t) + C.getImag(k, t) * C.getImag(k, t);
+			}
+			if (energy > bestEnergy) {
+				bestEnergy = energy;
+				best = k;
+			}
+		}
+		return best;
+	}
+
+	// Magnitude in the middle frame (away from the edges)
+	private static double peakMagnitude(ComplexMatrix C, int bin) {
+		int t = C.cols() / 2;
+		return Math.hypot(C.getReal(bin, t), C.getImag(bin, t));
+	}
+
+	private static double[] sine(double freq, int n) {
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			y[i] = Math.sin(2 * Math.PI * freq * i / SR);
+		}
+		return y;
+	}
+}
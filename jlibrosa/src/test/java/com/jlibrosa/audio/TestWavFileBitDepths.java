@@ -0,0 +1,79 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.io.File;
+import java.util.Random;
+
+import com.jlibrosa.audio.wavFile.WavFile;
+
+/**
+ *
+ * This class checks the block decoder of WavFile for 8, 24, 32 and 40 bit PCM:
+ * both readFrames overloads must return the values of the original per-byte
+ * reader, mono and stereo.
+ *
+ */
+public class TestWavFileBitDepths {
+
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(2);
+		for (int bytesPerSample : new int[] { 1, 3, 4, 5 }) {
+			for (int channels = 1; channels <= 2; channels++) {
+				// Odd number of frames: 8 bit mono data needs a pad byte
+				int frames = 3001;
+				long[] samples = new long[frames * channels];
+				for (int i = 0; i < samples.length; i++) {
+					samples[i] = random.nextLong();
+				}
+				// Full scale values, including the extremes of each sign
+				samples[0] = 0;
+				samples[1] = -1;
+				samples[2] = 1L << (8 * bytesPerSample - 1);
+				samples[3] = (1L << (8 * bytesPerSample - 1)) - 1;
+				check(WavFixtures.write(samples, channels, bytesPerSample, false), samples, channels, bytesPerSample);
+			}
+			System.out.println("[OK] " + (8 * bytesPerSample) + " bit PCM decoded as the per-byte reader");
+		}
+	}
+
+	private static void check(File file, long[] samples, int channels, int bytesPerSample) throws Exception {
+		int frames = samples.length / channels;
+		String label = (8 * bytesPerSample) + " bit, " + channels + " channel(s)";
+
+		WavFile wavFile = WavFile.openWavFile(file);
+		float[][] windows = new float[channels][frames];
+		assertTrue(wavFile.readFrames(windows, frames, 0) == frames, label + ": frames read at offset 0");
+		float[][] shifted = new float[channels][frames - 7];
+		assertTrue(wavFile.readFrames(shifted, frames - 7, 7) == frames - 7, label + ": frames read at offset 7");
+		wavFile.close();
+
+		WavFile stream = WavFile.openWavFile(file);
+		float[] interleaved = new float[samples.length];
+		assertTrue(stream.readFrames(interleaved, frames) == frames, label + ": sequential read");
+		stream.close();
+
+		for (int f = 0; f < frames; f++) {
+			for (int c = 0; c < channels; c++) {
+				int i = f * channels + c;
+				float expected = (float) readSample(samples[i], bytesPerSample);
+				assertTrue(windows[c][f] == expected, label + ": offset read at " + i);
+				assertTrue(f < 7 || shifted[c][f - 7] == expected, label + ": shifted read at " + i);
+				assertTrue(interleaved[i] == WavFixtures.normalise(expected, 8 * bytesPerSample),
+						label + ": sequential read at " + i);
+			}
+		}
+	}
+
+	// The per-byte WavFile.readSample the block decoder replaced, on the bytes
+	// written for sample
+	private static double readSample(long sample, int bytesPerSample) {
+		long val = 0;
+		for (int b = 0; b < bytesPerSample; b++) {
+			int v = (byte) (sample >> (8 * b));
+			if (b < bytesPerSample - 1 || bytesPerSample == 1) v &= 0xFF;
+			val += v << (b * 8);
+		}
+		return val / 32767.0;
+	}
+}
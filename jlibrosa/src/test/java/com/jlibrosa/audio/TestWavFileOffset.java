@@ -0,0 +1,83 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import java.io.File;
+import java.util.Random;
+
+import com.jlibrosa.audio.wavFile.WavFile;
+
+/**
+ *
+ * This class checks that reading a window of frames at a given offset returns
+ * the same samples as the sequential stream reader, also for a file with an
+ * unknown chunk between the format and the data chunks.
+ *
+ */
+public class TestWavFileOffset {
+
+	public static void main(String[] args) throws Exception {
+		String[] audioFiles = { "audioFiles/001_children_playing.wav", "audioFiles/1995-1826-0003.wav" };
+		for (String audioFilePath : audioFiles) {
+			checkOffsets(new File(audioFilePath));
+			System.out.println("[OK] " + audioFilePath);
+		}
+
+		// --- Data chunk after an unknown chunk ---
+		Random random = new Random(1);
+		int channels = 2;
+		long[] samples = new long[channels * 3000];
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = random.nextInt(65536) - 32768;
+		}
+		File fixture = WavFixtures.write(samples, channels, 2, true);
+		checkOffsets(fixture);
+
+		// The windows must also hold the written samples, not bytes of the unknown chunk
+		WavFile wavFile = WavFile.openWavFile(fixture);
+		float[][] window = new float[channels][100];
+		assertTrue(wavFile.readFrames(window, 100, 1234) == 100, "frames read after the unknown chunk");
+		for (int c = 0; c < channels; c++) {
+			for (int f = 0; f < 100; f++) {
+				assertTrue(window[c][f] == (float) (samples[(1234 + f) * channels + c] / 32767.0),
+						"written sample at channel " + c + ", frame " + (1234 + f));
+			}
+		}
+		wavFile.close();
+		System.out.println("[OK] data chunk after an unknown chunk");
+	}
+
+	private static void checkOffsets(File file) throws Exception {
+		// Expected values from the sequential stream reader, which does not use the
+		// mapped data chunk
+		WavFile stream = WavFile.openWavFile(file);
+		int channels = stream.getNumChannels();
+		int totalFrames = (int) stream.getNumFrames();
+		float[] interleaved = new float[totalFrames * channels];
+		assertTrue(stream.readFrames(interleaved, totalFrames) == totalFrames, "sequential read of " + file);
+		stream.close();
+
+		WavFile wavFile = WavFile.openWavFile(file);
+		int[] offsets = { 0, 1, 4410 % totalFrames, totalFrames / 2, Math.max(0, totalFrames - 100) };
+		for (int offset : offsets) {
+			int windowFrames = 1000;
+			float[][] window = new float[channels][windowFrames];
+			long read = wavFile.readFrames(window, windowFrames, offset);
+
+			int expectedFrames = Math.min(windowFrames, totalFrames - offset);
+			assertTrue(read == expectedFrames, "frames read at offset " + offset);
+
+			for (int c = 0; c < channels; c++) {
+				for (int f = 0; f < expectedFrames; f++) {
+					float expected = interleaved[(offset + f) * channels + c];
+					assertTrue(WavFixtures.normalise(window[c][f], wavFile.getValidBits()) == expected,
+							"sample mismatch at channel " + c + ", frame " + (offset + f));
+				}
+			}
+		}
+
+		float[][] pastEnd = new float[channels][10];
+		assertTrue(wavFile.readFrames(pastEnd, 10, totalFrames) == 0, "read past the end");
+		wavFile.close();
+	}
+}
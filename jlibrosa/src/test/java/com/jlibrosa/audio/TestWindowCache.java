@@ -0,0 +1,77 @@
+package com.jlibrosa.audio;
+
+import static com.jlibrosa.audio.Asserts.assertTrue;
+
+import com.jlibrosa.audio.util.Utils;
+import com.jlibrosa.audio.util.WindowCache;
+
+/**
+ *
+ * This class checks that WindowCache returns the same padded windows as
+ * Utils.padCenter(Utils.getWindow(...)), with their squares, reuses them per
+ * key, keeps them immutable and bounds the cache.
+ *
+ */
+public class TestWindowCache {
+
+	public static void main(String[] args) {
+		WindowCache.clear();
+
+		// --- Same values as getWindow + padCenter ---
+		Object[] specs = { "hann", "hamming", new Object[] { "kaiser", 8.6 }, 5.0 };
+		for (Object spec : specs) {
+			for (boolean fftbins : new boolean[] { true, false }) {
+				double[] expected = Utils.padCenter(Utils.getWindow(spec, 400, fftbins), 512);
+				WindowCache.Window window = WindowCache.get(spec, 400, 512, fftbins);
+				assertTrue(window.length() == 512, "padded length");
+				for (int i = 0; i < expected.length; i++) {
+					assertTrue(window.get(i) == expected[i], "window value at " + i);
+					assertTrue(window.squared(i) == expected[i] * expected[i], "squared window at " + i);
+				}
+			}
+		}
+		System.out.println("[OK] cached windows match Utils.padCenter(Utils.getWindow(...))");
+
+		// --- Reuse per key ---
+		WindowCache.Window hann = WindowCache.get("hann", 2048, 2048, true);
+		assertTrue(WindowCache.get("HANN", 2048, 2048, true) == hann, "same key must return the same window");
+		assertTrue(WindowCache.get("hann", 2048, 2048, false) != hann, "fftbins is part of the key");
+		assertTrue(WindowCache.get("hann", 1024, 2048, true) != hann, "win_length is part of the key");
+		assertTrue(WindowCache.get(new Object[] { "kaiser", 8.6 }, 400, 512, true) != WindowCache.get(
+				new Object[] { "kaiser", 4.0 }, 400, 512, true), "kaiser beta is part of the key");
+		double[] custom = new double[16];
+		assertTrue(WindowCache.get(custom, 16, 16, true) != WindowCache.get(custom, 16, 16, true),
+				"double[] windows are not cached");
+		System.out.println("[OK] windows reused per (type, params, win_length, n_fft, fftbins)");
+
+		// --- Immutable ---
+		double[] copy = hann.toArray();
+		copy[1024] = -1;
+		assertTrue(hann.get(1024) != -1, "toArray must return a copy");
+		System.out.println("[OK] windows are immutable");
+
+		// --- Cache limit (LRU) ---
+		int max = WindowCache.getMaxEntries();
+		try {
+			WindowCache.setMaxEntries(2);
+			assertTrue(WindowCache.size() <= 2, "cache trimmed to the new limit");
+			for (int n = 8; n <= 64; n *= 2) {
+				WindowCache.get("hann", n, n, true);
+			}
+			assertTrue(WindowCache.size() == 2, "cache must not grow beyond the limit");
+		} finally {
+			WindowCache.setMaxEntries(max);
+		}
+		System.out.println("[OK] cache size is bounded");
+
+		// --- Window longer than n_fft ---
+		boolean thrown = false;
+		try {
+			WindowCache.get("hann", 1024, 512, true);
+		} catch (Utils.ParameterError e) {
+			thrown = true;
+		}
+		assertTrue(thrown, "win_length > n_fft must be rejected like Utils.padCenter");
+		System.out.println("[OK] win_length > n_fft rejected");
+	}
+}
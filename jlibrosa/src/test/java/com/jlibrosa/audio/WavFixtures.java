@@ -0,0 +1,80 @@
+package com.jlibrosa.audio;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *
+ * Writes small PCM wav files for the WavFile tests, optionally with an unknown
+ * chunk between the format and the data chunks.
+ *
+ */
+final class WavFixtures {
+
+	private WavFixtures() {
+	}
+
+	/**
+	 * To write interleaved integer samples as a temporary PCM wav file.
+	 *
+	 * @param samples        interleaved samples, each stored in its lowest bytesPerSample bytes
+	 * @param channels
+	 * @param bytesPerSample
+	 * @param unknownChunk   write an odd sized "LIST" chunk before the data chunk
+	 * @return
+	 * @throws IOException
+	 */
+	static File write(long[] samples, int channels, int bytesPerSample, boolean unknownChunk) throws IOException {
+		int dataSize = samples.length * bytesPerSample;
+		int dataPad = dataSize % 2;
+		byte[] list = "jlibrosa".getBytes("US-ASCII");
+		int listSize = list.length - 1;        // odd size, followed by a pad byte
+		int listChunk = unknownChunk ? 8 + listSize + 1 : 0;
+
+		ByteBuffer out = ByteBuffer.allocate(12 + 24 + listChunk + 8 + dataSize + dataPad).order(ByteOrder.LITTLE_ENDIAN);
+		out.put("RIFF".getBytes("US-ASCII")).putInt(out.capacity() - 8).put("WAVE".getBytes("US-ASCII"));
+
+		int blockAlign = channels * bytesPerSample;
+		out.put("fmt ".getBytes("US-ASCII")).putInt(16);
+		out.putShort((short) 1).putShort((short) channels).putInt(22050).putInt(22050 * blockAlign);
+		out.putShort((short) blockAlign).putShort((short) (8 * bytesPerSample));
+
+		if (unknownChunk) {
+			out.put("LIST".getBytes("US-ASCII")).putInt(listSize).put(list, 0, listSize).put((byte) 0);
+		}
+
+		out.put("data".getBytes("US-ASCII")).putInt(dataSize);
+		for (long sample : samples) {
+			for (int b = 0; b < bytesPerSample; b++) {
+				out.put((byte) (sample >> (8 * b)));
+			}
+		}
+		if (dataPad == 1) {
+			out.put((byte) 0);
+		}
+
+		File file = File.createTempFile("jlibrosa-fixture", ".wav");
+		file.deleteOnExit();
+		try (FileOutputStream stream = new FileOutputStream(file)) {
+			stream.write(out.array());
+		}
+		return file;
+	}
+
+	/**
+	 * readFrames(float[][], ...) returns value / 32767; the sequential
+	 * readFrames(float[], int) also applies the offset and scale of the sample
+	 * format. This applies them to a value of the first kind.
+	 */
+	static float normalise(float value, int validBits) {
+		if (validBits > 8) {
+			float floatScale = 1 << (validBits - 1);
+			return 0 + value / floatScale;
+		}
+		float floatScale = 0.5f * ((1 << validBits) - 1);
+		return -1 + value / floatScale;
+	}
+}